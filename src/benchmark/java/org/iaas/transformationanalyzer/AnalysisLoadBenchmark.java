@@ -0,0 +1,129 @@
+package org.iaas.transformationanalyzer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how the definitions of one analysis request are loaded.
+ * The request uses an environment which supports all the default communications (8 files, 1 environment).
+ *
+ * - roundTrip: the old way of doAnalysis. File => JsonNode => String => Java object, with a new ObjectMapper each time.
+ * - direct: File => Java object with the shared reader.
+ * - catalog: lookups in the in-memory catalog. (What doAnalysis does now)
+ *
+ * Run with -prof gc to see the allocation per analysis request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnalysisLoadBenchmark
+{
+    static final String environmentName = "AllCommunications";
+
+    Path jsonDataPath;
+    Catalog catalog;
+
+    @Setup
+    public void setup() throws Exception
+    {
+        // Copy the default communications and add an environment which supports all of them.
+        jsonDataPath = Files.createTempDirectory("json_data");
+        Path communications = Files.createDirectories(jsonDataPath.resolve("communications"));
+        Path environments = Files.createDirectories(jsonDataPath.resolve("environments"));
+
+        Environment environment = new Environment();
+        environment.setName(environmentName);
+        int id = 1;
+        for (File file : new File("src/main/webapp/json_data/communications").listFiles())
+        {
+            if (file.getName().endsWith(".json") && !file.getName().contains("settingsDropdownElements"))
+            {
+                Files.copy(file.toPath(), communications.resolve(file.getName()));
+                environment.getSupportedCommunications().add(new DropDownListItem(id++, file.getName().replace(".json", "")));
+            }
+        }
+        new JsonReaderWriter<Environment>(Environment.class).ConvertJavaObjectJsonFile(environments.resolve(environmentName + ".json").toString(), environment);
+        Files.copy(new File("src/main/webapp/json_data/" + DifficultyMatrix.fileName).toPath(), jsonDataPath.resolve(DifficultyMatrix.fileName));
+
+        catalog = new Catalog(jsonDataPath, new JsonFolderRepository(jsonDataPath, "communications", "environments"), "communications", "environments", "settingsDropdownElements");
+        catalog.open();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception
+    {
+        catalog.close();
+    }
+
+    private String getFilePath(String folderName, String name)
+    {
+        return jsonDataPath.resolve(folderName).resolve(name + ".json").toString();
+    }
+
+
+    @Benchmark
+    public List<Communication> roundTrip() throws Exception
+    {
+        LegacyJsonReaderWriter<Communication> communicationJsonReaderWriter = new LegacyJsonReaderWriter<Communication>(Communication.class);
+        LegacyJsonReaderWriter<Environment> environmentJsonReaderWriter = new LegacyJsonReaderWriter<Environment>(Environment.class);
+
+        String environmentString = environmentJsonReaderWriter.ConvertJsonFileToJsonSting(getFilePath("environments", environmentName));
+        Environment environment = environmentJsonReaderWriter.ConvertJsonStringToJavaObject(environmentString);
+
+        List<Communication> result = new ArrayList<Communication>();
+        for (DropDownListItem commItem : environment.getSupportedCommunications())
+        {
+            String communicationString = communicationJsonReaderWriter.ConvertJsonFileToJsonSting(getFilePath("communications", commItem.getItemName()));
+            result.add(communicationJsonReaderWriter.ConvertJsonStringToJavaObject(communicationString));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<Communication> direct() throws Exception
+    {
+        JsonReaderWriter<Communication> communicationJsonReaderWriter = new JsonReaderWriter<Communication>(Communication.class);
+        JsonReaderWriter<Environment> environmentJsonReaderWriter = new JsonReaderWriter<Environment>(Environment.class);
+
+        Environment environment = environmentJsonReaderWriter.ConvertJsonFileToJavaObj(getFilePath("environments", environmentName));
+
+        List<Communication> result = new ArrayList<Communication>();
+        for (DropDownListItem commItem : environment.getSupportedCommunications())
+        {
+            result.add(communicationJsonReaderWriter.ConvertJsonFileToJavaObj(getFilePath("communications", commItem.getItemName())));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<CommunicationProfile> catalog() throws Exception
+    {
+        Environment environment = catalog.getEnvironment(environmentName);
+
+        List<CommunicationProfile> result = new ArrayList<CommunicationProfile>();
+        for (DropDownListItem commItem : environment.getSupportedCommunications())
+        {
+            result.add(catalog.getCommunication(commItem.getItemName()));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,152 @@
+package org.iaas.transformationanalyzer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures one analysis (Analyzer.WriteAnalysisResult) for different catalog sizes.
+ * The new environment supports all the communications of the catalog except the MQTT based ones. (See SyntheticCatalog)
+ *
+ * - matrix: the results of the pairs come from the transformation matrix, as in the servlet.
+ *   (Above the limit of the matrix, 500 communications, it calculates every pair like direct)
+ * - direct: every pair is calculated for each analysis.
+ * - pair / explainedPair: only the pairs of the analysis (Analyzer.analysePair), without and with the explanation. (explain=true)
+ *   Run them with -prof gc, gc.alloc.rate.norm is the number of bytes allocated for them.
+ *   (The bytes of pair are also checked by AnalyzerAllocationTest, so a regression fails the build)
+ *   Without the explanation only the results themselves are allocated, nothing for each rule.
+ *
+ * The result is written into a stream which throws it away, so the measurement includes writing the Json.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnalyzerBenchmark
+{
+    @Param({ "7", "100", "1000", "10000" })
+    int catalogSize;
+
+    Path jsonDataPath;
+    Catalog catalog;
+
+    Environment oldEnvironment;
+    Environment newEnvironment;
+    CommunicationProfile oldCommunication;
+    List<CommunicationProfile> oldEnvironmentSupportedComms;
+    List<CommunicationProfile> newEnvironmentSupportedComms;
+
+    TransformationMatrix transformationMatrix;
+    TransformationMatrix noTransformationMatrix;
+
+    JsonGenerator generator;
+
+    @Setup
+    public void setup() throws Exception
+    {
+        jsonDataPath = SyntheticCatalog.create(catalogSize, 42);
+        catalog = new Catalog(jsonDataPath, new JsonFolderRepository(jsonDataPath, "communications", "environments"), "communications", "environments", "settingsDropdownElements");
+        catalog.open();
+
+        oldEnvironment = catalog.getEnvironment(SyntheticCatalog.oldEnvironmentName);
+        newEnvironment = catalog.getEnvironment(SyntheticCatalog.newEnvironmentName);
+        oldCommunication = catalog.getCommunication(SyntheticCatalog.oldCommunicationName);
+        oldEnvironmentSupportedComms = getSupportedComms(oldEnvironment);
+        newEnvironmentSupportedComms = getSupportedComms(newEnvironment);
+
+        transformationMatrix = new TransformationMatrix(catalog.getDifficultyMatrix(), 500);
+        transformationMatrix.build(catalog.getCommunications());
+
+        // Limit 0 keeps nothing.
+        noTransformationMatrix = new TransformationMatrix(catalog.getDifficultyMatrix(), 0);
+        noTransformationMatrix.build(catalog.getCommunications());
+
+        generator = JsonReaderWriter.CreateJsonGenerator(new NullOutputStream());
+    }
+
+    @TearDown
+    public void tearDown() throws Exception
+    {
+        generator.close();
+        catalog.close();
+    }
+
+    private List<CommunicationProfile> getSupportedComms(Environment environment) throws Exception
+    {
+        List<CommunicationProfile> result = new ArrayList<CommunicationProfile>();
+        for (DropDownListItem commItem : environment.getSupportedCommunications())
+        {
+            result.add(catalog.getCommunication(commItem.getItemName()));
+        }
+        return result;
+    }
+
+
+    @Benchmark
+    public void matrix() throws Exception
+    {
+        new Analyzer(oldEnvironment, newEnvironment, oldCommunication, oldEnvironmentSupportedComms, newEnvironmentSupportedComms, transformationMatrix).WriteAnalysisResult(generator);
+        generator.flush();
+    }
+
+    @Benchmark
+    public void direct() throws Exception
+    {
+        new Analyzer(oldEnvironment, newEnvironment, oldCommunication, oldEnvironmentSupportedComms, newEnvironmentSupportedComms, noTransformationMatrix).WriteAnalysisResult(generator);
+        generator.flush();
+    }
+
+    @Benchmark
+    public void pair(Blackhole blackhole)
+    {
+        for (CommunicationProfile newComm : newEnvironmentSupportedComms)
+        {
+            blackhole.consume(Analyzer.analysePair(oldCommunication, newComm, catalog.getDifficultyMatrix()));
+        }
+    }
+
+    @Benchmark
+    public void explainedPair(Blackhole blackhole)
+    {
+        for (CommunicationProfile newComm : newEnvironmentSupportedComms)
+        {
+            blackhole.consume(Analyzer.analysePair(oldCommunication, newComm, catalog.getDifficultyMatrix(), new DifficultyExplanation()));
+        }
+    }
+
+
+    /**
+     * Throws away everything written into it.
+     */
+    static final class NullOutputStream extends OutputStream
+    {
+        @Override
+        public void write(int b)
+        {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len)
+        {
+        }
+    }
+}
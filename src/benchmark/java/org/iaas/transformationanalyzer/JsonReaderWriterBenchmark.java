@@ -0,0 +1,118 @@
+package org.iaas.transformationanalyzer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the shared reader/writer JsonReaderWriter with the old one, which creates an ObjectMapper
+ * and pretty prints a throwaway string for every call.
+ *
+ * Each request of the servlet uses new JsonReaderWriter objects, so the construction is measured too.
+ *
+ * Run with -prof gc to see the allocation per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonReaderWriterBenchmark
+{
+    static final String communicationFile = "src/main/webapp/json_data/communications/MQTT.json";
+
+    String communicationJson;
+    Communication communication;
+
+    @Setup
+    public void setup() throws Exception
+    {
+        communicationJson = new JsonReaderWriter<Communication>(Communication.class).ConvertJsonFileToJsonSting(communicationFile);
+        communication = new JsonReaderWriter<Communication>(Communication.class).ConvertJsonStringToJavaObject(communicationJson);
+    }
+
+
+    //region JsonString-JavaObj Conversion
+
+    @Benchmark
+    public Communication legacyStringToObject() throws Exception
+    {
+        return new LegacyJsonReaderWriter<Communication>(Communication.class).ConvertJsonStringToJavaObject(communicationJson);
+    }
+
+    @Benchmark
+    public Communication sharedStringToObject() throws Exception
+    {
+        return new JsonReaderWriter<Communication>(Communication.class).ConvertJsonStringToJavaObject(communicationJson);
+    }
+
+    @Benchmark
+    public String legacyObjectToString() throws Exception
+    {
+        return new LegacyJsonReaderWriter<Communication>(Communication.class).ConvertJavaObjectToJsonString(communication);
+    }
+
+    @Benchmark
+    public String sharedObjectToString() throws Exception
+    {
+        return new JsonReaderWriter<Communication>(Communication.class).ConvertJavaObjectToJsonString(communication);
+    }
+
+    @Benchmark
+    public StringWriter sharedObjectToStream() throws Exception
+    {
+        StringWriter writer = new StringWriter(communicationJson.length());
+        new JsonReaderWriter<Communication>(Communication.class).ConvertJavaObjectToJsonStream(writer, communication);
+        return writer;
+    }
+
+    //endregion
+
+
+    //region JsonFile Conversion
+
+    @Benchmark
+    public Communication legacyFileToObject() throws Exception
+    {
+        return new LegacyJsonReaderWriter<Communication>(Communication.class).ConvertJsonFileToJavaObj(communicationFile);
+    }
+
+    @Benchmark
+    public Communication sharedFileToObject() throws Exception
+    {
+        return new JsonReaderWriter<Communication>(Communication.class).ConvertJsonFileToJavaObj(communicationFile);
+    }
+
+    @Benchmark
+    public String legacyFileToString() throws Exception
+    {
+        return new LegacyJsonReaderWriter<Communication>(Communication.class).ConvertJsonFileToJsonSting(communicationFile);
+    }
+
+    @Benchmark
+    public String sharedFileToString() throws Exception
+    {
+        return new JsonReaderWriter<Communication>(Communication.class).ConvertJsonFileToJsonSting(communicationFile);
+    }
+
+    @Benchmark
+    public StringWriter sharedFileToStream() throws Exception
+    {
+        StringWriter writer = new StringWriter(communicationJson.length());
+        new JsonReaderWriter<Communication>(Communication.class).ConvertJsonFileToJsonStream(communicationFile, writer);
+        return writer;
+    }
+
+    //endregion
+}
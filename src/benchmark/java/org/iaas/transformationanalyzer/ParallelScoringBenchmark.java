@@ -0,0 +1,108 @@
+package org.iaas.transformationanalyzer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds the size of the environment from which the parallel scoring pays off. (Analyzer.setParallelScoring)
+ * The new environment supports all the communications of the catalog except the MQTT based ones. (See SyntheticCatalog)
+ *
+ * - sequential: the candidates are scored one after another.
+ * - parallel: the candidates are scored on the common fork/join pool, split down to parts of the threshold.
+ *
+ * The results of the pairs are calculated for each analysis, as above the limit of the transformation matrix.
+ * (Within the limit a score is only a lookup, which is too cheap to split)
+ * Compare the two for each catalogSize, the crossover is where parallel becomes faster. It depends on the number of processors.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelScoringBenchmark
+{
+    @Param({ "16", "64", "256", "1024", "4096" })
+    int catalogSize;
+
+    @Param({ "16", "64" })
+    int threshold;
+
+    Path jsonDataPath;
+    Catalog catalog;
+
+    Environment oldEnvironment;
+    Environment newEnvironment;
+    CommunicationProfile oldCommunication;
+    List<CommunicationProfile> oldEnvironmentSupportedComms;
+    List<CommunicationProfile> newEnvironmentSupportedComms;
+
+    TransformationMatrix noTransformationMatrix;
+
+    @Setup
+    public void setup() throws Exception
+    {
+        jsonDataPath = SyntheticCatalog.create(catalogSize, 42);
+        catalog = new Catalog(jsonDataPath, new JsonFolderRepository(jsonDataPath, "communications", "environments"), "communications", "environments", "settingsDropdownElements");
+        catalog.open();
+
+        oldEnvironment = catalog.getEnvironment(SyntheticCatalog.oldEnvironmentName);
+        newEnvironment = catalog.getEnvironment(SyntheticCatalog.newEnvironmentName);
+        oldCommunication = catalog.getCommunication(SyntheticCatalog.oldCommunicationName);
+        oldEnvironmentSupportedComms = getSupportedComms(oldEnvironment);
+        newEnvironmentSupportedComms = getSupportedComms(newEnvironment);
+
+        // Limit 0 keeps nothing.
+        noTransformationMatrix = new TransformationMatrix(catalog.getDifficultyMatrix(), 0);
+        noTransformationMatrix.build(catalog.getCommunications());
+    }
+
+    @TearDown
+    public void tearDown() throws Exception
+    {
+        catalog.close();
+    }
+
+    private List<CommunicationProfile> getSupportedComms(Environment environment) throws Exception
+    {
+        List<CommunicationProfile> result = new ArrayList<CommunicationProfile>();
+        for (DropDownListItem commItem : environment.getSupportedCommunications())
+        {
+            result.add(catalog.getCommunication(commItem.getItemName()));
+        }
+        return result;
+    }
+
+
+    @Benchmark
+    public Analyzer sequential()
+    {
+        Analyzer analyzer = new Analyzer(oldEnvironment, newEnvironment, oldCommunication, oldEnvironmentSupportedComms, newEnvironmentSupportedComms, noTransformationMatrix);
+        analyzer.Analyse();
+        return analyzer;
+    }
+
+    @Benchmark
+    public Analyzer parallel()
+    {
+        Analyzer analyzer = new Analyzer(oldEnvironment, newEnvironment, oldCommunication, oldEnvironmentSupportedComms, newEnvironmentSupportedComms, noTransformationMatrix);
+        analyzer.setParallelScoring(threshold);
+        analyzer.Analyse();
+        return analyzer;
+    }
+}
@@ -0,0 +1,177 @@
+package org.iaas.transformationanalyzer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures an analysis request end-to-end: RestServlet.doPost with postRequestType=analyse,
+ * from the request parameters to the Json written into the response.
+ *
+ * There is no container. The ServletContext, request and response are mocked with dynamic proxies,
+ * the servlet is initialized with a json_data folder created by SyntheticCatalog.
+ * The request is not asynchronous (isAsyncSupported is false), so it is handled on the benchmark thread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RestServletBenchmark
+{
+    @Param({ "7", "100", "1000", "10000" })
+    int catalogSize;
+
+    Path jsonDataPath;
+    RestServlet servlet;
+
+    HttpServletRequest request;
+    HttpServletResponse response;
+
+    @Setup
+    public void setup() throws Exception
+    {
+        jsonDataPath = SyntheticCatalog.create(catalogSize, 42);
+
+        ServletContext servletContext = mock(ServletContext.class, (name, args) ->
+                name.equals("getRealPath") ? jsonDataPath.toString() : null);
+
+        ServletConfig servletConfig = mock(ServletConfig.class, (name, args) ->
+        {
+            switch (name)
+            {
+                case "getServletContext":
+                    return servletContext;
+                case "getServletName":
+                    return "RestServlet";
+                case "getInitParameterNames":
+                    return Collections.emptyEnumeration();
+                default:
+                    return null;
+            }
+        });
+
+        servlet = new RestServlet();
+        servlet.init(servletConfig);
+
+        Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put("postRequestType", "analyse");
+        parameters.put("env1", SyntheticCatalog.oldEnvironmentName);
+        parameters.put("env2", SyntheticCatalog.newEnvironmentName);
+        parameters.put("oldComm", SyntheticCatalog.oldCommunicationName);
+
+        request = mock(HttpServletRequest.class, (name, args) ->
+        {
+            switch (name)
+            {
+                case "getParameter":
+                    return parameters.get(args[0]);
+                case "getReader":
+                    return new BufferedReader(new StringReader(""));
+                case "isAsyncSupported":
+                    return false;
+                default:
+                    return null;
+            }
+        });
+
+        ServletOutputStream outputStream = new NullServletOutputStream();
+        PrintWriter writer = new PrintWriter(outputStream);
+        response = mock(HttpServletResponse.class, (name, args) ->
+        {
+            switch (name)
+            {
+                case "getOutputStream":
+                    return outputStream;
+                case "getWriter":
+                    return writer;
+                case "isCommitted":
+                    return false;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        servlet.destroy();
+    }
+
+
+    @Benchmark
+    public void analyse() throws Exception
+    {
+        servlet.doPost(request, response);
+    }
+
+
+    private interface Answer
+    {
+        Object answer(String methodName, Object[] args) throws Exception;
+    }
+
+    /**
+     * Creates an object of the interface, each call is answered by the given function.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T mock(Class<T> type, Answer answer)
+    {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+                (proxy, method, args) -> answer.answer(method.getName(), args));
+    }
+
+    /**
+     * Throws away everything written into it.
+     */
+    static final class NullServletOutputStream extends ServletOutputStream
+    {
+        @Override
+        public boolean isReady()
+        {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener)
+        {
+        }
+
+        @Override
+        public void write(int b)
+        {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len)
+        {
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package org.iaas.transformationanalyzer;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Creates a json_data folder with generated communications for the benchmarks.
+ *
+ * The 7 known communications (AMQP, MQTT, ...) are copied from the project, the rest are generated.
+ * A generated communication selects a random part of each dropdown list of Default.json (which has all the items),
+ * so the generated files look like the ones saved from the front-end.
+ *
+ * Two environments are created:
+ * - OldEnvironment: supports MQTT only.
+ * - NewEnvironment: supports all the communications which are not based on MQTT, so every analysis from MQTT
+ *   needs a transformation and all the supported communications are analysed.
+ *
+ * The same seed gives the same files.
+ */
+final class SyntheticCatalog
+{
+    static final String oldEnvironmentName = "OldEnvironment";
+    static final String newEnvironmentName = "NewEnvironment";
+    static final String oldCommunicationName = "MQTT";
+
+    static final String jsonData = "src/main/webapp/json_data";
+
+    private static final String[] knownCommunications = { "AMQP", "CoAP", "DDS", "HTTP", "MQTT", "STOMP", "XMPP" };
+
+    private static final List<Function<Communication, List<DropDownListItem>>> getters = new ArrayList<Function<Communication, List<DropDownListItem>>>();
+    private static final List<BiConsumer<Communication, List<DropDownListItem>>> setters = new ArrayList<BiConsumer<Communication, List<DropDownListItem>>>();
+
+    static
+    {
+        // communicationType is set separately, it has one item.
+        add(Communication::getCommunicationPattern, Communication::setCommunicationPattern);
+        add(Communication::getRequestType, Communication::setRequestType);
+        add(Communication::getHeaderSize, Communication::setHeaderSize);
+        add(Communication::getPayloadType, Communication::setPayloadType);
+        add(Communication::getPayloadSize, Communication::setPayloadSize);
+        add(Communication::getSecurityType, Communication::setSecurityType);
+        add(Communication::getAuthenticationType, Communication::setAuthenticationType);
+        add(Communication::getQosType, Communication::setQosType);
+        add(Communication::getIotLevel, Communication::setIotLevel);
+    }
+
+    private static void add(Function<Communication, List<DropDownListItem>> getter, BiConsumer<Communication, List<DropDownListItem>> setter)
+    {
+        getters.add(getter);
+        setters.add(setter);
+    }
+
+
+    private SyntheticCatalog()
+    {
+    }
+
+    /**
+     * Creates the json_data folder in a temporary directory.
+     * @param communicationCount number of the communications, at least 7 (the known ones)
+     * @param seed
+     * @return path of the json_data folder
+     * @throws Exception
+     */
+    static Path create(int communicationCount, long seed) throws Exception
+    {
+        Path jsonDataPath = Files.createTempDirectory("json_data");
+        Path communications = Files.createDirectories(jsonDataPath.resolve("communications"));
+        Path environments = Files.createDirectories(jsonDataPath.resolve("environments"));
+
+        Files.copy(new File(jsonData, DifficultyMatrix.fileName).toPath(), jsonDataPath.resolve(DifficultyMatrix.fileName));
+
+        JsonReaderWriter<Communication> communicationJsonReaderWriter = new JsonReaderWriter<Communication>(Communication.class);
+        Communication vocabulary = communicationJsonReaderWriter.ConvertJsonFileToJavaObj(jsonData + "/communications/Default.json");
+
+        List<Communication> all = new ArrayList<Communication>();
+        for (String name : knownCommunications)
+        {
+            all.add(communicationJsonReaderWriter.ConvertJsonFileToJavaObj(jsonData + "/communications/" + name + ".json"));
+        }
+
+        Random random = new Random(seed);
+        Analyzer.BaseType[] baseTypes = Analyzer.BaseType.values();
+        for (int i = all.size(); i < communicationCount; i++)
+        {
+            Communication communication = new Communication();
+            communication.setName("Synthetic" + i);
+            communication.setBaseType(baseTypes[random.nextInt(baseTypes.length)].getValue());
+
+            List<DropDownListItem> communicationType = new ArrayList<DropDownListItem>();
+            communicationType.add(pick(vocabulary.getCommunicationType(), random));
+            communication.setCommunicationType(communicationType);
+
+            for (int j = 0; j < getters.size(); j++)
+            {
+                setters.get(j).accept(communication, pickSome(getters.get(j).apply(vocabulary), random));
+            }
+            all.add(communication);
+        }
+
+        Environment oldEnvironment = new Environment();
+        oldEnvironment.setName(oldEnvironmentName);
+        Environment newEnvironment = new Environment();
+        newEnvironment.setName(newEnvironmentName);
+
+        for (Communication communication : all)
+        {
+            communicationJsonReaderWriter.ConvertJavaObjectJsonFile(communications.resolve(communication.getName() + ".json").toString(), communication);
+
+            if (communication.getName().equals(oldCommunicationName))
+            {
+                oldEnvironment.getSupportedCommunications().add(new DropDownListItem(1, communication.getName()));
+            }
+            else if (!communication.getBaseType().equals(Analyzer.BaseType.BASE_TYPE_MQTT.getValue()))
+            {
+                newEnvironment.getSupportedCommunications().add(new DropDownListItem(newEnvironment.getSupportedCommunications().size() + 1, communication.getName()));
+            }
+        }
+
+        JsonReaderWriter<Environment> environmentJsonReaderWriter = new JsonReaderWriter<Environment>(Environment.class);
+        environmentJsonReaderWriter.ConvertJavaObjectJsonFile(environments.resolve(oldEnvironmentName + ".json").toString(), oldEnvironment);
+        environmentJsonReaderWriter.ConvertJavaObjectJsonFile(environments.resolve(newEnvironmentName + ".json").toString(), newEnvironment);
+
+        return jsonDataPath;
+    }
+
+    private static DropDownListItem pick(List<DropDownListItem> items, Random random)
+    {
+        DropDownListItem item = items.get(random.nextInt(items.size()));
+        return new DropDownListItem(item.getId(), item.getItemName());
+    }
+
+    // At least one item, in the same order as the vocabulary.
+    private static List<DropDownListItem> pickSome(List<DropDownListItem> items, Random random)
+    {
+        List<DropDownListItem> result = new ArrayList<DropDownListItem>();
+        for (DropDownListItem item : items)
+        {
+            if (random.nextBoolean())
+            {
+                result.add(new DropDownListItem(item.getId(), item.getItemName()));
+            }
+        }
+        if (result.isEmpty())
+        {
+            result.add(pick(items, random));
+        }
+        return result;
+    }
+}
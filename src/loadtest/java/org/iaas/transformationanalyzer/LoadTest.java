@@ -0,0 +1,406 @@
+package org.iaas.transformationanalyzer;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.startup.Tomcat;
+import org.iaas.transformationanalyzer.LoadTestClient.Operation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end load test of RestServlet over HTTP. (mvn -Ploadtest, see pom.xml)
+ *
+ * RestServlet and MetricsServlet run in an embedded Tomcat on localhost, under the same context path as the war.
+ * The document base of the context has a json_data folder created by SyntheticCatalog,
+ * so the servlet finds it with getRealPath("/json_data") as in the war.
+ * The servlets are added here, web.xml is a 2.3 one and the container would not scan their @WebServlet annotations.
+ *
+ * Each client thread sends requests of the mix one after another (see LoadTestClient):
+ * - single: GET of one communication of the catalog
+ * - multi: GET of all the communications (or environments)
+ * - create: POST of a communication, one of createCount LoadTest* names
+ * - analyse: POST of the analysis from OldEnvironment/MQTT to NewEnvironment
+ *
+ * With -rate, each thread sends its part of the rate on a fixed schedule. The latency is measured from the time
+ * the request was due, not from the time it was sent. So if the server falls behind, the waiting is in the latencies too.
+ * With -rate 0, each thread sends the next request as soon as the previous one is answered.
+ *
+ * The warmup is run the same way and its results are thrown away.
+ * Then the throughput and the p50/p99/p999 latencies of each operation are printed and saved as JSON.
+ *
+ * Options (default):
+ *   -catalogSize 100     communications in the generated catalog
+ *   -threads 8           client threads
+ *   -rate 0              requests per second of all the threads together, 0 is as fast as possible
+ *   -warmup 5            seconds
+ *   -duration 30         seconds
+ *   -mix single=30,multi=5,create=5,analyse=60   weights of the operations, 0 leaves one out
+ *   -createCount 16      different communications which are created (and replaced)
+ *   -port 0              port of the container, 0 is any free port
+ *   -init name=value     init-param of RestServlet, can be repeated. e.g. -init definitionStore=embedded
+ *   -result file         the results are saved into it as JSON
+ */
+public final class LoadTest
+{
+    static final String contextPath = "/transformation-analyzer";
+
+    private int catalogSize = 100;
+    private int threads = 8;
+    private int rate = 0;
+    private int warmup = 5;
+    private int duration = 30;
+    private String mix = "single=30,multi=5,create=5,analyse=60";
+    private int createCount = 16;
+    private int port = 0;
+    private final Map<String, String> initParameters = new LinkedHashMap<String, String>();
+    private String resultFile;
+
+    // Weight of each operation, by ordinal.
+    private final int[] weights = new int[Operation.values().length];
+    private int totalWeight;
+
+
+    private LoadTest()
+    {
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        LoadTest loadTest = new LoadTest();
+        loadTest.parseArguments(args);
+        loadTest.run();
+    }
+
+
+    //region Options
+
+    private void parseArguments(String[] args)
+    {
+        for (int i = 0; i < args.length; i++)
+        {
+            String name = args[i];
+            if (i + 1 >= args.length)
+            {
+                throw new IllegalArgumentException("Option has no value: " + name);
+            }
+            String value = args[++i];
+
+            switch (name)
+            {
+                case "-catalogSize":
+                    catalogSize = parsePositive(name, value);
+                    break;
+                case "-threads":
+                    threads = parsePositive(name, value);
+                    break;
+                case "-rate":
+                    rate = parseNumber(name, value);
+                    break;
+                case "-warmup":
+                    warmup = parseNumber(name, value);
+                    break;
+                case "-duration":
+                    duration = parsePositive(name, value);
+                    break;
+                case "-mix":
+                    mix = value;
+                    break;
+                case "-createCount":
+                    createCount = parsePositive(name, value);
+                    break;
+                case "-port":
+                    port = parseNumber(name, value);
+                    break;
+                case "-init":
+                    int separator = value.indexOf('=');
+                    if (separator <= 0)
+                    {
+                        throw new IllegalArgumentException("Init parameter should be name=value: " + value);
+                    }
+                    initParameters.put(value.substring(0, separator), value.substring(separator + 1));
+                    break;
+                case "-result":
+                    resultFile = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Option is not known: " + name);
+            }
+        }
+        parseMix();
+    }
+
+    private void parseMix()
+    {
+        for (String part : mix.split(","))
+        {
+            String[] nameAndWeight = part.trim().split("=");
+            Operation operation = null;
+            for (Operation candidate : Operation.values())
+            {
+                if (candidate.getValue().equals(nameAndWeight[0]))
+                {
+                    operation = candidate;
+                }
+            }
+            if (operation == null || nameAndWeight.length != 2)
+            {
+                throw new IllegalArgumentException("Mix should be operation=weight,...: " + mix);
+            }
+            weights[operation.ordinal()] = parseNumber("-mix", nameAndWeight[1]);
+        }
+
+        totalWeight = 0;
+        for (int weight : weights)
+        {
+            totalWeight += weight;
+        }
+        if (totalWeight == 0)
+        {
+            throw new IllegalArgumentException("Mix has no operation: " + mix);
+        }
+    }
+
+    private static int parseNumber(String name, String value)
+    {
+        try
+        {
+            int result = Integer.parseInt(value.trim());
+            if (result >= 0)
+            {
+                return result;
+            }
+        }
+        catch (NumberFormatException e)
+        {
+            // Same error as a negative number.
+        }
+        throw new IllegalArgumentException("Option should be a number: " + name + " " + value);
+    }
+
+    private static int parsePositive(String name, String value)
+    {
+        int result = parseNumber(name, value);
+        if (result == 0)
+        {
+            throw new IllegalArgumentException("Option should be a positive number: " + name + " " + value);
+        }
+        return result;
+    }
+
+    private Map<String, Object> getOptions()
+    {
+        Map<String, Object> options = new LinkedHashMap<String, Object>();
+        options.put("catalogSize", catalogSize);
+        options.put("threads", threads);
+        options.put("rate", rate);
+        options.put("warmup", warmup);
+        options.put("duration", duration);
+        options.put("mix", mix);
+        options.put("createCount", createCount);
+        options.put("init", initParameters);
+        return options;
+    }
+
+    //endregion
+
+
+    private void run() throws Exception
+    {
+        Path documentBase = createDocumentBase();
+        Tomcat tomcat = startContainer(documentBase);
+        try
+        {
+            String url = "http://localhost:" + tomcat.getConnector().getLocalPort() + contextPath + "/RestServlet";
+            LoadTestClient client = createClient(url, documentBase.resolve("json_data"));
+
+            System.out.println("Load test of " + url + " " + getOptions());
+            if (warmup > 0)
+            {
+                System.out.println("Warmup, " + warmup + " s");
+                drive(client, warmup);
+            }
+
+            System.out.println("Measurement, " + duration + " s");
+            LoadTestReport report = drive(client, duration);
+            report.print(System.out);
+            if (resultFile != null)
+            {
+                report.write(new File(resultFile), getOptions());
+                System.out.println("Results are saved: " + resultFile);
+            }
+        }
+        finally
+        {
+            tomcat.stop();
+            tomcat.destroy();
+        }
+    }
+
+    // The document base of the context: json_data of the catalog, with the vocabulary and the settings of the dropdown lists as in the war.
+    // (The created communications are checked against the vocabulary, see Catalog.publish)
+    private Path createDocumentBase() throws Exception
+    {
+        Path documentBase = Files.createTempDirectory("transformation-analyzer");
+        Path jsonDataPath = Files.move(SyntheticCatalog.create(catalogSize, 42), documentBase.resolve("json_data"));
+
+        for (String file : new String[] { "communications/Default.json", "communications/settingsDropdownElements.json" })
+        {
+            Files.copy(new File(SyntheticCatalog.jsonData, file).toPath(), jsonDataPath.resolve(file));
+        }
+        return documentBase;
+    }
+
+    private Tomcat startContainer(Path documentBase) throws Exception
+    {
+        Tomcat tomcat = new Tomcat();
+        tomcat.setBaseDir(Files.createTempDirectory("tomcat").toString());
+        tomcat.setPort(port);
+
+        Context context = tomcat.addContext(contextPath, documentBase.toString());
+
+        Wrapper restServlet = Tomcat.addServlet(context, "RestServlet", new RestServlet());
+        restServlet.setAsyncSupported(true);
+        // The catalog is opened before the first request, not in it.
+        restServlet.setLoadOnStartup(1);
+        for (Map.Entry<String, String> parameter : initParameters.entrySet())
+        {
+            restServlet.addInitParameter(parameter.getKey(), parameter.getValue());
+        }
+        context.addServletMappingDecoded("/RestServlet", "RestServlet");
+
+        Tomcat.addServlet(context, "MetricsServlet", new MetricsServlet());
+        context.addServletMappingDecoded("/metrics", "MetricsServlet");
+
+        tomcat.getConnector();
+        tomcat.start();
+        return tomcat;
+    }
+
+    private LoadTestClient createClient(String url, Path jsonDataPath) throws Exception
+    {
+        List<String> communicationNames = new ArrayList<String>();
+        try (Stream<Path> files = Files.list(jsonDataPath.resolve("communications")))
+        {
+            files.map(file -> file.getFileName().toString())
+                    .filter(fileName -> fileName.endsWith(".json") && !fileName.startsWith("settingsDropdownElements"))
+                    .forEach(fileName -> communicationNames.add(fileName.substring(0, fileName.length() - ".json".length())));
+        }
+        Collections.sort(communicationNames);
+
+        // The created communications are copies of HTTP, which is always in the generated catalog.
+        JsonReaderWriter<Communication> communicationJsonReaderWriter = new JsonReaderWriter<Communication>(Communication.class);
+        Communication template = communicationJsonReaderWriter.ConvertJsonFileToJavaObj(jsonDataPath.resolve("communications/HTTP.json").toString());
+        return new LoadTestClient(url, communicationNames, template, createCount);
+    }
+
+
+    //region Run
+
+    /**
+     * Sends requests from all the threads for the given time.
+     * @param client
+     * @param seconds
+     * @return the latencies and errors.
+     * @throws Exception if a thread is interrupted.
+     */
+    private LoadTestReport drive(LoadTestClient client, int seconds) throws Exception
+    {
+        LoadTestReport report = new LoadTestReport();
+        AtomicLong failures = new AtomicLong();
+
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        // Time between two requests of one thread. 0 means no schedule.
+        long interval = rate == 0 ? 0 : TimeUnit.SECONDS.toNanos(1) * threads / rate;
+
+        List<Thread> clientThreads = new ArrayList<Thread>();
+        for (int t = 0; t < threads; t++)
+        {
+            int threadIndex = t;
+            Thread thread = new Thread(() ->
+            {
+                Random random = new Random(threadIndex);
+                // The threads are spread over the first interval, so they do not send at the same moment.
+                long due = start + interval * threadIndex / threads;
+                while (true)
+                {
+                    long now = System.nanoTime();
+                    if (interval == 0)
+                    {
+                        due = now;
+                    }
+                    if (due >= end)
+                    {
+                        break;
+                    }
+                    waitUntil(due);
+
+                    Operation operation = pickOperation(random);
+                    boolean successful;
+                    try
+                    {
+                        successful = client.send(operation, random);
+                    }
+                    catch (IOException e)
+                    {
+                        // Printed once, the rest are only counted.
+                        if (failures.getAndIncrement() == 0)
+                        {
+                            e.printStackTrace();
+                        }
+                        successful = false;
+                    }
+                    report.record(operation, System.nanoTime() - due, successful);
+                    due += interval;
+                }
+            }, "loadtest-client-" + t);
+            clientThreads.add(thread);
+            thread.start();
+        }
+
+        for (Thread thread : clientThreads)
+        {
+            thread.join();
+        }
+        report.setDurationNanos(System.nanoTime() - start);
+        return report;
+    }
+
+    private Operation pickOperation(Random random)
+    {
+        int value = random.nextInt(totalWeight);
+        Operation[] operations = Operation.values();
+        for (int i = 0; i < operations.length; i++)
+        {
+            value -= weights[i];
+            if (value < 0)
+            {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    private static void waitUntil(long due)
+    {
+        for (long remaining = due - System.nanoTime(); remaining > 0; remaining = due - System.nanoTime())
+        {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    //endregion
+}
@@ -0,0 +1,170 @@
+package org.iaas.transformationanalyzer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Sends the requests of the load test to RestServlet, the same requests as the front-end sends.
+ * Connections are kept alive by HttpURLConnection, as long as each response is read to the end.
+ *
+ * A request is successful if the status is 200 and the response has no error object ({"ERROR": ...}).
+ * Used by all the client threads at the same time.
+ */
+final class LoadTestClient
+{
+    /**
+     * Operations of the load test, with the same names as in Metrics.
+     */
+    enum Operation
+    {
+        SINGLE("single"),
+        MULTI("multi"),
+        CREATE("create"),
+        ANALYSE("analyse");
+
+        private final String value;
+
+        Operation(String value)
+        {
+            this.value = value;
+        }
+
+        public String getValue()
+        {
+            return value;
+        }
+    }
+
+    // Names of the communications created by the load test. There are a few of them, so they are replaced again and again.
+    static final String createdCommunicationPrefix = "LoadTest";
+
+    private static final byte[] errorMark = "\"ERROR\":".getBytes(StandardCharsets.UTF_8);
+
+    private final String url;
+    private final List<String> communicationNames;
+    private final byte[][] createdCommunications;
+
+
+    /**
+     * @param url of RestServlet
+     * @param communicationNames the communications of the catalog, GET single asks for one of them.
+     * @param template communication which the created ones are copied from, only the name is changed.
+     * @param createCount number of the different communications created.
+     * @throws Exception if the template cannot be converted to Json.
+     */
+    LoadTestClient(String url, List<String> communicationNames, Communication template, int createCount) throws Exception
+    {
+        this.url = url;
+        this.communicationNames = communicationNames;
+
+        JsonReaderWriter<Communication> communicationJsonReaderWriter = new JsonReaderWriter<Communication>(Communication.class);
+        createdCommunications = new byte[createCount][];
+        for (int i = 0; i < createCount; i++)
+        {
+            template.setName(createdCommunicationPrefix + i);
+            createdCommunications[i] = communicationJsonReaderWriter.ConvertJavaObjectToPrettyJson(template, template.getName());
+        }
+    }
+
+    /**
+     * Sends one request of the operation and reads the response.
+     * @param operation
+     * @param random picks the communication or folder.
+     * @return whether it is successful.
+     * @throws IOException if there is no response, e.g. the connection is refused.
+     */
+    boolean send(Operation operation, Random random) throws IOException
+    {
+        switch (operation)
+        {
+            case SINGLE:
+                String fileName = communicationNames.get(random.nextInt(communicationNames.size()));
+                return get("operation=single&folderName=communications&fileName=" + encode(fileName));
+
+            case MULTI:
+                return get("operation=multi&folderName=" + (random.nextInt(4) == 0 ? "environments" : "communications"));
+
+            case CREATE:
+                int index = random.nextInt(createdCommunications.length);
+                return post("postRequestType=create&folderName=communications&fileName=" + createdCommunicationPrefix + index, createdCommunications[index]);
+
+            case ANALYSE:
+                return post("postRequestType=analyse&env1=" + encode(SyntheticCatalog.oldEnvironmentName) + "&env2=" + encode(SyntheticCatalog.newEnvironmentName)
+                        + "&oldComm=" + encode(SyntheticCatalog.oldCommunicationName), new byte[0]);
+
+            default:
+                throw new IllegalArgumentException("Operation is not known: " + operation);
+        }
+    }
+
+    private boolean get(String query) throws IOException
+    {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url + "?" + query).openConnection();
+        return readResponse(connection);
+    }
+
+    private boolean post(String query, byte[] content) throws IOException
+    {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url + "?" + query).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
+        connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(content.length);
+        try (OutputStream output = connection.getOutputStream())
+        {
+            output.write(content);
+        }
+        return readResponse(connection);
+    }
+
+    // Reads the whole response, so the connection can be used again.
+    private static boolean readResponse(HttpURLConnection connection) throws IOException
+    {
+        int status = connection.getResponseCode();
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        try (InputStream input = status < 400 ? connection.getInputStream() : connection.getErrorStream())
+        {
+            if (input != null)
+            {
+                byte[] buffer = new byte[8192];
+                for (int count; (count = input.read(buffer)) > 0; )
+                {
+                    content.write(buffer, 0, count);
+                }
+            }
+        }
+        return status == HttpURLConnection.HTTP_OK && !isError(content.toByteArray());
+    }
+
+    // The errors are objects with an "ERROR" field, e.g. [{"ERROR":"Could not make the analysis."},{"Details":"..."}]
+    // The definitions and the analysis results never have such a field.
+    private static boolean isError(byte[] content)
+    {
+        for (int i = 0; i + errorMark.length <= content.length; i++)
+        {
+            int j = 0;
+            while (j < errorMark.length && content[i + j] == errorMark[j])
+            {
+                j++;
+            }
+            if (j == errorMark.length)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String encode(String value) throws IOException
+    {
+        return URLEncoder.encode(value, "UTF-8");
+    }
+}
@@ -0,0 +1,154 @@
+package org.iaas.transformationanalyzer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.iaas.transformationanalyzer.LoadTestClient.Operation;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and errors of one run of the load test, per operation.
+ * The latencies are kept in LatencyHistogram (the same buckets as the /metrics endpoint), so recording is cheap and thread-safe.
+ */
+final class LoadTestReport
+{
+    private static final double[] quantiles = { 0.5, 0.99, 0.999 };
+    private static final String[] quantileNames = { "p50", "p99", "p999" };
+
+    private final Map<Operation, LatencyHistogram> latencies = new EnumMap<Operation, LatencyHistogram>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<Operation, LongAdder>(Operation.class);
+    private long durationNanos;
+
+
+    LoadTestReport()
+    {
+        for (Operation operation : Operation.values())
+        {
+            latencies.put(operation, new LatencyHistogram());
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    /**
+     * Records one request. A failed request is counted in the latencies too.
+     * @param operation
+     * @param nanos latency
+     * @param successful
+     */
+    void record(Operation operation, long nanos, boolean successful)
+    {
+        latencies.get(operation).record(nanos);
+        if (!successful)
+        {
+            errors.get(operation).increment();
+        }
+    }
+
+    /**
+     * @param durationNanos how long the run has taken, the throughput is calculated with it.
+     */
+    void setDurationNanos(long durationNanos)
+    {
+        this.durationNanos = durationNanos;
+    }
+
+
+    /**
+     * Prints the results as a table, the latencies in milliseconds.
+     * @param output
+     */
+    void print(PrintStream output)
+    {
+        output.println(String.format("%-10s %10s %8s %12s %10s %10s %10s %10s", "Operation", "Requests", "Errors", "Req/s", "p50 (ms)", "p99 (ms)", "p999 (ms)", "Max (ms)"));
+        for (Map<String, Object> row : getRows())
+        {
+            output.println(String.format("%-10s %10d %8d %12.1f %10.2f %10.2f %10.2f %10.2f", row.get("operation"), row.get("requests"), row.get("errors"), row.get("throughput"),
+                    toMillis(row.get("p50")), toMillis(row.get("p99")), toMillis(row.get("p999")), toMillis(row.get("max"))));
+        }
+    }
+
+    /**
+     * Writes the results as JSON, the latencies in microseconds.
+     * @param file
+     * @param options of the run, written together with the results.
+     * @throws Exception if it cannot be written.
+     */
+    void write(File file, Map<String, Object> options) throws Exception
+    {
+        Map<String, Object> result = new LinkedHashMap<String, Object>();
+        result.put("options", options);
+        result.put("durationSeconds", durationNanos / 1e9);
+        result.put("operations", getRows());
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file, result);
+    }
+
+    // One row for each operation which has requests, then the total.
+    private List<Map<String, Object>> getRows()
+    {
+        List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>();
+        long[] totalCounts = null;
+        long totalErrors = 0;
+        for (Operation operation : Operation.values())
+        {
+            long[] counts = latencies.get(operation).getCounts();
+            long operationErrors = errors.get(operation).sum();
+            if (getTotal(counts) > 0)
+            {
+                rows.add(getRow(operation.getValue(), counts, operationErrors));
+            }
+
+            if (totalCounts == null)
+            {
+                totalCounts = counts;
+            }
+            else
+            {
+                for (int i = 0; i < counts.length; i++)
+                {
+                    totalCounts[i] += counts[i];
+                }
+            }
+            totalErrors += operationErrors;
+        }
+        rows.add(getRow("total", totalCounts, totalErrors));
+        return rows;
+    }
+
+    private Map<String, Object> getRow(String operation, long[] counts, long operationErrors)
+    {
+        long requests = getTotal(counts);
+
+        Map<String, Object> row = new LinkedHashMap<String, Object>();
+        row.put("operation", operation);
+        row.put("requests", requests);
+        row.put("errors", operationErrors);
+        row.put("throughput", durationNanos == 0 ? 0.0 : requests * 1e9 / durationNanos);
+        for (int i = 0; i < quantiles.length; i++)
+        {
+            row.put(quantileNames[i], LatencyHistogram.getValueAtQuantile(counts, quantiles[i]));
+        }
+        row.put("max", LatencyHistogram.getValueAtQuantile(counts, 1.0));
+        return row;
+    }
+
+    private static long getTotal(long[] counts)
+    {
+        long total = 0;
+        for (long count : counts)
+        {
+            total += count;
+        }
+        return total;
+    }
+
+    private static double toMillis(Object micros)
+    {
+        return ((Long) micros) / 1000.0;
+    }
+}
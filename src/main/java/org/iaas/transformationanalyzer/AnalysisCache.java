@@ -0,0 +1,156 @@
+package org.iaas.transformationanalyzer;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiPredicate;
+
+/**
+ * Results of the analyses (as Json, like Analyzer.WriteAnalysisResult writes them) by (env1, env2, oldComm, options).
+ * The options are the other parameters of the analysis which change the result (e.g. the ranking), "" if there is none.
+ * The same triples are asked again and again, so the result is made once and then sent as it is.
+ *
+ * Each entry remembers the definitions it is made from: both environments, the old communication
+ * and all the supported communications of both environments. The cache listens to the catalog:
+ * - a communication or an environment is created, edited or removed: the entries which use it are removed.
+ * - the difficulty points are changed: everything is removed.
+ *
+ * Every change increases the version of the cache. A result is only put if the version is the same as
+ * when its definitions were taken from the catalog, so a result made from an old definition is never kept.
+ *
+ * The size is bounded, the least recently used entry is removed first.
+ * Hits, misses and evictions are counted in Metrics. (cache="analysis")
+ */
+public class AnalysisCache implements Catalog.Listener
+{
+    private static final String metricName = "analysis";
+
+    // [env1, env2, oldComm, options] => entry, in access order. Guarded by this.
+    private final LinkedHashMap<List<String>, Entry> entries;
+    private final int capacity;
+    private long version;
+
+
+    /**
+     * @param capacity maximum number of results to keep.
+     */
+    public AnalysisCache(int capacity)
+    {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<List<String>, Entry>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<String>, Entry> eldest)
+            {
+                if (size() > AnalysisCache.this.capacity)
+                {
+                    Metrics.get().recordCacheEviction(metricName);
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Gets the version to pass to put. It should be taken before the definitions are taken from the catalog.
+     * @return
+     */
+    public synchronized long getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * Gets the result of the analysis.
+     * @param env1
+     * @param env2
+     * @param oldComm
+     * @param options
+     * @return null if it is not in the cache.
+     */
+    public synchronized String get(String env1, String env2, String oldComm, String options)
+    {
+        Entry entry = entries.get(Arrays.asList(env1, env2, oldComm, options));
+        if (entry == null)
+        {
+            Metrics.get().recordCacheMiss(metricName);
+            return null;
+        }
+        Metrics.get().recordCacheHit(metricName);
+        return entry.result;
+    }
+
+    /**
+     * Puts the result of the analysis, unless the catalog has changed since the version is taken.
+     * @param env1
+     * @param env2
+     * @param oldComm
+     * @param options
+     * @param communications names of all the communications the result is made from.
+     * @param version from getVersion()
+     * @param result Json
+     */
+    public synchronized void put(String env1, String env2, String oldComm, String options, Set<String> communications, long version, String result)
+    {
+        if (version != this.version)
+        {
+            return;
+        }
+        entries.put(Arrays.asList(env1, env2, oldComm, options), new Entry(communications, result));
+    }
+
+    public int getCapacity()
+    {
+        return this.capacity;
+    }
+
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+
+    //region Catalog.Listener
+
+    @Override
+    public void communicationChanged(String name, CommunicationProfile communication)
+    {
+        invalidate((key, entry) -> entry.communications.contains(name));
+    }
+
+    @Override
+    public void environmentChanged(String name, Environment environment)
+    {
+        invalidate((key, entry) -> key.get(0).equals(name) || key.get(1).equals(name));
+    }
+
+    @Override
+    public void difficultyMatrixChanged(DifficultyMatrix difficultyMatrix)
+    {
+        invalidate((key, entry) -> true);
+    }
+
+    //endregion
+
+
+    private synchronized void invalidate(BiPredicate<List<String>, Entry> predicate)
+    {
+        version++;
+        entries.entrySet().removeIf(entry -> predicate.test(entry.getKey(), entry.getValue()));
+    }
+
+    private static final class Entry
+    {
+        final Set<String> communications;
+        final String result;
+
+        Entry(Set<String> communications, String result)
+        {
+            this.communications = communications;
+            this.result = result;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.iaas.transformationanalyzer;
+
+/**
+ * One analysis of a batch request. (postRequestType=analyseBatch)
+ * The fields are the same as the parameters of a single analysis request.
+ *
+ * Example : {"env1": "OldEnvironment", "env2": "NewEnvironment", "oldComm": "MQTT"}
+ */
+public class AnalysisRequest
+{
+    private String env1;
+    private String env2;
+    private String oldComm;
+
+    public AnalysisRequest()
+    {
+
+    }
+
+    public AnalysisRequest(String env1, String env2, String oldComm)
+    {
+        this.env1 = env1;
+        this.env2 = env2;
+        this.oldComm = oldComm;
+    }
+
+    public String getEnv1()
+    {
+        return this.env1;
+    }
+
+    public void setEnv1(String env1)
+    {
+        this.env1 = env1;
+    }
+
+    public String getEnv2()
+    {
+        return this.env2;
+    }
+
+    public void setEnv2(String env2)
+    {
+        this.env2 = env2;
+    }
+
+    public String getOldComm()
+    {
+        return this.oldComm;
+    }
+
+    public void setOldComm(String oldComm)
+    {
+        this.oldComm = oldComm;
+    }
+
+    /**
+     * Returns whether all the parameters are given.
+     */
+    public boolean hasAllParameters()
+    {
+        return this.env1 != null && this.env2 != null && this.oldComm != null;
+    }
+}
@@ -11,7 +11,9 @@ public class AnalysisResult
     private String difficulty;
     private int difficultyPoint;
     private List<String> possibleLosses;
-    private List<String> difficultyCalcHistory;
+
+    // Only if it is asked for, see Analyzer.setExplain.
+    private DifficultyExplanation explanation;
 
 
     public AnalysisResult()
@@ -86,13 +88,13 @@ public class AnalysisResult
     }
 
 
-    public List<String> getDifficultyCalcHistory()
+    public DifficultyExplanation getExplanation()
     {
-        return this.difficultyCalcHistory;
+        return this.explanation;
     }
 
-    public void setDifficultyCalcHistory(List<String> difficultyCalcHistory)
+    public void setExplanation(DifficultyExplanation explanation)
     {
-        this.difficultyCalcHistory = difficultyCalcHistory;
+        this.explanation = explanation;
     }
 }
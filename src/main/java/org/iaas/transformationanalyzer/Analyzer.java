@@ -1,206 +1,307 @@
 
 package org.iaas.transformationanalyzer;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.iaas.transformationanalyzer.CommunicationProfile.Dimension;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.stream.Collectors;
 
 /**
  * Analyses the transformation capabilities
+ *
+ * Works on the compiled profiles of the communications. See CommunicationProfile.
+ * The dropdown lists are compared with bitwise operations on their masks.
+ *
+ * The supported communications of a large environment can be scored in parallel, see setParallelScoring.
  */
 public class Analyzer
 {
     private Environment oldEnvironment;
     private Environment newEnvironment;
-    private Communication oldCommunication;
-    private List<Communication> oldEnvironmentSupportedComms;
-    private List<Communication> newEnvironmentSupportedComms;
+    private CommunicationProfile oldCommunication;
+    private List<CommunicationProfile> oldEnvironmentSupportedComms;
+    private List<CommunicationProfile> newEnvironmentSupportedComms;
+    private TransformationMatrix transformationMatrix;
 
-    Analyzer(Environment oldEnvironment, Environment newEnvironment, Communication oldCommunication, List<Communication> oldEnvironmentSupportedComms, List<Communication> newEnvironmentSupportedComms)
+    // Set by setRanking(), null if all the results are shown.
+    private int rankingCount;
+    private RankingWeights rankingWeights;
+
+    // Set by setParallelScoring(), 0 if the candidates are scored one after another.
+    private int parallelThreshold;
+
+    // Set by setExplain()
+    private boolean explain;
+
+    // Set by Analyse()
+    private TransformationRequiredType transformationRequiredType;
+    private List<AnalysisResult> analysisResults;
+    private AnalysisResult suggestedCommunicationResult;
+    // Best of the ranking when the transformation is required, see getSuggestedResult.
+    private AnalysisResult bestResult;
+
+    Analyzer(Environment oldEnvironment, Environment newEnvironment, CommunicationProfile oldCommunication, List<CommunicationProfile> oldEnvironmentSupportedComms, List<CommunicationProfile> newEnvironmentSupportedComms, TransformationMatrix transformationMatrix)
     {
         this.oldEnvironment = oldEnvironment;
         this.newEnvironment = newEnvironment;
         this.oldCommunication = oldCommunication;
-        this.newEnvironmentSupportedComms = oldEnvironmentSupportedComms;
+        this.oldEnvironmentSupportedComms = oldEnvironmentSupportedComms;
         this.newEnvironmentSupportedComms = newEnvironmentSupportedComms;
+        this.transformationMatrix = transformationMatrix;
     }
 
 
     /**
-     * Gets the result of the analysis and returns to the servlet
-     * @return
+     * Shows only the best k results, in the order of the ranking. (See rank)
+     * Should be called before Analyse.
+     * @param k
+     * @param weights
      */
-    public JSONArray GetAnalysisResult()
+    public void setRanking(int k, RankingWeights weights)
     {
-        // Set the result. Make a Json Array so that the order will be preserved.
-        // Simple Json object does not preserve the order of the contents.
-        JSONArray jsonArrayFinalResult = new JSONArray();
-
-        // Holds the information about whether the transformation required or not, possible or not and the supported communications.
-        JSONArray jsonArrayHeader = new JSONArray();
-
-        // Holds the information about the results of the analysis for each communication
-        JSONArray jsonArrayAnalysisResForEachComm = new JSONArray();
-
+        this.rankingCount = k;
+        this.rankingWeights = weights;
+    }
 
+    /**
+     * Scores the supported communications of the new environment in parallel, on the common fork/join pool,
+     * if there are at least threshold of them. Smaller parts are scored one after another.
+     * The results are in the same order as without it.
+     * Should be called before Analyse.
+     * @param threshold 0 to score them one after another. (Default)
+     */
+    public void setParallelScoring(int threshold)
+    {
+        this.parallelThreshold = threshold;
+    }
 
-        // Holds the information about the results of the analysis for each communication
-        JSONArray jsonArrayAnalysisResForSuggestedComm = new JSONArray();
+    /**
+     * Shows how the difficulty of each result is calculated. (See DifficultyExplanation)
+     * The results are calculated again for this, they are not taken from the transformation matrix.
+     * Should be called before Analyse.
+     * @param explain
+     */
+    public void setExplain(boolean explain)
+    {
+        this.explain = explain;
+    }
 
+    /**
+     * Makes the analysis. The result can be written with WriteAnalysisResult.
+     * (It is separated, so that an error of the analysis can be sent before anything is written)
+     */
+    public void Analyse()
+    {
+        // Find whether the transformation is required or not
+        transformationRequiredType = getTransformationRequiredOrNot();
 
-        // First show the supported communications of the new environment
-        List<String> newEnvSupportedCommsNames = newEnvironmentSupportedComms.stream().map(Communication::getName).collect(Collectors.toList());
-        JSONObject newEnvSupportedCommsJson = new JSONObject().put("Supported comms. of the new env.", String.join(", ", newEnvSupportedCommsNames));
-        jsonArrayHeader.put(newEnvSupportedCommsJson);
+        // The results of the analysis for each communication (shown only if transformation is required)
+        analysisResults = new ArrayList<AnalysisResult>();
 
+        // Suggested communication for the application level transformation
+        suggestedCommunicationResult = null;
+        bestResult = null;
 
-        // Find whether the transformation is required or not
-        TransformationRequiredType transformationRequiredType = getTransformationRequiredOrNot();
-        JSONObject requirementJson = new JSONObject().put("Is transformation required?", transformationRequiredType.getValue());
-        jsonArrayHeader.put(requirementJson);
+        // Transformation is required, so find whether it is possible or not
+        // The candidates are scored once, the best one is kept for getSuggestedResult.
+        if(transformationRequiredType == TransformationRequiredType.TRANSFORMATION_REQUIRED)
+        {
+            List<AnalysisResult> results = setAnalysisResult();
+            if(rankingWeights != null)
+            {
+                // Only the best candidates, in the order of the ranking.
+                List<AnalysisResult> ranked = rank(results, Math.max(rankingCount, 1), rankingWeights);
+                bestResult = ranked.isEmpty() ? null : ranked.get(0);
+                analysisResults = rankingCount < ranked.size() ? new ArrayList<AnalysisResult>(ranked.subList(0, rankingCount)) : ranked;
+            }
+            else
+            {
+                // Ranked before sorting, the order of the new environment breaks the ties.
+                List<AnalysisResult> best = rank(results, 1, new RankingWeights());
+                bestResult = best.isEmpty() ? null : best.get(0);
+
+                // Instead of showing the suggested communication, show all the results and let user to pick
+                // The results are sorted according to the difficulty points.
+                analysisResults = results;
+                Collections.sort(analysisResults, Comparator.comparingInt(AnalysisResult::getDifficultyPoint));
+            }
+        }
 
-        // if it is a brand new comm, then warn the user.
-        if(oldCommunication.getBaseType().equals(BaseType.BASE_TYPE_NEW.getValue()))
+        // Transformation is required for application level. There might be possible loss.
+        else if(transformationRequiredType == TransformationRequiredType.TRANSFORMATION_REQUIRED_ONLY_APP_LEVEL)
         {
-            String notice = "Previos communication is a brand new communication protocol, hence the results are just guesses!";
-            JSONObject noticeJson = new JSONObject().put("Notice", notice);
-            jsonArrayHeader.put(noticeJson);
+            // Suggested communication will be the same base type with variation for sure.
+            List<AnalysisResult> suggested = rank(1, rankingWeights != null ? rankingWeights : new RankingWeights());
+            suggestedCommunicationResult = suggested.isEmpty() ? null : suggested.get(0);
         }
+    }
 
-        // Transformation is required, so find whether it is possible or not
+    /**
+     * Gets the communication to transform to. (Analyse should be called first)
+     * - Transformation is required: the best one of the ranking (with the weights of setRanking, if it is called)
+     * - Only application level: the suggested communication of the same base type.
+     * @return null if transformation is not required or there is no supported communication.
+     */
+    public AnalysisResult getSuggestedResult()
+    {
         if(transformationRequiredType == TransformationRequiredType.TRANSFORMATION_REQUIRED)
         {
-            List<AnalysisResult> analysisResults = setAnalysisResult();
+            return bestResult;
+        }
+        return suggestedCommunicationResult;
+    }
 
-            // Instead of showing the suggested communication, show all the results and let user to pick
+    /**
+     * Gets whether the transformation is required, as it is shown to the user. (Analyse should be called first)
+     */
+    public String getTransformationRequired()
+    {
+        return transformationRequiredType.getValue();
+    }
 
-            // CURRENTLY NOT USED
-            AnalysisResult suggestedCommunicationResult = getSuggestedCommunicationType(analysisResults);
-            jsonArrayAnalysisResForSuggestedComm = getAnalysisJsonFromResult(suggestedCommunicationResult);
+    /**
+     * Returns whether the new environment supports the old communication. (Analyse should be called first)
+     */
+    public boolean isTransformationNotRequired()
+    {
+        return transformationRequiredType == TransformationRequiredType.TRANSFORMATION_NOT_REQUIRED;
+    }
 
-            for (AnalysisResult analysisResult: analysisResults)
-            {
-                jsonArrayAnalysisResForEachComm.put(getAnalysisJsonFromResult(analysisResult));
-            }
-        }
+    public CommunicationProfile getOldCommunication()
+    {
+        return this.oldCommunication;
+    }
 
-        // Transformation is required for application level. There might be possible loss.
-        else if(transformationRequiredType == TransformationRequiredType.TRANSFORMATION_REQUIRED_ONLY_APP_LEVEL)
+    /**
+     * Writes the result of the analysis with the given generator, as a Json array.
+     * The result is written part by part, it is never built in memory as a whole.
+     *
+     * @param generator
+     * @throws IOException if it cannot be written.
+     */
+    public void WriteAnalysisResult(JsonGenerator generator) throws IOException
+    {
+        if(transformationRequiredType == null)
         {
-            List<AnalysisResult> analysisResults = setAnalysisResult();
-            AnalysisResult suggestedCommunicationResult = getSuggestedCommunicationType(analysisResults);
+            Analyse();
+        }
 
-            // Suggested communication will be the same base type with variation for sure.
-            if(suggestedCommunicationResult != null)
-            {
-                // For debugging purposes
-                //JSONObject diffPointJson = new JSONObject().put("Points", suggestedCommunicationResult.getDifficultyPoint());
-                //jsonArrayResult.put(diffPointJson);
+        // Array keeps the order of the contents.
+        // [header, results for each comm.]
+        generator.writeStartArray();
 
-                // App-level change is required but there might be some possible losses.
-                JSONObject getPossibleLossJson = new JSONObject().put("Possible losses", String.join(", ", suggestedCommunicationResult.getPossibleLosses()));
-                jsonArrayHeader.put(getPossibleLossJson);
+        // Holds the information about whether the transformation required or not, possible or not and the supported communications.
+        generator.writeStartArray();
 
+        // First show the supported communications of the new environment
+        List<String> newEnvSupportedCommsNames = newEnvironmentSupportedComms.stream().map(CommunicationProfile::getName).collect(Collectors.toList());
+        writeLine(generator, "Supported comms. of the new env.", String.join(", ", newEnvSupportedCommsNames));
 
-                // Explain some additional info
-                String info = "Since both of the environments has the same communication protocol with different variations, the application might need an update.";
-                info += String.format(" (%s and %s, both has the same base protocol that is %s)",  oldCommunication.getName(), suggestedCommunicationResult.getName(), oldCommunication.getBaseType());
-                info += " There is no need for protocol transformation. Nevertheless, there might be some limitations.";
-                JSONObject getAdditionalInfoJson = new JSONObject().put("Additional note", info);
-                jsonArrayHeader.put(getAdditionalInfoJson);
-            }
+        writeLine(generator, "Is transformation required?", transformationRequiredType.getValue());
+
+        // if it is a brand new comm, then warn the user.
+        if(oldCommunication.getBaseType().equals(BaseType.BASE_TYPE_NEW.getValue()))
+        {
+            writeLine(generator, "Notice", "Previos communication is a brand new communication protocol, hence the results are just guesses!");
+        }
+
+        if(suggestedCommunicationResult != null)
+        {
+            // App-level change is required but there might be some possible losses.
+            writeLine(generator, "Possible losses", String.join(", ", suggestedCommunicationResult.getPossibleLosses()));
+
+            // Explain some additional info
+            String info = "Since both of the environments has the same communication protocol with different variations, the application might need an update.";
+            info += String.format(" (%s and %s, both has the same base protocol that is %s)",  oldCommunication.getName(), suggestedCommunicationResult.getName(), oldCommunication.getBaseType());
+            info += " There is no need for protocol transformation. Nevertheless, there might be some limitations.";
+            writeLine(generator, "Additional note", info);
         }
 
         // Transformation is not required, no need to give further explanation
-        else
+        if(transformationRequiredType == TransformationRequiredType.TRANSFORMATION_NOT_REQUIRED)
         {
-            // There is nothing to do here.
-            String info = "New environment supports the previous communication.";
-            JSONObject getAdditionalInfoJson = new JSONObject().put("Additional note", info);
-            jsonArrayHeader.put(getAdditionalInfoJson);
+            writeLine(generator, "Additional note", "New environment supports the previous communication.");
         }
 
-        // Put all the results to the final result
-        // First add header, which has basic info
-        jsonArrayFinalResult.put(jsonArrayHeader);
-        if(jsonArrayAnalysisResForEachComm.length() > 0)
+        boolean showResults = transformationRequiredType == TransformationRequiredType.TRANSFORMATION_REQUIRED && analysisResults.size() > 0;
+        if(showResults)
         {
-            JSONObject presentResultsJson = new JSONObject().put("The analysis results for each supported comms. are as follows", " ");
-            jsonArrayHeader.put(presentResultsJson);
-            // Add the analysis results to the final list.
-            jsonArrayFinalResult.put(jsonArrayAnalysisResForEachComm);
+            writeLine(generator, "The analysis results for each supported comms. are as follows", " ");
         }
+        generator.writeEndArray();
 
-        // NOT USED
-        // Suggested communication is not shown.
-        //jsonArrayFinalResult.put(jsonArrayAnalysisResForSuggestedComm);
+        // Holds the information about the results of the analysis for each communication
+        if(showResults)
+        {
+            generator.writeStartArray();
+            for (AnalysisResult analysisResult: analysisResults)
+            {
+                writeAnalysisResult(generator, analysisResult);
+            }
+            generator.writeEndArray();
+        }
 
-        // return the final list
-        return jsonArrayFinalResult;
+        generator.writeEndArray();
     }
 
 
-    private JSONArray getAnalysisJsonFromResult(AnalysisResult result)
+    private void writeAnalysisResult(JsonGenerator generator, AnalysisResult result) throws IOException
     {
-        JSONArray jsonResult = new JSONArray();
+        generator.writeStartArray();
         if(result != null)
         {
-            // get name
-            String name = result.getName();
-            JSONObject nameJson = new JSONObject().put("Communication protocol", name);
-            jsonResult.put(nameJson);
+            writeLine(generator, "Communication protocol", result.getName());
 
             // if it is a brand new comm, then warn the user.
             if(result.getBaseType().equals(BaseType.BASE_TYPE_NEW.getValue()))
             {
-                String notice = "This is a brand new communication protocol, hence the results are just guesses!";
-                JSONObject noticeJson = new JSONObject().put("Notice", notice);
-                jsonResult.put(noticeJson);
+                writeLine(generator, "Notice", "This is a brand new communication protocol, hence the results are just guesses!");
             }
 
             TransformationPossibility transformationPossibility = result.getPossibility() ? TransformationPossibility.TRANSFORMATION_POSSIBLE : TransformationPossibility.TRANSFORMATION_NOT_POSSIBLE;
-            JSONObject possibilityJson = new JSONObject().put("Is transformation possible?", transformationPossibility.getValue());
-            jsonResult.put(possibilityJson);
+            writeLine(generator, "Is transformation possible?", transformationPossibility.getValue());
 
             // Transformation is possible, so find the suggested type and get the find possible losses
             if(transformationPossibility == TransformationPossibility.TRANSFORMATION_POSSIBLE)
             {
-                // For debugging purposes
-                /*
-                JSONObject diffPointJson = new JSONObject().put("Points", suggestedCommunicationResult.getDifficultyPoint());
-                jsonArrayResult.put(diffPointJson);
-
-                JSONObject diffPointHist = new JSONObject().put("History", String.join(" - ", suggestedCommunicationResult.getDifficultyCalcHistory()));
-                jsonArrayResult.put(diffPointHist);
-                */
-
-                // get difficulty
-                String difficulty = result.getDifficulty();
-                JSONObject difficultyJson = new JSONObject().put("Difficulty", difficulty);
-                jsonResult.put(difficultyJson);
-
-                // get the possible loss
-                String possibleLoss = String.join(", ", result.getPossibleLosses());
-                JSONObject getPossibleLossJson = new JSONObject().put("Possible losses", possibleLoss);
-                jsonResult.put(getPossibleLossJson);
+                writeLine(generator, "Difficulty", result.getDifficulty());
+                writeLine(generator, "Possible losses", String.join(", ", result.getPossibleLosses()));
             }
 
             // Transformation is not possible
             else
             {
                 // Do nothing here, see the paper for details and why it is not possible.
-                String info = "Please see the paper for details why it is not possible.";
-                JSONObject getAdditionalInfoJson = new JSONObject().put("Additional note", info);
-                jsonResult.put(getAdditionalInfoJson);
+                writeLine(generator, "Additional note", "Please see the paper for details why it is not possible.");
+            }
+
+            // Only if it is asked for, see setExplain.
+            if(result.getExplanation() != null)
+            {
+                writeLine(generator, "Points", String.valueOf(result.getDifficultyPoint()));
+                result.getExplanation().write(generator);
             }
         }
+        generator.writeEndArray();
+    }
 
-        return jsonResult;
+    /**
+     * Writes one line of the result. {"name": "value"}
+     */
+    static void writeLine(JsonGenerator generator, String name, String value) throws IOException
+    {
+        generator.writeStartObject();
+        generator.writeStringField(name, value);
+        generator.writeEndObject();
     }
 
     /**
@@ -210,7 +311,7 @@ public class Analyzer
     private TransformationRequiredType getTransformationRequiredOrNot()
     {
         boolean baseTypeFound = false;
-        for (Communication supportedCommItem : this.newEnvironmentSupportedComms)
+        for (CommunicationProfile supportedCommItem : this.newEnvironmentSupportedComms)
         {
             if(oldCommunication.getBaseType().equals(supportedCommItem.getBaseType()) && !oldCommunication.getBaseType().equals("NEW"))
             {
@@ -231,224 +332,316 @@ public class Analyzer
      * Sets the analysis result for each communication type
      * Is it possible, difficulty, possible losses
      *
-     * @return
+     * The result of each pair is taken from the transformation matrix, it is calculated only once. See analysePair.
+     * (Above the limit of the matrix, each one is calculated here. Then it is worth scoring them in parallel)
+     *
+     * @return in the order of the supported communications.
      */
     private List<AnalysisResult> setAnalysisResult()
     {
-        List<AnalysisResult> results = new ArrayList<AnalysisResult>();
-        Communication oldComm = this.oldCommunication;
+        // Each part fills its own range of the array, so the order does not depend on which part finishes first.
+        AnalysisResult[] results = new AnalysisResult[newEnvironmentSupportedComms.size()];
+        if (parallelThreshold > 0 && results.length >= parallelThreshold)
+        {
+            ForkJoinPool.commonPool().invoke(new ScoringTask(results, 0, results.length));
+        }
+        else
+        {
+            score(results, 0, results.length);
+        }
+        return new ArrayList<AnalysisResult>(Arrays.asList(results));
+    }
 
-        for (Communication newComm: newEnvironmentSupportedComms)
+    private void score(AnalysisResult[] results, int from, int to)
+    {
+        for (int i = from; i < to; i++)
         {
-            AnalysisResult res = new AnalysisResult();
-            List<String> diffCalcHist = new ArrayList<String>();
+            results[i] = explain
+                    ? analysePair(this.oldCommunication, newEnvironmentSupportedComms.get(i), transformationMatrix.getDifficultyMatrix(), new DifficultyExplanation())
+                    : transformationMatrix.getResult(this.oldCommunication, newEnvironmentSupportedComms.get(i));
+        }
+    }
 
-            // initial difficulty points
-            int diffPoint = 0;
-            boolean analyzingNewType = false;
-            if(oldComm.getBaseType().equals(BaseType.BASE_TYPE_NEW.getValue()) || newComm.getBaseType().equals(BaseType.BASE_TYPE_NEW.getValue()))
-            {
-                // if one of them NEW type
-                // List will contain one element for sure
-                if(oldComm.getCommunicationType().size() == 1 && newComm.getCommunicationType().size() == 1)
-                    diffPoint = difficultyPointsOfUnknownTypes(oldComm.getCommunicationType().get(0).getItemName(), newComm.getCommunicationType().get(0).getItemName());
-                analyzingNewType = true;
-            }
-            else
-            {
-                // both are customized from a base type
-                diffPoint = difficultyPointsOfKnownTypes(oldComm.getBaseType(), newComm.getBaseType());
-                analyzingNewType = false;
-            }
+    /**
+     * Scores a range of the supported communications. It is split into halves until it is smaller than the threshold.
+     */
+    private final class ScoringTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
 
+        private final AnalysisResult[] results;
+        private final int from;
+        private final int to;
 
-            // To see the history of how the difficulty is calculated. Mainly used for debugging
-            diffCalcHist.add("Comm: " + newComm.getName());
-            diffCalcHist.add("Start: " + diffPoint);
-
-            // Compare Comm Pattern
-            List<String> commPatternDiff = findDropDownListsDifferences(oldComm.getCommunicationPattern(), newComm.getCommunicationPattern(), DropDownTypes.DROP_DOWN_COMMUNICATION_PATTERN);
-            // Increase the difficulty if some patterns do not exists in the new one
-            int commPatternAdded = DifficultyPointsForDropDowns.DIFFICULTY_POINTS_COMM_PATTERN.getValue() * commPatternDiff.size();
-            diffPoint += commPatternAdded;
-            diffCalcHist.add("CommPattern: " + commPatternAdded);
-
-            // Compare RequestType
-            List<String> reqTypeDiff = findDropDownListsDifferences(oldComm.getRequestType(), newComm.getRequestType(), DropDownTypes.DROP_DOWN_REQUEST_TYPE);
-            // Increase the difficulty if some request types do not exists in the new one
-            int reqTypeAdded = reqTypeDiff.size() > 0 ? DifficultyPointsForDropDowns.DIFFICULTY_POINTS_REQ_TYPE.getValue() : 0;
-            diffPoint += reqTypeAdded;
-            diffCalcHist.add("ReqType: " + reqTypeAdded);
-
-            // Compare PayloadType
-            List<String> payloadTypeDiff = findDropDownListsDifferences(oldComm.getPayloadType(), newComm.getPayloadType(), DropDownTypes.DROP_DOWN_PAYLOAD_TYPE);
-            int payloadTypeAdded = reqTypeDiff.size() > 0 ? DifficultyPointsForDropDowns.DIFFICULTY_POINTS_PAYLOAD_TYPE.getValue() : 0;
-            diffPoint += payloadTypeAdded;
-            diffCalcHist.add("PayloadType: " + payloadTypeAdded);
-
-            // Compare HeaderSize
-            int headerSizeAdded = 0;
-            if(dropDownListContainsValue(oldComm.getHeaderSize(), HeaderSize.HEADER_SIZE_LARGE.getValue()))
-            {
-                headerSizeAdded =  DifficultyPointsForDropDowns.DIFFICULTY_POINTS_HEADER_SIZE.getValue() * 3;
-            }
-            else if(dropDownListContainsValue(oldComm.getHeaderSize(), HeaderSize.HEADER_SIZE_MEDIUM.getValue()))
-            {
-                headerSizeAdded =  DifficultyPointsForDropDowns.DIFFICULTY_POINTS_HEADER_SIZE.getValue() * 2;
-            }
-            else if(dropDownListContainsValue(oldComm.getHeaderSize(), HeaderSize.HEADER_SIZE_SMALL.getValue()))
+        ScoringTask(AnalysisResult[] results, int from, int to)
+        {
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            // (A single one cannot be split)
+            if (to - from < parallelThreshold || to - from < 2)
             {
-                headerSizeAdded =  DifficultyPointsForDropDowns.DIFFICULTY_POINTS_HEADER_SIZE.getValue() * 2;
+                score(results, from, to);
+                return;
             }
-            diffPoint += headerSizeAdded;
-            diffCalcHist.add("HeaderSize: " + headerSizeAdded);
 
+            int middle = (from + to) >>> 1;
+            invokeAll(new ScoringTask(results, from, middle), new ScoringTask(results, middle, to));
+        }
+    }
 
-            // Now find possible losses
-            List<String> possibleLosses = new ArrayList<String>();
-            List<String> headerSizeDiff = findDropDownListsDifferences(oldComm.getHeaderSize(), newComm.getHeaderSize(), DropDownTypes.DROP_DOWN_HEADER_SIZE);
-            List<String> securityDiff = findDropDownListsDifferences(oldComm.getSecurityType(), newComm.getSecurityType(), DropDownTypes.DROP_DOWN_SECURITY_TYPE);
-            List<String> authDiff = findDropDownListsDifferences(oldComm.getAuthenticationType(), newComm.getAuthenticationType(), DropDownTypes.DROP_DOWN_AUTHENTICATION_TYPE);
-            List<String> qosDiff = findDropDownListsDifferences(oldComm.getQosType(), newComm.getQosType(), DropDownTypes.DROP_DOWN_QOS_TYPE);
+    /**
+     * Analyses the transformation from one communication to another.
+     * Is it possible, difficulty, possible losses
+     *
+     * The result depends only on the two communications and the difficulty points, nothing else.
+     * That's why it can be calculated once and reused by all the analyses. (See TransformationMatrix)
+     * The result should not be changed after it is returned.
+     *
+     * @param oldComm
+     * @param newComm
+     * @param difficultyMatrix
+     * @return
+     */
+    static AnalysisResult analysePair(CommunicationProfile oldComm, CommunicationProfile newComm, DifficultyMatrix difficultyMatrix)
+    {
+        return analysePair(oldComm, newComm, difficultyMatrix, null);
+    }
 
+    /**
+     * Same as above, and records the points of each rule into the explanation.
+     * Without an explanation only the points are calculated, nothing is recorded. (This is the path of all the usual analyses)
+     *
+     * @param oldComm
+     * @param newComm
+     * @param difficultyMatrix
+     * @param explanation null if it is not asked for.
+     * @return the result, with the explanation.
+     */
+    static AnalysisResult analysePair(CommunicationProfile oldComm, CommunicationProfile newComm, DifficultyMatrix difficultyMatrix, DifficultyExplanation explanation)
+    {
+        AnalysisResult res = new AnalysisResult();
 
-            if(analyzingNewType)
-            {
-                // most probably there will be header losses
-                possibleLosses.add("Some header fields");
-            }
-            else
-            {
-                // the followings has no header field losses
-                boolean stompToAmqp = oldComm.getBaseType().equals(BaseType.BASE_TYPE_STOMP.getValue()) && newComm.getBaseType().equals(BaseType.BASE_TYPE_AMQP.getValue());
-                boolean mqttToAmqp = oldComm.getBaseType().equals(BaseType.BASE_TYPE_MQTT.getValue()) && newComm.getBaseType().equals(BaseType.BASE_TYPE_AMQP.getValue());
-                boolean coapToHttp = oldComm.getBaseType().equals(BaseType.BASE_TYPE_COAP.getValue()) && newComm.getBaseType().equals(BaseType.BASE_TYPE_HTTP.getValue());
-                if(headerSizeDiff.size() > 0 || !(stompToAmqp || mqttToAmqp || coapToHttp))
-                    possibleLosses.add("Some header fields");
-            }
+        // initial difficulty points
+        int diffPoint = 0;
+        boolean analyzingNewType = false;
+        if(oldComm.getBaseType().equals(BaseType.BASE_TYPE_NEW.getValue()) || newComm.getBaseType().equals(BaseType.BASE_TYPE_NEW.getValue()))
+        {
+            // if one of them NEW type
+            // List will contain one element for sure
+            if(oldComm.getSize(Dimension.COMMUNICATION_TYPE) == 1 && newComm.getSize(Dimension.COMMUNICATION_TYPE) == 1)
+                diffPoint = difficultyPointsOfUnknownTypes(oldComm, newComm, difficultyMatrix);
+            analyzingNewType = true;
+        }
+        else
+        {
+            // both are customized from a base type
+            diffPoint = difficultyPointsOfKnownTypes(oldComm, newComm, difficultyMatrix);
+            analyzingNewType = false;
+        }
+
+
+        // To see how the difficulty is calculated. (explain=true)
+        if(explanation != null)
+            explanation.add(DifficultyExplanation.Rule.BASE_TYPES, diffPoint);
+
+        // Compare Comm Pattern
+        int commPatternDiff = findDropDownListsDifferences(oldComm, newComm, Dimension.COMMUNICATION_PATTERN);
+        // Increase the difficulty if some patterns do not exists in the new one
+        int commPatternAdded = DifficultyPointsForDropDowns.DIFFICULTY_POINTS_COMM_PATTERN.getValue() * commPatternDiff;
+        diffPoint += commPatternAdded;
+        if(explanation != null)
+            explanation.add(DifficultyExplanation.Rule.COMM_PATTERN, commPatternAdded);
+
+        // Compare RequestType
+        int reqTypeDiff = findDropDownListsDifferences(oldComm, newComm, Dimension.REQUEST_TYPE);
+        // Increase the difficulty if some request types do not exists in the new one
+        int reqTypeAdded = reqTypeDiff > 0 ? DifficultyPointsForDropDowns.DIFFICULTY_POINTS_REQ_TYPE.getValue() : 0;
+        diffPoint += reqTypeAdded;
+        if(explanation != null)
+            explanation.add(DifficultyExplanation.Rule.REQUEST_TYPE, reqTypeAdded);
+
+        // Compare PayloadType
+        int payloadTypeDiff = findDropDownListsDifferences(oldComm, newComm, Dimension.PAYLOAD_TYPE);
+        int payloadTypeAdded = reqTypeDiff > 0 ? DifficultyPointsForDropDowns.DIFFICULTY_POINTS_PAYLOAD_TYPE.getValue() : 0;
+        diffPoint += payloadTypeAdded;
+        if(explanation != null)
+            explanation.add(DifficultyExplanation.Rule.PAYLOAD_TYPE, payloadTypeAdded);
+
+        // Compare HeaderSize
+        int headerSizeAdded = 0;
+        if(oldComm.containsName(Dimension.HEADER_SIZE, HeaderSize.HEADER_SIZE_LARGE.getValue()))
+        {
+            headerSizeAdded =  DifficultyPointsForDropDowns.DIFFICULTY_POINTS_HEADER_SIZE.getValue() * 3;
+        }
+        else if(oldComm.containsName(Dimension.HEADER_SIZE, HeaderSize.HEADER_SIZE_MEDIUM.getValue()))
+        {
+            headerSizeAdded =  DifficultyPointsForDropDowns.DIFFICULTY_POINTS_HEADER_SIZE.getValue() * 2;
+        }
+        else if(oldComm.containsName(Dimension.HEADER_SIZE, HeaderSize.HEADER_SIZE_SMALL.getValue()))
+        {
+            headerSizeAdded =  DifficultyPointsForDropDowns.DIFFICULTY_POINTS_HEADER_SIZE.getValue() * 2;
+        }
+        diffPoint += headerSizeAdded;
+        if(explanation != null)
+            explanation.add(DifficultyExplanation.Rule.HEADER_SIZE, headerSizeAdded);
 
 
-            if(reqTypeDiff.size() > 0)
-                possibleLosses.add("Being asynchronous");
-            if(securityDiff.size() > 0)
-                possibleLosses.add("Security");
-            if(authDiff.size() > 0)
-                possibleLosses.add("Authentication");
-            if(qosDiff.size() > 0)
-                possibleLosses.add("QoS");
+        // Now find possible losses
+        List<String> possibleLosses = new ArrayList<String>();
+        int headerSizeDiff = findDropDownListsDifferences(oldComm, newComm, Dimension.HEADER_SIZE);
+        int securityDiff = findDropDownListsDifferences(oldComm, newComm, Dimension.SECURITY_TYPE);
+        int authDiff = findDropDownListsDifferences(oldComm, newComm, Dimension.AUTHENTICATION_TYPE);
+        int qosDiff = findDropDownListsDifferences(oldComm, newComm, Dimension.QOS_TYPE);
 
 
-            // set the difficulty level
-            String difficulty = "";
-            if(diffPoint > DifficultyLevels.DIFFICULTY_LEVEL_NOT_POSSIBLE.getThresholdVal())
-                difficulty = DifficultyLevels.DIFFICULTY_LEVEL_NOT_POSSIBLE.getValue();
+        if(analyzingNewType)
+        {
+            // most probably there will be header losses
+            possibleLosses.add("Some header fields");
+        }
+        else
+        {
+            // the followings has no header field losses
+            boolean stompToAmqp = oldComm.getBaseType().equals(BaseType.BASE_TYPE_STOMP.getValue()) && newComm.getBaseType().equals(BaseType.BASE_TYPE_AMQP.getValue());
+            boolean mqttToAmqp = oldComm.getBaseType().equals(BaseType.BASE_TYPE_MQTT.getValue()) && newComm.getBaseType().equals(BaseType.BASE_TYPE_AMQP.getValue());
+            boolean coapToHttp = oldComm.getBaseType().equals(BaseType.BASE_TYPE_COAP.getValue()) && newComm.getBaseType().equals(BaseType.BASE_TYPE_HTTP.getValue());
+            if(headerSizeDiff > 0 || !(stompToAmqp || mqttToAmqp || coapToHttp))
+                possibleLosses.add("Some header fields");
+        }
 
-            else if(diffPoint > DifficultyLevels.DIFFICULTY_LEVEL_VERY_HARD.getThresholdVal())
-                difficulty = DifficultyLevels.DIFFICULTY_LEVEL_VERY_HARD.getValue();
 
-            else if (diffPoint > DifficultyLevels.DIFFICULTY_LEVEL_HARD.getThresholdVal())
-                difficulty = DifficultyLevels.DIFFICULTY_LEVEL_HARD.getValue();
+        if(reqTypeDiff > 0)
+            possibleLosses.add("Being asynchronous");
+        if(securityDiff > 0)
+            possibleLosses.add("Security");
+        if(authDiff > 0)
+            possibleLosses.add("Authentication");
+        if(qosDiff > 0)
+            possibleLosses.add("QoS");
 
-            else if (diffPoint > DifficultyLevels.DIFFICULTY_LEVEL_MEDIUM.getThresholdVal())
-                difficulty = DifficultyLevels.DIFFICULTY_LEVEL_MEDIUM.getValue();
 
-            else if (diffPoint > DifficultyLevels.DIFFICULTY_LEVEL_EASY.getThresholdVal())
-                difficulty = DifficultyLevels.DIFFICULTY_LEVEL_EASY.getValue();
+        // set the difficulty level
+        String difficulty = "";
+        if(diffPoint > DifficultyLevels.DIFFICULTY_LEVEL_NOT_POSSIBLE.getThresholdVal())
+            difficulty = DifficultyLevels.DIFFICULTY_LEVEL_NOT_POSSIBLE.getValue();
 
-            diffCalcHist.add("End: " + diffPoint);
+        else if(diffPoint > DifficultyLevels.DIFFICULTY_LEVEL_VERY_HARD.getThresholdVal())
+            difficulty = DifficultyLevels.DIFFICULTY_LEVEL_VERY_HARD.getValue();
 
-            boolean possibility = diffPoint < DifficultyLevels.DIFFICULTY_LEVEL_NOT_POSSIBLE.getThresholdVal();
+        else if (diffPoint > DifficultyLevels.DIFFICULTY_LEVEL_HARD.getThresholdVal())
+            difficulty = DifficultyLevels.DIFFICULTY_LEVEL_HARD.getValue();
 
-            // now fill the result object
-            res.setName(newComm.getName());
-            res.setBaseType(newComm.getBaseType());
-            res.setDifficultyPoint(diffPoint);
-            res.setPossibility(possibility);
-            res.setDifficulty(difficulty);
-            res.setPossibleLosses(possibleLosses);
-            res.setDifficultyCalcHistory(diffCalcHist);
-            results.add(res);
-        }
+        else if (diffPoint > DifficultyLevels.DIFFICULTY_LEVEL_MEDIUM.getThresholdVal())
+            difficulty = DifficultyLevels.DIFFICULTY_LEVEL_MEDIUM.getValue();
 
-        return results;
+        else if (diffPoint > DifficultyLevels.DIFFICULTY_LEVEL_EASY.getThresholdVal())
+            difficulty = DifficultyLevels.DIFFICULTY_LEVEL_EASY.getValue();
+
+
+        boolean possibility = diffPoint < DifficultyLevels.DIFFICULTY_LEVEL_NOT_POSSIBLE.getThresholdVal();
+
+        // now fill the result object
+        res.setName(newComm.getName());
+        res.setBaseType(newComm.getBaseType());
+        res.setDifficultyPoint(diffPoint);
+        res.setPossibility(possibility);
+        res.setDifficulty(difficulty);
+        res.setPossibleLosses(possibleLosses);
+        res.setExplanation(explanation);
+        return res;
     }
 
 
     /**
-     * Finds the suggested communication type that will be used for transformation
-     * @return
+     * Ranks the supported communications of the new environment as the target of the transformation.
+     *
+     * Only the best k are kept while going over the candidates (a heap of k, the worst on top),
+     * so it takes O(n log k) instead of sorting all of them.
+     * A possible candidate always comes before an impossible one, whatever the weights are. The score only orders them within each group.
+     *
+     * @param k number of candidates to return
+     * @param weights how the candidates are scored, see RankingWeights.
+     * @return the best k candidates, the best one first.
      */
-    private AnalysisResult getSuggestedCommunicationType(List<AnalysisResult> analysisResults)
+    public List<AnalysisResult> rank(int k, RankingWeights weights)
     {
-        // Sort according to the difficulty points
-        Collections.sort(analysisResults, new Comparator<AnalysisResult>()
-        {
-            public int compare(AnalysisResult res1, AnalysisResult res2)
-            {
-                if(res1.getDifficultyPoint() == res2.getDifficultyPoint())
-                    return 0;
-
-                return res1.getDifficultyPoint() < res2.getDifficultyPoint() ? -1 : 1;
-            }
-        });
-
-        int i = 1;
-        for (AnalysisResult analysisResult: analysisResults)
-        {
-            // For debugging purposes
-            //System.out.println(i + "- " + analysisResult.getName() + " " + analysisResult.getDifficultyPoint());
-            i++;
-        }
+        return rank(setAnalysisResult(), k, weights);
+    }
 
-        // find minimum difficulty level
-        AnalysisResult min;
-        String minDiffLevel;
-        if(analysisResults.size() > 0)
+    /**
+     * Ranks the results which are calculated already, see rank(int, RankingWeights).
+     * @param results of the supported communications of the new environment, in their order. The list is not changed.
+     */
+    private static List<AnalysisResult> rank(List<AnalysisResult> results, int k, RankingWeights weights)
+    {
+        Comparator<RankedResult> ranking = Comparator.<RankedResult>comparingInt(ranked -> ranked.result.getPossibility() ? 0 : 1)
+                .thenComparingDouble(ranked -> ranked.score)
+                .thenComparingInt(ranked -> ranked.level)
+                .thenComparingInt(ranked -> ranked.result.getPossibleLosses().size())
+                .thenComparingInt(ranked -> ranked.result.getDifficultyPoint())
+                .thenComparingInt(ranked -> ranked.index);
+
+        // The worst of the best k is on top, it is replaced when a better one comes.
+        // (k can be more than the candidates, the heap is never bigger than them)
+        PriorityQueue<RankedResult> best = new PriorityQueue<RankedResult>(Math.max(1, Math.min(k, results.size())), ranking.reversed());
+        for (int i = 0; i < results.size() && k > 0; i++)
         {
-            min = analysisResults.get(0);
-            minDiffLevel = min.getDifficulty();
+            AnalysisResult result = results.get(i);
+            int level = getDifficultyLevel(result.getDifficultyPoint());
+            RankedResult ranked = new RankedResult(result, i, level, weights.getScore(result, level));
 
-            // find the ones which has the same difficulty levels
-            List<AnalysisResult> minDiffLevelResSet = new ArrayList<AnalysisResult>();
-            for (AnalysisResult analysisResult: analysisResults)
+            if (best.size() < k)
             {
-                if(analysisResult.getDifficulty().equals(minDiffLevel))
-                    minDiffLevelResSet.add(analysisResult);
+                best.add(ranked);
             }
-
-            // find the ones which has the minimum losses
-            List<AnalysisResult> minLostSet = new ArrayList<AnalysisResult>();
-            int minLostCount = 999;
-            for (AnalysisResult analysisResult: minDiffLevelResSet)
+            else if (ranking.compare(ranked, best.peek()) < 0)
             {
-                if(analysisResult.getPossibleLosses().size() == minLostCount)
-                {
-                    minLostSet.add(analysisResult);
-                }
-                else if(analysisResult.getPossibleLosses().size() < minLostCount)
-                {
-                    minLostCount = analysisResult.getPossibleLosses().size();
-                    minLostSet = new ArrayList<AnalysisResult>();
-                    minLostSet.add(analysisResult);
-                }
+                best.poll();
+                best.add(ranked);
             }
+        }
 
-            // sort the final set according to the points. difficulty levels and losses are same.
-            Collections.sort(minLostSet, new Comparator<AnalysisResult>()
+        List<RankedResult> sorted = new ArrayList<RankedResult>(best);
+        sorted.sort(ranking);
+        return sorted.stream().map(ranked -> ranked.result).collect(Collectors.toList());
+    }
+
+    /**
+     * Gets the difficulty level of the points, 0 is the easiest. (Same thresholds as analysePair)
+     */
+    private static int getDifficultyLevel(int difficultyPoint)
+    {
+        int level = 0;
+        for (DifficultyLevels difficultyLevel : DifficultyLevels.values())
+        {
+            if (difficultyPoint > difficultyLevel.getThresholdVal())
             {
-                public int compare(AnalysisResult res1, AnalysisResult res2)
-                {
-                    if(res1.getDifficultyPoint() == res2.getDifficultyPoint())
-                        return 0;
+                level++;
+            }
+        }
+        return level;
+    }
 
-                    return res1.getDifficultyPoint() < res2.getDifficultyPoint() ? -1 : 1;
-                }
-            });
+    private static final class RankedResult
+    {
+        final AnalysisResult result;
+        final int index;
+        final int level;
+        final double score;
 
-            return minLostSet.size() > 0 ? minLostSet.get(0) : null;
+        RankedResult(AnalysisResult result, int index, int level, double score)
+        {
+            this.result = result;
+            this.index = index;
+            this.level = level;
+            this.score = score;
         }
-
-        return null;
     }
 
 
@@ -460,15 +653,15 @@ public class Analyzer
      * @param newComm
      * @return
      */
-    private boolean communicationEqualivent(Communication oldComm, Communication newComm)
+    private boolean communicationEqualivent(CommunicationProfile oldComm, CommunicationProfile newComm)
     {
         if(oldComm != null && newComm != null)
         {
-            boolean commTypeEqual = dropDownListsEquals(oldComm.getCommunicationType(), newComm.getCommunicationType(), DropDownTypes.DROP_DOWN_COMMUNICATION_TYPE);
-            boolean commPatternEqual = dropDownListsEquals(oldComm.getCommunicationPattern(), newComm.getCommunicationPattern(), DropDownTypes.DROP_DOWN_COMMUNICATION_PATTERN);
-            boolean reqTypeEqual = dropDownListsEquals(oldComm.getRequestType(), newComm.getRequestType(), DropDownTypes.DROP_DOWN_REQUEST_TYPE);
-            boolean headerSizeEqual = dropDownListsEquals(oldComm.getHeaderSize(), newComm.getHeaderSize(), DropDownTypes.DROP_DOWN_HEADER_SIZE);
-            boolean payloadTypeEqual = dropDownListsEquals(oldComm.getPayloadType(), newComm.getPayloadType(), DropDownTypes.DROP_DOWN_PAYLOAD_TYPE);
+            boolean commTypeEqual = dropDownListsEquals(oldComm, newComm, Dimension.COMMUNICATION_TYPE);
+            boolean commPatternEqual = dropDownListsEquals(oldComm, newComm, Dimension.COMMUNICATION_PATTERN);
+            boolean reqTypeEqual = dropDownListsEquals(oldComm, newComm, Dimension.REQUEST_TYPE);
+            boolean headerSizeEqual = dropDownListsEquals(oldComm, newComm, Dimension.HEADER_SIZE);
+            boolean payloadTypeEqual = dropDownListsEquals(oldComm, newComm, Dimension.PAYLOAD_TYPE);
 
             if(commTypeEqual && commPatternEqual && reqTypeEqual && headerSizeEqual && payloadTypeEqual)
             {
@@ -484,36 +677,20 @@ public class Analyzer
      *
      * The new dropdown element of the new communication should contain everything from the old
      * It may have additional features. If everything is included in the new one, then they can be thought as equal.
-     * @param fromOld dropdown element from old
-     * @param fromNew dropdown element from new
+     * @param oldComm communication of the dropdown element from old
+     * @param newComm communication of the dropdown element from new
+     * @param type dropdown element
      * @return
      */
-    private boolean dropDownListsEquals(List<DropDownListItem> fromOld, List<DropDownListItem> fromNew, DropDownTypes type)
+    private boolean dropDownListsEquals(CommunicationProfile oldComm, CommunicationProfile newComm, Dimension type)
     {
+        int oldSize = oldComm.getSize(type);
+        int newSize = newComm.getSize(type);
+
         // all the items from old should be in the new one
-        if(fromOld != null && fromNew != null && fromOld.size() <= fromNew.size())
+        if(oldSize >= 0 && newSize >= 0 && oldSize <= newSize)
         {
-            for (DropDownListItem dropDownItemOld : fromOld)
-            {
-                boolean found = false;
-                for (DropDownListItem dropDownItemNew : fromNew)
-                {
-                    boolean equals = dropDownItemOld.getItemName().equals(dropDownItemNew.getItemName()) && dropDownItemOld.getId() == dropDownItemNew.getId();
-                    if(equals)
-                    {
-                        found = true;
-                        break;
-                    }
-                }
-
-                // item is not found in the new one, so they are not equal.
-                if(!found)
-                {
-                    return false;
-                }
-            }
-            // everything from old, is in new, so return true.
-            return true;
+            return (oldComm.getMask(type) & ~newComm.getMask(type)) == 0;
         }
 
         return  false;
@@ -523,129 +700,89 @@ public class Analyzer
     /**
      * Finds the differences between two dropdown elements
      *
-     * Returns a list which contains the element names which exists in old but not in new.
+     * Returns the number of the elements which exists in old but not in new.
      *
-     * @param fromOld
-     * @param fromNew
+     * @param oldComm communication of the dropdown element from old
+     * @param newComm communication of the dropdown element from new
+     * @param type dropdown element
      * @return
      */
-    private List<String> findDropDownListsDifferences(List<DropDownListItem> fromOld, List<DropDownListItem> fromNew, DropDownTypes type)
+    private static int findDropDownListsDifferences(CommunicationProfile oldComm, CommunicationProfile newComm, Dimension type)
     {
-        List<String> result = new ArrayList<String>();
-
-        if(type == DropDownTypes.DROP_DOWN_REQUEST_TYPE)
+        if(type == Dimension.REQUEST_TYPE)
         {
-            // if the new one has MIME types, it can be thought that there is no difference in this type.
-            if(dropDownListContainsValue(fromNew, RequestType.REQUEST_TYPE_ASYNC.getValue()))
+            // if the new one has Async type, it can be thought that there is no difference in this type.
+            if(newComm.containsName(type, RequestType.REQUEST_TYPE_ASYNC.getValue()))
             {
-                return result;
+                return 0;
             }
         }
 
-        else if(type == DropDownTypes.DROP_DOWN_PAYLOAD_TYPE)
+        else if(type == Dimension.PAYLOAD_TYPE)
         {
             // if the new one has MIME types, it can be thought that there is no difference in this type.
-            if(dropDownListContainsValue(fromNew, PayloadType.PAYLOAD_TYPE_MIME.getValue()))
+            if(newComm.containsName(type, PayloadType.PAYLOAD_TYPE_MIME.getValue()))
             {
-                return result;
+                return 0;
             }
         }
 
-        else if(type == DropDownTypes.DROP_DOWN_QOS_TYPE)
+        else if(type == Dimension.QOS_TYPE)
         {
             // if the new one has Complex QoS types, it can be thought that there is no difference in this type.
-            if(dropDownListContainsValue(fromNew, QoSLevel.QOS_LEVEL_COMPLEX.getValue()))
+            if(newComm.containsName(type, QoSLevel.QOS_LEVEL_COMPLEX.getValue()))
             {
-                return result;
+                return 0;
             }
         }
 
-        else if(type == DropDownTypes.DROP_DOWN_HEADER_SIZE)
+        else if(type == Dimension.HEADER_SIZE)
         {
             // if the new one has Large size, it can be thought that there is no difference in this type.
-            if(dropDownListContainsValue(fromNew, HeaderSize.HEADER_SIZE_LARGE.getValue()))
+            if(newComm.containsName(type, HeaderSize.HEADER_SIZE_LARGE.getValue()))
             {
-                return result;
+                return 0;
             }
         }
 
-        else if(type == DropDownTypes.DROP_DOWN_REQUEST_TYPE)
+        // the items of old which are not in new
+        long missing = oldComm.getMask(type) & ~newComm.getMask(type);
+        if(missing == 0)
         {
-            // if the new one has Async type, it can be thought that there is no difference in this type.
-            if(dropDownListContainsValue(fromNew, RequestType.REQUEST_TYPE_ASYNC.getValue()))
-            {
-                return result;
-            }
+            return 0;
         }
 
-        for (DropDownListItem dropDownItemOld : fromOld)
-        {
-            boolean found = false;
-            for (DropDownListItem dropDownItemNew : fromNew)
-            {
-                boolean equals = dropDownItemOld.getItemName().equals(dropDownItemNew.getItemName()) && dropDownItemOld.getId() == dropDownItemNew.getId();
-
-                // drop down will contain only one element for sure
-                if(type == DropDownTypes.DROP_DOWN_SECURITY_TYPE)
-                {
-                    // DTLS and TLS can be thought as same. They offer the same functionality
-                    boolean dtls_tls = dropDownItemOld.getItemName().equals(SecurityType.SECURITY_TYPE_DTLS.getValue()) && dropDownItemNew.getItemName().equals(SecurityType.SECURITY_TYPE_TLS.getValue());
-                    boolean tls_dtls = dropDownItemOld.getItemName().equals(SecurityType.SECURITY_TYPE_TLS.getValue()) && dropDownItemNew.getItemName().equals(SecurityType.SECURITY_TYPE_DTLS.getValue());
-                    equals = equals || dtls_tls || tls_dtls;
-                }
-
-                else if(type == DropDownTypes.DROP_DOWN_AUTHENTICATION_TYPE && dropDownItemOld.getItemName().equals(AuthenticationType.AUTHENTICATION_TYPE_SIMPLE.getValue()))
-                {
-                    // If old one is simple and the new one has at least one auth, then this is not a loss or difficulty
-                    equals =  fromNew.size() > 0;
-                }
-
-                else if(type == DropDownTypes.DROP_DOWN_PAYLOAD_TYPE && dropDownItemOld.getItemName().equals(PayloadType.PAYLOAD_TYPE_TEXT.getValue()))
-                {
-                    // If old one is text, then this is not a loss or difficulty.
-                    equals = true;
-                }
+        // the followings can only be found if the new one has at least one item
+        boolean newHasItems = newComm.getSize(type) > 0;
 
-                else if(type == DropDownTypes.DROP_DOWN_HEADER_SIZE && dropDownItemOld.getItemName().equals(HeaderSize.HEADER_SIZE_SMALL.getValue()))
-                {
-                    // If old one is small, then this is not a loss or difficulty.
-                    equals = true;
-                }
-
-                if(equals)
-                {
-                    found = true;
-                    break;
-                }
-            }
-
-            // Add to list
-            if(!found)
-            {
-                result.add(dropDownItemOld.getItemName());
-            }
+        if(type == Dimension.SECURITY_TYPE)
+        {
+            // DTLS and TLS can be thought as same. They offer the same functionality
+            if(newComm.containsName(type, SecurityType.SECURITY_TYPE_TLS.getValue()))
+                missing &= ~CommunicationProfile.getNameMask(type, SecurityType.SECURITY_TYPE_DTLS.getValue());
+            if(newComm.containsName(type, SecurityType.SECURITY_TYPE_DTLS.getValue()))
+                missing &= ~CommunicationProfile.getNameMask(type, SecurityType.SECURITY_TYPE_TLS.getValue());
         }
 
-        return result;
-    }
+        else if(type == Dimension.AUTHENTICATION_TYPE && newHasItems)
+        {
+            // If old one is simple and the new one has at least one auth, then this is not a loss or difficulty
+            missing &= ~CommunicationProfile.getNameMask(type, AuthenticationType.AUTHENTICATION_TYPE_SIMPLE.getValue());
+        }
 
+        else if(type == Dimension.PAYLOAD_TYPE && newHasItems)
+        {
+            // If old one is text, then this is not a loss or difficulty.
+            missing &= ~CommunicationProfile.getNameMask(type, PayloadType.PAYLOAD_TYPE_TEXT.getValue());
+        }
 
-    /**
-     * Returns whether the value exists in the dropdown list
-     * @param item
-     * @param value
-     * @return
-     */
-    private boolean dropDownListContainsValue(List<DropDownListItem> item, String value)
-    {
-        for (DropDownListItem elem : item)
+        else if(type == Dimension.HEADER_SIZE && newHasItems)
         {
-            if (elem.getItemName().equals(value)) {
-                return true;
-            }
+            // If old one is small, then this is not a loss or difficulty.
+            missing &= ~CommunicationProfile.getNameMask(type, HeaderSize.HEADER_SIZE_SMALL.getValue());
         }
 
-        return false;
+        return oldComm.countItems(type, missing);
     }
 
 
@@ -656,105 +793,16 @@ public class Analyzer
      * then return the initial difficulty points.
      *
      * The difficulty points are calculated according to the implementation of the communication type.
+     * The points are in json_data/difficultyMatrix.json, see DifficultyMatrix.
      *
-     * @param typeOld
-     * @param typeNew
+     * @param oldComm
+     * @param newComm
+     * @param difficultyMatrix
      * @return
      */
-    private int difficultyPointsOfKnownTypes(String typeOld, String typeNew)
+    private static int difficultyPointsOfKnownTypes(CommunicationProfile oldComm, CommunicationProfile newComm, DifficultyMatrix difficultyMatrix)
     {
-        if(typeOld.equals(BaseType.BASE_TYPE_AMQP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_STOMP.getValue()))
-            return 275;
-        else if(typeOld.equals(BaseType.BASE_TYPE_AMQP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_MQTT.getValue()))
-            return 275;
-        else if(typeOld.equals(BaseType.BASE_TYPE_AMQP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_HTTP.getValue()))
-            return 275;
-        else if(typeOld.equals(BaseType.BASE_TYPE_AMQP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_COAP.getValue()))
-            return 275;
-        else if(typeOld.equals(BaseType.BASE_TYPE_AMQP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_XMPP.getValue()))
-            return 450;
-        else if(typeOld.equals(BaseType.BASE_TYPE_AMQP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_DDS.getValue()))
-            return 750;
-
-        else if(typeOld.equals(BaseType.BASE_TYPE_STOMP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_AMQP.getValue()))
-            return 200;
-        else if(typeOld.equals(BaseType.BASE_TYPE_STOMP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_MQTT.getValue()))
-            return 200;
-        else if(typeOld.equals(BaseType.BASE_TYPE_STOMP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_HTTP.getValue()))
-            return 200;
-        else if(typeOld.equals(BaseType.BASE_TYPE_STOMP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_COAP.getValue()))
-            return 200;
-        else if(typeOld.equals(BaseType.BASE_TYPE_STOMP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_XMPP.getValue()))
-            return 450;
-        else if(typeOld.equals(BaseType.BASE_TYPE_STOMP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_DDS.getValue()))
-            return 750;
-
-        else if(typeOld.equals(BaseType.BASE_TYPE_MQTT.getValue()) && typeNew.equals(BaseType.BASE_TYPE_AMQP.getValue()))
-            return 175;
-        else if(typeOld.equals(BaseType.BASE_TYPE_MQTT.getValue()) && typeNew.equals(BaseType.BASE_TYPE_STOMP.getValue()))
-            return 175;
-        else if(typeOld.equals(BaseType.BASE_TYPE_MQTT.getValue()) && typeNew.equals(BaseType.BASE_TYPE_HTTP.getValue()))
-            return 225;
-        else if(typeOld.equals(BaseType.BASE_TYPE_MQTT.getValue()) && typeNew.equals(BaseType.BASE_TYPE_COAP.getValue()))
-            return 225;
-        else if(typeOld.equals(BaseType.BASE_TYPE_MQTT.getValue()) && typeNew.equals(BaseType.BASE_TYPE_XMPP.getValue()))
-            return 450;
-        else if(typeOld.equals(BaseType.BASE_TYPE_MQTT.getValue()) && typeNew.equals(BaseType.BASE_TYPE_DDS.getValue()))
-            return 750;
-
-        else if(typeOld.equals(BaseType.BASE_TYPE_HTTP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_AMQP.getValue()))
-            return 200;
-        else if(typeOld.equals(BaseType.BASE_TYPE_HTTP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_STOMP.getValue()))
-            return 200;
-        else if(typeOld.equals(BaseType.BASE_TYPE_HTTP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_MQTT.getValue()))
-            return 250;
-        else if(typeOld.equals(BaseType.BASE_TYPE_HTTP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_COAP.getValue()))
-            return 100;
-        else if(typeOld.equals(BaseType.BASE_TYPE_HTTP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_XMPP.getValue()))
-            return 450;
-        else if(typeOld.equals(BaseType.BASE_TYPE_HTTP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_DDS.getValue()))
-            return 750;
-
-        else if(typeOld.equals(BaseType.BASE_TYPE_COAP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_AMQP.getValue()))
-            return 200;
-        else if(typeOld.equals(BaseType.BASE_TYPE_COAP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_STOMP.getValue()))
-            return 200;
-        else if(typeOld.equals(BaseType.BASE_TYPE_COAP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_MQTT.getValue()))
-            return 250;
-        else if(typeOld.equals(BaseType.BASE_TYPE_COAP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_HTTP.getValue()))
-            return 100;
-        else if(typeOld.equals(BaseType.BASE_TYPE_COAP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_XMPP.getValue()))
-            return 450;
-        else if(typeOld.equals(BaseType.BASE_TYPE_COAP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_DDS.getValue()))
-            return 750;
-
-        else if(typeOld.equals(BaseType.BASE_TYPE_XMPP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_AMQP.getValue()))
-            return 450;
-        else if(typeOld.equals(BaseType.BASE_TYPE_XMPP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_STOMP.getValue()))
-            return 450;
-        else if(typeOld.equals(BaseType.BASE_TYPE_XMPP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_MQTT.getValue()))
-            return 450;
-        else if(typeOld.equals(BaseType.BASE_TYPE_XMPP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_HTTP.getValue()))
-            return 450;
-        else if(typeOld.equals(BaseType.BASE_TYPE_XMPP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_COAP.getValue()))
-            return 450;
-        else if(typeOld.equals(BaseType.BASE_TYPE_XMPP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_DDS.getValue()))
-            return 450;
-
-        else if(typeOld.equals(BaseType.BASE_TYPE_DDS.getValue()) && typeNew.equals(BaseType.BASE_TYPE_AMQP.getValue()))
-            return 750;
-        else if(typeOld.equals(BaseType.BASE_TYPE_DDS.getValue()) && typeNew.equals(BaseType.BASE_TYPE_STOMP.getValue()))
-            return 750;
-        else if(typeOld.equals(BaseType.BASE_TYPE_DDS.getValue()) && typeNew.equals(BaseType.BASE_TYPE_MQTT.getValue()))
-            return 750;
-        else if(typeOld.equals(BaseType.BASE_TYPE_DDS.getValue()) && typeNew.equals(BaseType.BASE_TYPE_HTTP.getValue()))
-            return 750;
-        else if(typeOld.equals(BaseType.BASE_TYPE_DDS.getValue()) && typeNew.equals(BaseType.BASE_TYPE_COAP.getValue()))
-            return 750;
-        else if(typeOld.equals(BaseType.BASE_TYPE_DDS.getValue()) && typeNew.equals(BaseType.BASE_TYPE_XMPP.getValue()))
-            return 750;
-
-        return 0;
+        return difficultyMatrix.getKnownTypePoints(oldComm.getBaseTypeIndex(), newComm.getBaseTypeIndex());
     }
 
 
@@ -765,80 +813,16 @@ public class Analyzer
      * The difficulty points are calculated according to the communication type of the communication protocols.
      * Since the same communication types can be implemented in a very different ways, the analysis results of the newly created
      * communication types may not be correct and the results are just guesses.
+     * The points are in json_data/difficultyMatrix.json, see DifficultyMatrix.
      *
-     * @param typeOld
-     * @param typeNew
+     * @param oldComm has exactly one communication type
+     * @param newComm has exactly one communication type
+     * @param difficultyMatrix
      * @return
      */
-    private int difficultyPointsOfUnknownTypes(String typeOld, String typeNew)
+    private static int difficultyPointsOfUnknownTypes(CommunicationProfile oldComm, CommunicationProfile newComm, DifficultyMatrix difficultyMatrix)
     {
-        if(typeOld.equals(CommTypes.COMM_TYPES_CS_BI_DIR.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_CS_ONE_DIR.getValue()))
-            return 300;
-        else if(typeOld.equals(CommTypes.COMM_TYPES_CS_BI_DIR.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_MS_BROKERED.getValue()))
-            return 300;
-        else if(typeOld.equals(CommTypes.COMM_TYPES_CS_BI_DIR.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_MS_NOT_BROKERED.getValue()))
-            return 300;
-        else if(typeOld.equals(CommTypes.COMM_TYPES_CS_BI_DIR.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_DS_BROKERED.getValue()))
-            return 500;
-        else if(typeOld.equals(CommTypes.COMM_TYPES_CS_BI_DIR.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_DS_NOT_BROKERED.getValue()))
-            return 500;
-
-        else if(typeOld.equals(CommTypes.COMM_TYPES_CS_ONE_DIR.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_CS_BI_DIR.getValue()))
-            return 200;
-        else if(typeOld.equals(CommTypes.COMM_TYPES_CS_ONE_DIR.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_MS_BROKERED.getValue()))
-            return 300;
-        else if(typeOld.equals(CommTypes.COMM_TYPES_CS_ONE_DIR.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_MS_NOT_BROKERED.getValue()))
-            return 300;
-        else if(typeOld.equals(CommTypes.COMM_TYPES_CS_ONE_DIR.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_DS_BROKERED.getValue()))
-            return 500;
-        else if(typeOld.equals(CommTypes.COMM_TYPES_CS_ONE_DIR.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_DS_NOT_BROKERED.getValue()))
-            return 500;
-
-        else if(typeOld.equals(CommTypes.COMM_TYPES_MS_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_CS_BI_DIR.getValue()))
-            return 300;
-        else if(typeOld.equals(CommTypes.COMM_TYPES_MS_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_CS_ONE_DIR.getValue()))
-            return 300;
-        else if(typeOld.equals(CommTypes.COMM_TYPES_MS_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_MS_NOT_BROKERED.getValue()))
-            return 300;
-        else if(typeOld.equals(CommTypes.COMM_TYPES_MS_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_DS_BROKERED.getValue()))
-            return 500;
-        else if(typeOld.equals(CommTypes.COMM_TYPES_MS_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_DS_NOT_BROKERED.getValue()))
-            return 500;
-
-        else if(typeOld.equals(CommTypes.COMM_TYPES_MS_NOT_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_CS_BI_DIR.getValue()))
-            return 300;
-        else if(typeOld.equals(CommTypes.COMM_TYPES_MS_NOT_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_CS_ONE_DIR.getValue()))
-            return 300;
-        else if(typeOld.equals(CommTypes.COMM_TYPES_MS_NOT_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_MS_BROKERED.getValue()))
-            return 300;
-        else if(typeOld.equals(CommTypes.COMM_TYPES_MS_NOT_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_DS_BROKERED.getValue()))
-            return 500;
-        else if(typeOld.equals(CommTypes.COMM_TYPES_MS_NOT_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_DS_NOT_BROKERED.getValue()))
-            return 500;
-
-        else if(typeOld.equals(CommTypes.COMM_TYPES_DS_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_CS_BI_DIR.getValue()))
-            return 500;
-        else if(typeOld.equals(CommTypes.COMM_TYPES_DS_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_CS_ONE_DIR.getValue()))
-            return 500;
-        else if(typeOld.equals(CommTypes.COMM_TYPES_DS_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_MS_BROKERED.getValue()))
-            return 500;
-        else if(typeOld.equals(CommTypes.COMM_TYPES_DS_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_MS_NOT_BROKERED.getValue()))
-            return 500;
-        else if(typeOld.equals(CommTypes.COMM_TYPES_DS_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_DS_NOT_BROKERED.getValue()))
-            return 300;
-
-        else if(typeOld.equals(CommTypes.COMM_TYPES_DS_NOT_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_CS_BI_DIR.getValue()))
-            return 500;
-        else if(typeOld.equals(CommTypes.COMM_TYPES_DS_NOT_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_CS_ONE_DIR.getValue()))
-            return 500;
-        else if(typeOld.equals(CommTypes.COMM_TYPES_DS_NOT_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_MS_BROKERED.getValue()))
-            return 500;
-        else if(typeOld.equals(CommTypes.COMM_TYPES_DS_NOT_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_MS_NOT_BROKERED.getValue()))
-            return 500;
-        else if(typeOld.equals(CommTypes.COMM_TYPES_DS_NOT_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_DS_BROKERED.getValue()))
-            return 300;
-
-        return 150;
+        return difficultyMatrix.getUnknownTypePoints(oldComm.getCommunicationTypeIndex(), newComm.getCommunicationTypeIndex());
     }
 
     //endregion
@@ -954,7 +938,7 @@ public class Analyzer
         }
     }
 
-    private enum TransformationPossibility
+    enum TransformationPossibility
     {
         TRANSFORMATION_POSSIBLE,
         TRANSFORMATION_NOT_POSSIBLE;
@@ -974,7 +958,7 @@ public class Analyzer
     }
 
 
-    private enum BaseType
+    enum BaseType
     {
         BASE_TYPE_AMQP,
         BASE_TYPE_STOMP,
@@ -1009,23 +993,22 @@ public class Analyzer
                     return "";
             }
         }
-    }
 
-    private enum DropDownTypes
-    {
-        DROP_DOWN_COMMUNICATION_TYPE,
-        DROP_DOWN_COMMUNICATION_PATTERN,
-        DROP_DOWN_REQUEST_TYPE,
-        DROP_DOWN_HEADER_SIZE,
-        DROP_DOWN_PAYLOAD_TYPE,
-        DROP_DOWN_PAYLOAD_SIZE,
-        DROP_DOWN_SECURITY_TYPE,
-        DROP_DOWN_AUTHENTICATION_TYPE,
-        DROP_DOWN_QOS_TYPE,
-        DROP_DOWN_IOT_TYPE;
+        /**
+         * Returns the ordinal of the base type with the given value, -1 if there is no such base type.
+         */
+        public static int indexOf(String value)
+        {
+            for (BaseType baseType : values())
+            {
+                if (baseType.getValue().equals(value))
+                    return baseType.ordinal();
+            }
+            return -1;
+        }
     }
 
-    private enum CommTypes
+    enum CommTypes
     {
         COMM_TYPES_CS_ONE_DIR,
         COMM_TYPES_CS_BI_DIR,
@@ -1054,6 +1037,19 @@ public class Analyzer
                     return "";
             }
         }
+
+        /**
+         * Returns the ordinal of the communication type with the given value, -1 if there is no such communication type.
+         */
+        public static int indexOf(String value)
+        {
+            for (CommTypes commType : values())
+            {
+                if (commType.getValue().equals(value))
+                    return commType.ordinal();
+            }
+            return -1;
+        }
     }
 
     private enum CommPattern
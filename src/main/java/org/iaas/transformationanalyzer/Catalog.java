@@ -0,0 +1,890 @@
+package org.iaas.transformationanalyzer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-memory catalog of all the communications and environments of the DefinitionRepository.
+ *
+ * All the definitions are converted to Java objects once, when the servlet is initialized.
+ * Communications are compiled into CommunicationProfile, which is what the Analyzer works on.
+ * Then the analysis requests get the objects from here and never touch the storage.
+ *
+ * The catalog listens to the repository. When a definition is created, edited or deleted,
+ * only that entry is refreshed. (No need to reload everything)
+ *
+ * The key of each entry is the name of the definition (file name without ".json"), which is the same name that comes from the front-end.
+ *
+ * The items of the dropdown lists are interned, communications/Default.json is read first for that. (See DropDownListItemRegistry)
+ *
+ * If a snapshot file is set, the definitions are also kept in a binary snapshot (see CatalogSnapshot).
+ * It is written in the background a moment after the definitions change, so many changes together are written once.
+ * When the catalog is opened, a definition is taken from the snapshot if its document has not changed since.
+ * Only the other definitions are parsed from Json.
+ *
+ * The difficulty points (json_data/difficultyMatrix.json) are kept here too.
+ * The json_data folder is watched with a WatchService, the points are reloaded when the file changes.
+ *
+ * Listeners are notified when a communication, an environment or the difficulty points change,
+ * so that they can refresh what they calculated from them.
+ */
+public class Catalog implements Closeable, DefinitionRepository.Listener
+{
+    private static final Logger logger = Logger.getLogger(Catalog.class.getName());
+
+    // Communication which has all the items of the dropdown lists.
+    private static final String vocabularyName = "Default";
+
+    // Changes within this time are written into the snapshot together.
+    private static final long snapshotDelayMillis = 1000;
+
+    private final Path jsonDataPath;
+    private final DefinitionRepository repository;
+    private final String communicationsFolder;
+    private final String environmentsFolder;
+    private final String settingsFileName;
+
+    private final Map<String, CommunicationProfile> communications;
+    private final Map<String, Environment> environments;
+    private volatile DifficultyMatrix difficultyMatrix;
+
+    // Fingerprints of the documents the entries are made from. Changed together with the entries, guarded by snapshotLock.
+    private final Map<String, Long> communicationFingerprints;
+    private final Map<String, Long> environmentFingerprints;
+    private final Object snapshotLock;
+
+    // Refreshes and the swaps of the published definitions are done one at a time, so an older content never replaces a newer one.
+    // Only the entries are changed under it, a publish writes its document before it takes the lock.
+    private final Object definitionLock;
+
+    // Publishes of the same name are done one at a time, from the write to the swap. Power of two, see getPublishLock.
+    private static final int publishLockCount = 64;
+    private final Object[] publishLocks;
+
+    // Set by loadVocabulary(), null if there is no vocabulary.
+    private volatile Communication vocabulary;
+
+    private Path snapshotFile;
+    private ScheduledThreadPoolExecutor snapshotExecutor;
+    private final AtomicBoolean snapshotScheduled;
+
+    private final JsonReaderWriter<Communication> communicationJsonReaderWriter;
+    private final JsonReaderWriter<Environment> environmentJsonReaderWriter;
+
+    private final List<Listener> listeners;
+
+    private WatchService watchService;
+    private Thread watcherThread;
+
+
+    /**
+     * @param jsonDataPath json_data folder, where the difficulty points are.
+     * @param repository storage of the definitions, it is opened and closed with the catalog.
+     * @param communicationsFolder
+     * @param environmentsFolder
+     * @param settingsFileName this document of the folders is not a definition.
+     */
+    public Catalog(Path jsonDataPath, DefinitionRepository repository, String communicationsFolder, String environmentsFolder, String settingsFileName)
+    {
+        this.jsonDataPath = jsonDataPath;
+        this.repository = repository;
+        this.communicationsFolder = communicationsFolder;
+        this.environmentsFolder = environmentsFolder;
+        this.settingsFileName = settingsFileName;
+
+        this.communications = new ConcurrentHashMap<String, CommunicationProfile>();
+        this.environments = new ConcurrentHashMap<String, Environment>();
+        this.communicationFingerprints = new ConcurrentHashMap<String, Long>();
+        this.environmentFingerprints = new ConcurrentHashMap<String, Long>();
+        this.snapshotLock = new Object();
+        this.definitionLock = new Object();
+        this.publishLocks = new Object[publishLockCount];
+        for (int i = 0; i < publishLockCount; i++)
+        {
+            publishLocks[i] = new Object();
+        }
+        this.snapshotScheduled = new AtomicBoolean();
+        this.listeners = new CopyOnWriteArrayList<Listener>();
+
+        this.communicationJsonReaderWriter = new JsonReaderWriter<Communication>(Communication.class);
+        this.environmentJsonReaderWriter = new JsonReaderWriter<Environment>(Environment.class);
+    }
+
+
+    /**
+     * Gets notified when the catalog changes.
+     * The methods are called on the thread which refreshed the catalog (the watcher or a request), after the catalog is updated.
+     */
+    public interface Listener
+    {
+        /**
+         * @param name of the communication
+         * @param communication new content, null if it is removed.
+         */
+        void communicationChanged(String name, CommunicationProfile communication);
+
+        /**
+         * @param name of the environment
+         * @param environment new content, null if it is removed.
+         */
+        void environmentChanged(String name, Environment environment);
+
+        void difficultyMatrixChanged(DifficultyMatrix difficultyMatrix);
+    }
+
+    public void addListener(Listener listener)
+    {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener)
+    {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Sets the file of the snapshot. It should be set before open.
+     * @param snapshotFile null (default) for no snapshot.
+     */
+    public void setSnapshotFile(Path snapshotFile)
+    {
+        this.snapshotFile = snapshotFile;
+    }
+
+
+    //region Loading and watching
+
+    /**
+     * Opens the repository and loads all the definitions of both folders and the difficulty points,
+     * then starts watching them for changes.
+     * @throws IOException
+     * @throws Exception if the repository or the difficulty points can not be loaded.
+     */
+    public void open() throws Exception
+    {
+        // Register before loading, so that a change in between is not missed.
+        watchService = jsonDataPath.getFileSystem().newWatchService();
+        jsonDataPath.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        repository.addListener(this);
+        repository.open();
+
+        difficultyMatrix = DifficultyMatrix.load(jsonDataPath.resolve(DifficultyMatrix.fileName));
+        loadVocabulary();
+
+        CatalogSnapshot snapshot = null;
+        if (snapshotFile != null)
+        {
+            snapshotExecutor = new ScheduledThreadPoolExecutor(1, runnable ->
+            {
+                Thread thread = new Thread(runnable, "catalog-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            snapshotExecutor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+
+            try
+            {
+                snapshot = CatalogSnapshot.read(snapshotFile);
+            }
+            catch (Exception e)
+            {
+                // Everything is parsed from Json then, and the snapshot is written again.
+                logger.log(Level.WARNING, "Snapshot of the catalog is not used: " + e.getMessage(), e);
+            }
+        }
+
+        int fromSnapshot = loadFolder(communicationsFolder, snapshot) + loadFolder(environmentsFolder, snapshot);
+        if (snapshotFile != null)
+        {
+            logger.info(String.format("Catalog is loaded, %d of %d definitions from the snapshot.", fromSnapshot, communications.size() + environments.size()));
+
+            // Parsed definitions schedule it already, the removed ones are still in the snapshot.
+            if (snapshot == null || !snapshot.getCommunications().keySet().equals(communications.keySet()) || !snapshot.getEnvironments().keySet().equals(environments.keySet()))
+            {
+                snapshotChanged();
+            }
+        }
+
+        watcherThread = new Thread(this::watchDifficultyMatrix, "catalog-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+    }
+
+    /**
+     * Stops watching, writes the last changes into the snapshot and closes the repository.
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (watchService != null)
+        {
+            watchService.close();
+        }
+        if (watcherThread != null)
+        {
+            watcherThread.interrupt();
+        }
+        if (snapshotExecutor != null)
+        {
+            // A write which has started is finished, a scheduled one is written here instead.
+            snapshotExecutor.shutdown();
+            try
+            {
+                snapshotExecutor.awaitTermination(10, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            if (snapshotScheduled.get())
+            {
+                writeSnapshot();
+            }
+        }
+        repository.close();
+    }
+
+    /**
+     * Interns the items of the vocabulary and gives them their bits, before any other communication. (See DropDownListItemRegistry)
+     * Without it, the items are interned as they are seen.
+     */
+    private void loadVocabulary()
+    {
+        try
+        {
+            byte[] content = repository.read(communicationsFolder, vocabularyName);
+            if (content != null)
+            {
+                Communication vocabulary = communicationJsonReaderWriter.ConvertJsonBytesToJavaObject(content, vocabularyName + ".json");
+                DropDownListItemRegistry.addVocabulary(vocabulary);
+                CommunicationProfile.compile(vocabulary);
+                this.vocabulary = vocabulary;
+            }
+        }
+        catch (Exception e)
+        {
+            logger.log(Level.WARNING, "Vocabulary could not be read: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Loads every definition in the folder, in the order of the names. Entries which are removed from the repository are dropped.
+     * @param folderName
+     * @param snapshot definitions whose document has not changed are taken from here, may be null.
+     * @return number of the definitions taken from the snapshot.
+     * @throws Exception if the folder cannot be read.
+     */
+    private int loadFolder(String folderName, CatalogSnapshot snapshot) throws Exception
+    {
+        Map<String, Long> fingerprints = new TreeMap<String, Long>(repository.getFingerprints(folderName));
+        fingerprints.keySet().removeIf(name -> !isDefinitionName(name));
+
+        Map<String, ?> entries = folderName.equals(communicationsFolder) ? communications : environments;
+        for (String name : new ArrayList<String>(entries.keySet()))
+        {
+            if (!fingerprints.containsKey(name))
+            {
+                refresh(folderName, name);
+            }
+        }
+
+        int fromSnapshot = 0;
+        for (Map.Entry<String, Long> fingerprint : fingerprints.entrySet())
+        {
+            if (loadFromSnapshot(folderName, fingerprint.getKey(), fingerprint.getValue(), snapshot))
+            {
+                fromSnapshot++;
+            }
+            else
+            {
+                refresh(folderName, fingerprint.getKey());
+            }
+        }
+        return fromSnapshot;
+    }
+
+    /**
+     * Puts the definition from the snapshot into the catalog, if its document has not changed.
+     * @return false if it should be parsed from Json.
+     */
+    private boolean loadFromSnapshot(String folderName, String name, long fingerprint, CatalogSnapshot snapshot)
+    {
+        if (snapshot == null)
+        {
+            return false;
+        }
+
+        try
+        {
+            if (folderName.equals(communicationsFolder))
+            {
+                CatalogSnapshot.Entry<Communication> entry = snapshot.getCommunications().get(name);
+                if (entry != null && entry.getFingerprint() == fingerprint)
+                {
+                    putCommunication(name, CommunicationProfile.compile(entry.getDefinition()), fingerprint);
+                    return true;
+                }
+            }
+            else if (folderName.equals(environmentsFolder))
+            {
+                CatalogSnapshot.Entry<Environment> entry = snapshot.getEnvironments().get(name);
+                if (entry != null && entry.getFingerprint() == fingerprint)
+                {
+                    putEnvironment(name, entry.getDefinition(), fingerprint);
+                    return true;
+                }
+            }
+        }
+        catch (IllegalStateException e)
+        {
+            // Could not be compiled, same as the Json.
+        }
+        return false;
+    }
+
+    /**
+     * Reads one definition again and puts the result into the catalog.
+     * If the definition does not exist anymore, the entry is removed.
+     * If it cannot be parsed (e.g. the file is being written right now), the previous entry is kept and the failure is logged and counted.
+     * The next change event of that definition will refresh it again.
+     *
+     * If the document has not changed since the entry is made (same fingerprint), it is not read again.
+     * (e.g. the change event of a definition which is published)
+     *
+     * @param folderName
+     * @param fileName without json
+     */
+    public void refresh(String folderName, String fileName)
+    {
+        if (!isDefinitionName(fileName))
+        {
+            return;
+        }
+
+        try
+        {
+            if (folderName.equals(communicationsFolder) || folderName.equals(environmentsFolder))
+            {
+                synchronized (definitionLock)
+                {
+                    refreshDefinition(folderName, fileName);
+                }
+            }
+        }
+        catch (Exception e)
+        {
+            // Keep the previous content.
+            logger.log(Level.WARNING, "Could not refresh " + folderName + "/" + fileName + ".json, the previous content is kept: " + e.getMessage(), e);
+            Metrics.get().recordError("refresh");
+        }
+    }
+
+    private void refreshDefinition(String folderName, String fileName) throws Exception
+    {
+        // Taken before the content. If the document changes in between, it is refreshed again with that change.
+        long fingerprint = repository.getFingerprint(folderName, fileName);
+        if (hasFingerprint(folderName.equals(communicationsFolder) ? communicationFingerprints : environmentFingerprints, fileName, fingerprint))
+        {
+            return;
+        }
+
+        byte[] content = repository.read(folderName, fileName);
+
+        boolean changed;
+        if (folderName.equals(communicationsFolder))
+        {
+            changed = putCommunication(fileName, content == null ? null : CommunicationProfile.compile(communicationJsonReaderWriter.ConvertJsonBytesToJavaObject(content, fileName + ".json")), fingerprint);
+        }
+        else
+        {
+            changed = putEnvironment(fileName, content == null ? null : environmentJsonReaderWriter.ConvertJsonBytesToJavaObject(content, fileName + ".json"), fingerprint);
+        }
+
+        if (changed)
+        {
+            snapshotChanged();
+        }
+    }
+
+    /**
+     * Creates a definition or replaces it. (postRequestType=create)
+     *
+     * The definition is checked and compiled before anything is written:
+     * - A communication should have a name, a baseType and all the dropdown lists,
+     *   with only the items (by itemName) of the vocabulary. (communications/Default.json, which is the vocabulary itself, is not checked against itself)
+     *   The items are kept as they are sent, with their ids: a copy of a definition is analysed the same as the definition.
+     *   (A rejected or malformed communication never gets bits, see CommunicationProfile)
+     * - An environment should have a name, and its supported communications should be in the catalog.
+     * Then it is written in the normal form (pretty Json of the java object) and the compiled form is put into the catalog
+     * together with the fingerprint of what is written. So nothing is parsed again when the change event of the file comes.
+     *
+     * The document is written without the global lock, so publishes of different names do not wait for each other's disk writes.
+     * Publishes of the same name are serialized from the write to the swap, so the fingerprint is the one of this write.
+     *
+     * @param folderName
+     * @param name without json
+     * @param content Json (UTF-8)
+     * @throws Exception if the definition is not valid (the message says why) or it cannot be written. Then nothing is changed.
+     */
+    public void publish(String folderName, String name, byte[] content) throws Exception
+    {
+        if (!isDefinitionName(name) || !isValidName(name))
+        {
+            throw new Exception("Name is not valid: " + name);
+        }
+
+        if (folderName.equals(communicationsFolder))
+        {
+            Communication communication = communicationJsonReaderWriter.ConvertJsonBytesToJavaObject(content, name + ".json");
+            checkCommunication(name, communication);
+
+            CommunicationProfile profile;
+            try
+            {
+                profile = CommunicationProfile.compile(communication);
+            }
+            catch (IllegalStateException e)
+            {
+                throw new Exception("Communication is not valid: " + e.getMessage(), e);
+            }
+
+            byte[] normalized = communicationJsonReaderWriter.ConvertJavaObjectToPrettyJson(communication, name + ".json");
+            synchronized (getPublishLock(folderName, name))
+            {
+                repository.write(folderName, name, normalized);
+                long fingerprint = repository.getFingerprint(folderName, name);
+                synchronized (definitionLock)
+                {
+                    // The change event may have refreshed it already.
+                    if (!hasFingerprint(communicationFingerprints, name, fingerprint))
+                    {
+                        putCommunication(name, profile, fingerprint);
+                    }
+                    if (name.equals(vocabularyName))
+                    {
+                        DropDownListItemRegistry.addVocabulary(communication);
+                        vocabulary = communication;
+                    }
+                }
+            }
+        }
+        else if (folderName.equals(environmentsFolder))
+        {
+            Environment environment = environmentJsonReaderWriter.ConvertJsonBytesToJavaObject(content, name + ".json");
+            checkEnvironment(environment);
+
+            byte[] normalized = environmentJsonReaderWriter.ConvertJavaObjectToPrettyJson(environment, name + ".json");
+            synchronized (getPublishLock(folderName, name))
+            {
+                repository.write(folderName, name, normalized);
+                long fingerprint = repository.getFingerprint(folderName, name);
+                synchronized (definitionLock)
+                {
+                    if (!hasFingerprint(environmentFingerprints, name, fingerprint))
+                    {
+                        putEnvironment(name, environment, fingerprint);
+                    }
+                }
+            }
+        }
+        else
+        {
+            throw new Exception("Folder is not known: " + folderName);
+        }
+        snapshotChanged();
+    }
+
+    private Object getPublishLock(String folderName, String name)
+    {
+        int hash = (folderName + "/" + name).hashCode();
+        return publishLocks[(hash ^ (hash >>> 16)) & (publishLockCount - 1)];
+    }
+
+    private static boolean hasFingerprint(Map<String, Long> fingerprints, String name, long fingerprint)
+    {
+        Long knownFingerprint = fingerprints.get(name);
+        return knownFingerprint != null && knownFingerprint == fingerprint;
+    }
+
+    private void checkCommunication(String name, Communication communication) throws Exception
+    {
+        if (communication.getName() == null || communication.getName().trim().isEmpty())
+        {
+            throw new Exception("Communication is not valid: name is missing.");
+        }
+        // A baseType which is not in Analyzer.BaseType is allowed, the analysis gives it no base type points.
+        if (communication.getBaseType() == null || communication.getBaseType().trim().isEmpty())
+        {
+            throw new Exception("Communication is not valid: baseType is missing.");
+        }
+
+        // The vocabulary defines the items, it is not checked against the previous one.
+        boolean isVocabulary = name.equals(vocabularyName);
+        Communication vocabulary = this.vocabulary;
+        if (!isVocabulary && vocabulary == null)
+        {
+            throw new Exception("Communication cannot be checked: the vocabulary is not loaded (" + vocabularyName + ").");
+        }
+
+        for (CommunicationProfile.Dimension dimension : CommunicationProfile.Dimension.values())
+        {
+            List<DropDownListItem> items = dimension.getItems(communication);
+            if (items == null)
+            {
+                throw new Exception("Communication is not valid: " + dimension.getFieldName() + " is missing.");
+            }
+
+            for (DropDownListItem item : items)
+            {
+                if (item == null || item.getItemName() == null)
+                {
+                    throw new Exception("Communication is not valid: " + dimension.getFieldName() + " has an empty item.");
+                }
+                if (!isVocabulary && findItem(dimension.getItems(vocabulary), item.getItemName()) == null)
+                {
+                    throw new Exception(String.format("Communication is not valid: %s has an unknown item: %d, %s", dimension.getFieldName(), item.getId(), item.getItemName()));
+                }
+            }
+        }
+    }
+
+    // Items are matched by itemName, the ids sent by the clients (and of some shipped definitions) do not always agree with the vocabulary.
+    // The submitted item is kept with its id, the analysis compares the items by id and itemName.
+    private static DropDownListItem findItem(List<DropDownListItem> items, String itemName)
+    {
+        if (items != null)
+        {
+            for (DropDownListItem item : items)
+            {
+                if (item != null && itemName.equals(item.getItemName()))
+                {
+                    return item;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void checkEnvironment(Environment environment) throws Exception
+    {
+        if (environment.getName() == null || environment.getName().trim().isEmpty())
+        {
+            throw new Exception("Environment is not valid: name is missing.");
+        }
+        if (environment.getSupportedCommunications() == null)
+        {
+            throw new Exception("Environment is not valid: supportedCommunications is missing.");
+        }
+
+        for (DropDownListItem item : environment.getSupportedCommunications())
+        {
+            if (item == null || item.getItemName() == null)
+            {
+                throw new Exception("Environment is not valid: supportedCommunications has an empty item.");
+            }
+            try
+            {
+                getCommunication(item.getItemName());
+            }
+            catch (Exception e)
+            {
+                throw new Exception("Environment is not valid: supported communication is not known: " + item.getItemName());
+            }
+        }
+    }
+
+    /**
+     * Puts the communication into the catalog and notifies the listeners.
+     * @param communication null if it is removed.
+     * @return false if nothing has changed.
+     */
+    private boolean putCommunication(String name, CommunicationProfile communication, long fingerprint)
+    {
+        synchronized (snapshotLock)
+        {
+            if (communication != null)
+            {
+                communications.put(name, communication);
+                communicationFingerprints.put(name, fingerprint);
+            }
+            else if (communications.remove(name) == null)
+            {
+                // It was not in the catalog, nothing has changed.
+                return false;
+            }
+            else
+            {
+                communicationFingerprints.remove(name);
+            }
+        }
+
+        for (Listener listener : listeners)
+        {
+            listener.communicationChanged(name, communication);
+        }
+        return true;
+    }
+
+    /**
+     * Puts the environment into the catalog and notifies the listeners.
+     * @param environment null if it is removed.
+     * @return false if nothing has changed.
+     */
+    private boolean putEnvironment(String name, Environment environment, long fingerprint)
+    {
+        synchronized (snapshotLock)
+        {
+            if (environment != null)
+            {
+                environments.put(name, environment);
+                environmentFingerprints.put(name, fingerprint);
+            }
+            else if (environments.remove(name) == null)
+            {
+                // It was not in the catalog, nothing has changed.
+                return false;
+            }
+            else
+            {
+                environmentFingerprints.remove(name);
+            }
+        }
+
+        for (Listener listener : listeners)
+        {
+            listener.environmentChanged(name, environment);
+        }
+        return true;
+    }
+
+    /**
+     * Reads the difficulty points again.
+     * If the file is not valid (or it is being written right now), the previous points are kept and the failure is logged and counted.
+     */
+    public void refreshDifficultyMatrix()
+    {
+        try
+        {
+            difficultyMatrix = DifficultyMatrix.load(jsonDataPath.resolve(DifficultyMatrix.fileName));
+        }
+        catch (Exception e)
+        {
+            // Keep the previous points.
+            logger.log(Level.WARNING, "Could not refresh " + DifficultyMatrix.fileName + ", the previous points are kept: " + e.getMessage(), e);
+            Metrics.get().recordError("refresh");
+            return;
+        }
+
+        for (Listener listener : listeners)
+        {
+            listener.difficultyMatrixChanged(difficultyMatrix);
+        }
+    }
+
+    /**
+     * Runs on the watcher thread until the catalog is closed.
+     * Only the difficulty points are interesting in json_data itself. (The repository watches the definitions)
+     */
+    private void watchDifficultyMatrix()
+    {
+        while (!Thread.currentThread().isInterrupted())
+        {
+            WatchKey key;
+            try
+            {
+                key = watchService.take();
+            }
+            catch (InterruptedException | ClosedWatchServiceException e)
+            {
+                return;
+            }
+
+            for (WatchEvent<?> event : key.pollEvents())
+            {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW || event.context().toString().equals(DifficultyMatrix.fileName))
+                {
+                    refreshDifficultyMatrix();
+                }
+            }
+
+            if (!key.reset())
+            {
+                return;
+            }
+        }
+    }
+
+    //endregion
+
+
+    //region DefinitionRepository.Listener
+
+    @Override
+    public void definitionChanged(String folderName, String name)
+    {
+        refresh(folderName, name);
+    }
+
+    @Override
+    public void folderChanged(String folderName)
+    {
+        try
+        {
+            loadFolder(folderName, null);
+        }
+        catch (Exception e)
+        {
+            // Folder could not be read, it will be tried with the next change.
+            logger.log(Level.WARNING, "Could not read the folder " + folderName + ": " + e.getMessage(), e);
+            Metrics.get().recordError("refresh");
+        }
+    }
+
+    //endregion
+
+
+    //region Snapshot
+
+    // Writes the snapshot a moment later, unless it is scheduled already.
+    private void snapshotChanged()
+    {
+        if (snapshotExecutor != null && snapshotScheduled.compareAndSet(false, true))
+        {
+            try
+            {
+                snapshotExecutor.schedule(this::writeSnapshot, snapshotDelayMillis, TimeUnit.MILLISECONDS);
+            }
+            catch (RejectedExecutionException e)
+            {
+                // Closing, see close()
+            }
+        }
+    }
+
+    /**
+     * Writes all the definitions of the catalog into the snapshot file.
+     * If it cannot be written, the next change tries again. (The catalog itself is not affected)
+     */
+    private void writeSnapshot()
+    {
+        // Changes from now on are written with the next one.
+        snapshotScheduled.set(false);
+
+        Map<String, CatalogSnapshot.Entry<Communication>> snapshotCommunications = new TreeMap<String, CatalogSnapshot.Entry<Communication>>();
+        Map<String, CatalogSnapshot.Entry<Environment>> snapshotEnvironments = new TreeMap<String, CatalogSnapshot.Entry<Environment>>();
+        synchronized (snapshotLock)
+        {
+            for (Map.Entry<String, CommunicationProfile> entry : communications.entrySet())
+            {
+                snapshotCommunications.put(entry.getKey(), new CatalogSnapshot.Entry<Communication>(entry.getValue().getCommunication(), communicationFingerprints.get(entry.getKey())));
+            }
+            for (Map.Entry<String, Environment> entry : environments.entrySet())
+            {
+                snapshotEnvironments.put(entry.getKey(), new CatalogSnapshot.Entry<Environment>(entry.getValue(), environmentFingerprints.get(entry.getKey())));
+            }
+        }
+
+        try
+        {
+            new CatalogSnapshot(snapshotCommunications, snapshotEnvironments).write(snapshotFile);
+        }
+        catch (Exception e)
+        {
+            logger.log(Level.WARNING, "Could not write the snapshot of the catalog: " + e.getMessage(), e);
+        }
+    }
+
+    //endregion
+
+
+    //region Lookups
+
+    /**
+     * Gets the compiled communication with the given name (file name without json)
+     * Only the catalog is looked up. It is filled when it is opened, by publish and by the change events of the repository,
+     * so a miss does not read the repository. (A client asking for unknown names does not cause any I/O)
+     * @param name
+     * @return
+     * @throws Exception if there is no such communication.
+     */
+    public CommunicationProfile getCommunication(String name) throws Exception
+    {
+        CommunicationProfile communication = communications.get(name);
+        if (communication == null)
+        {
+            throw new Exception("Communication is not found: " + name);
+        }
+        return communication;
+    }
+
+    /**
+     * Gets the environment with the given name (file name without json)
+     * Only the catalog is looked up. It is filled when it is opened, by publish and by the change events of the repository,
+     * so a miss does not read the repository. (A client asking for unknown names does not cause any I/O)
+     * @param name
+     * @return
+     * @throws Exception if there is no such environment.
+     */
+    public Environment getEnvironment(String name) throws Exception
+    {
+        Environment environment = environments.get(name);
+        if (environment == null)
+        {
+            throw new Exception("Environment is not found: " + name);
+        }
+        return environment;
+    }
+
+    /**
+     * Gets all the compiled communications by name. (file name without json)
+     * @return a copy, it does not change when the catalog changes.
+     */
+    public Map<String, CommunicationProfile> getCommunications()
+    {
+        return new HashMap<String, CommunicationProfile>(communications);
+    }
+
+    /**
+     * Gets the current difficulty points.
+     * @return
+     */
+    public DifficultyMatrix getDifficultyMatrix()
+    {
+        return difficultyMatrix;
+    }
+
+    //endregion
+
+
+    // Every document except for settings.json (it has different logic)
+    private boolean isDefinitionName(String name)
+    {
+        return !name.contains(settingsFileName);
+    }
+
+    // Only plain file names, nothing outside of the folder.
+    private boolean isValidName(String name)
+    {
+        return !name.isEmpty() && name.indexOf('/') < 0 && name.indexOf('\\') < 0 && !name.equals("..");
+    }
+}
@@ -0,0 +1,340 @@
+package org.iaas.transformationanalyzer;
+
+import org.iaas.transformationanalyzer.CommunicationProfile.Dimension;
+import org.iaas.transformationanalyzer.Metrics.Stage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary snapshot of the definitions in the catalog, so that a restart does not parse every Json file again.
+ * The catalog writes it after the definitions change (see Catalog.setSnapshotFile) and reads it when it is opened.
+ *
+ * Each definition is kept together with the fingerprint of its document (see DefinitionRepository.getFingerprint).
+ * A definition is taken from the snapshot only if the fingerprint is still the same,
+ * the others are parsed from Json as before. So a stale snapshot only makes the startup slower.
+ *
+ * Format (big endian):
+ *   magic, format version, number of dimensions
+ *   strings: count, then each as length + UTF-8 bytes. Every name is written once, the others refer to its index. (-1 is null)
+ *   items of each dimension: count, then each as id + string index
+ *   communications: count, then each as key, fingerprint, name, baseType,
+ *                   and the items of each dimension as size (-1 is null) + one byte per item (index of the item of that dimension)
+ *   environments: count, then each as key, fingerprint, name, size (-1 is null) + id and string index of each supported communication
+ *
+ * The file is read with FileChannel.map, so it is not copied into a buffer first.
+ * The items are interned, so they are shared with the ones read from Json. (See DropDownListItemRegistry)
+ */
+public final class CatalogSnapshot
+{
+    private static final int magic = 0x54414353;
+    private static final int formatVersion = 1;
+
+    private static final Dimension[] dimensions = Dimension.values();
+
+    private final Map<String, Entry<Communication>> communications;
+    private final Map<String, Entry<Environment>> environments;
+
+
+    /**
+     * A definition and the fingerprint of the document it is made from.
+     */
+    public static final class Entry<T>
+    {
+        private final T definition;
+        private final long fingerprint;
+
+        public Entry(T definition, long fingerprint)
+        {
+            this.definition = definition;
+            this.fingerprint = fingerprint;
+        }
+
+        public T getDefinition()
+        {
+            return definition;
+        }
+
+        public long getFingerprint()
+        {
+            return fingerprint;
+        }
+    }
+
+    /**
+     * @param communications by key (name of the definition)
+     * @param environments by key
+     */
+    public CatalogSnapshot(Map<String, Entry<Communication>> communications, Map<String, Entry<Environment>> environments)
+    {
+        this.communications = communications;
+        this.environments = environments;
+    }
+
+    public Map<String, Entry<Communication>> getCommunications()
+    {
+        return communications;
+    }
+
+    public Map<String, Entry<Environment>> getEnvironments()
+    {
+        return environments;
+    }
+
+
+    //region Reading
+
+    /**
+     * Reads the snapshot from the file.
+     * @param file
+     * @return null if there is no file.
+     * @throws Exception if the file cannot be read or it is not a valid snapshot. (e.g. written by another version)
+     */
+    public static CatalogSnapshot read(Path file) throws Exception
+    {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(buffer);
+        }
+        catch (NoSuchFileException e)
+        {
+            return null;
+        }
+        catch (IOException e) { throw JsonReaderWriter.failed(Stage.FILE_READ, "Could not read the snapshot: " + file.getFileName(), e); }
+        catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException | IllegalArgumentException e) { throw new Exception("Snapshot is not valid: " + file.getFileName(), e); }
+        finally { Metrics.get().recordStage(Stage.FILE_READ, start); }
+    }
+
+    private static CatalogSnapshot read(ByteBuffer buffer) throws Exception
+    {
+        if (buffer.getInt() != magic || buffer.getInt() != formatVersion || buffer.getInt() != dimensions.length)
+        {
+            throw new Exception("Snapshot is written by another version.");
+        }
+
+        String[] strings = new String[buffer.getInt()];
+        for (int i = 0; i < strings.length; i++)
+        {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        DropDownListItem[][] items = new DropDownListItem[dimensions.length][];
+        for (int d = 0; d < dimensions.length; d++)
+        {
+            items[d] = new DropDownListItem[buffer.getInt()];
+            for (int i = 0; i < items[d].length; i++)
+            {
+                items[d][i] = DropDownListItemRegistry.intern(buffer.getInt(), getString(strings, buffer.getInt()));
+            }
+        }
+
+        int communicationCount = buffer.getInt();
+        Map<String, Entry<Communication>> communications = new LinkedHashMap<String, Entry<Communication>>(communicationCount * 2);
+        for (int c = 0; c < communicationCount; c++)
+        {
+            String key = getString(strings, buffer.getInt());
+            long fingerprint = buffer.getLong();
+
+            Communication communication = new Communication();
+            communication.setName(getString(strings, buffer.getInt()));
+            communication.setBaseType(getString(strings, buffer.getInt()));
+            for (int d = 0; d < dimensions.length; d++)
+            {
+                int size = buffer.getInt();
+                List<DropDownListItem> list = null;
+                if (size >= 0)
+                {
+                    list = new ArrayList<DropDownListItem>(size);
+                    for (int i = 0; i < size; i++)
+                    {
+                        list.add(items[d][buffer.get() & 0xFF]);
+                    }
+                }
+                dimensions[d].setItems(communication, list);
+            }
+            communications.put(key, new Entry<Communication>(communication, fingerprint));
+        }
+
+        int environmentCount = buffer.getInt();
+        Map<String, Entry<Environment>> environments = new LinkedHashMap<String, Entry<Environment>>(environmentCount * 2);
+        for (int e = 0; e < environmentCount; e++)
+        {
+            String key = getString(strings, buffer.getInt());
+            long fingerprint = buffer.getLong();
+
+            Environment environment = new Environment();
+            environment.setName(getString(strings, buffer.getInt()));
+            int size = buffer.getInt();
+            List<DropDownListItem> list = null;
+            if (size >= 0)
+            {
+                list = new ArrayList<DropDownListItem>(size);
+                for (int i = 0; i < size; i++)
+                {
+                    list.add(DropDownListItemRegistry.intern(buffer.getInt(), getString(strings, buffer.getInt())));
+                }
+            }
+            environment.setSupportedCommunications(list);
+            environments.put(key, new Entry<Environment>(environment, fingerprint));
+        }
+
+        return new CatalogSnapshot(communications, environments);
+    }
+
+    private static String getString(String[] strings, int index)
+    {
+        return index < 0 ? null : strings[index];
+    }
+
+    //endregion
+
+
+    //region Writing
+
+    /**
+     * Writes the snapshot into the file. The file is replaced as a whole, see JsonReaderWriter.writeFile.
+     * @param file
+     * @throws Exception if it cannot be written.
+     */
+    public void write(Path file) throws Exception
+    {
+        JsonReaderWriter.writeFile(file, toBytes());
+    }
+
+    private byte[] toBytes() throws IOException
+    {
+        Map<String, Integer> strings = new LinkedHashMap<String, Integer>();
+        // item => index, for each dimension.
+        List<Map<DropDownListItem, Integer>> items = new ArrayList<Map<DropDownListItem, Integer>>();
+        for (int d = 0; d < dimensions.length; d++)
+        {
+            items.add(new LinkedHashMap<DropDownListItem, Integer>());
+        }
+
+        // The tables are written first, so the definitions are written into another buffer while the tables are filled.
+        ByteArrayOutputStream definitionBytes = new ByteArrayOutputStream();
+        DataOutputStream definitionOutput = new DataOutputStream(definitionBytes);
+
+        definitionOutput.writeInt(communications.size());
+        for (Map.Entry<String, Entry<Communication>> entry : communications.entrySet())
+        {
+            Communication communication = entry.getValue().getDefinition();
+            definitionOutput.writeInt(getStringIndex(strings, entry.getKey()));
+            definitionOutput.writeLong(entry.getValue().getFingerprint());
+            definitionOutput.writeInt(getStringIndex(strings, communication.getName()));
+            definitionOutput.writeInt(getStringIndex(strings, communication.getBaseType()));
+            for (int d = 0; d < dimensions.length; d++)
+            {
+                List<DropDownListItem> list = dimensions[d].getItems(communication);
+                definitionOutput.writeInt(list == null ? -1 : list.size());
+                if (list != null)
+                {
+                    for (DropDownListItem item : list)
+                    {
+                        definitionOutput.writeByte(getItemIndex(strings, items.get(d), item));
+                    }
+                }
+            }
+        }
+
+        definitionOutput.writeInt(environments.size());
+        for (Map.Entry<String, Entry<Environment>> entry : environments.entrySet())
+        {
+            Environment environment = entry.getValue().getDefinition();
+            definitionOutput.writeInt(getStringIndex(strings, entry.getKey()));
+            definitionOutput.writeLong(entry.getValue().getFingerprint());
+            definitionOutput.writeInt(getStringIndex(strings, environment.getName()));
+            List<DropDownListItem> list = environment.getSupportedCommunications();
+            definitionOutput.writeInt(list == null ? -1 : list.size());
+            if (list != null)
+            {
+                for (DropDownListItem item : list)
+                {
+                    definitionOutput.writeInt(item.getId());
+                    definitionOutput.writeInt(getStringIndex(strings, item.getItemName()));
+                }
+            }
+        }
+        definitionOutput.flush();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(definitionBytes.size() + 1024);
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(magic);
+        output.writeInt(formatVersion);
+        output.writeInt(dimensions.length);
+
+        output.writeInt(strings.size());
+        for (String string : strings.keySet())
+        {
+            byte[] stringBytes = string.getBytes(StandardCharsets.UTF_8);
+            output.writeInt(stringBytes.length);
+            output.write(stringBytes);
+        }
+
+        for (Map<DropDownListItem, Integer> itemsOfDimension : items)
+        {
+            output.writeInt(itemsOfDimension.size());
+            for (DropDownListItem item : itemsOfDimension.keySet())
+            {
+                output.writeInt(item.getId());
+                output.writeInt(getStringIndex(strings, item.getItemName()));
+            }
+        }
+
+        definitionBytes.writeTo(output);
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    private static int getStringIndex(Map<String, Integer> strings, String string)
+    {
+        if (string == null)
+        {
+            return -1;
+        }
+        Integer index = strings.get(string);
+        if (index == null)
+        {
+            index = strings.size();
+            strings.put(string, index);
+        }
+        return index;
+    }
+
+    // Items are compared by id and itemName. A dimension has at most 64 different items (see CommunicationProfile), so one byte is enough.
+    // The index is written as one byte, so there can be 0x100 items: 0 to 0xFF.
+    private static int getItemIndex(Map<String, Integer> strings, Map<DropDownListItem, Integer> items, DropDownListItem item) throws IOException
+    {
+        Integer index = items.get(item);
+        if (index == null)
+        {
+            if (items.size() >= 0x100)
+            {
+                throw new IOException("Dropdown list has too many different items.");
+            }
+            getStringIndex(strings, item.getItemName());
+            index = items.size();
+            items.put(item, index);
+        }
+        return index;
+    }
+
+    //endregion
+}
@@ -0,0 +1,337 @@
+package org.iaas.transformationanalyzer;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * Compiled form of a communication, which is used by the Analyzer.
+ *
+ * Each dropdown list of the communication (communicationPattern, requestType, headerSize, ...) is encoded as a bit mask.
+ * Every distinct item (id and itemName) of a dropdown list gets one bit, so that
+ * "all the items of old are in new" becomes (old & ~new) == 0 instead of nested loops with String.equals.
+ *
+ * The bits are given when an item is seen for the first time and they never change. (One vocabulary per dropdown list)
+ * That's why the masks of all the profiles can be compared with each other.
+ * A communication gets the bits of all its items or none: if a dropdown list has no room for its new items,
+ * compile throws before any bit is given.
+ * The bits are never freed, an item keeps its bit even if no communication has it anymore (e.g. a deleted or edited file).
+ * So a full dropdown list stays full until the server is restarted. That is logged and counted as a "vocabulary" error in Metrics.
+ *
+ * A profile never changes after it is compiled. If the communication changes, compile it again.
+ */
+public final class CommunicationProfile
+{
+    private static final Logger logger = Logger.getLogger(CommunicationProfile.class.getName());
+
+    /**
+     * The dropdown lists of a communication.
+     */
+    enum Dimension
+    {
+        COMMUNICATION_TYPE("communicationType", Communication::getCommunicationType, Communication::setCommunicationType),
+        COMMUNICATION_PATTERN("communicationPattern", Communication::getCommunicationPattern, Communication::setCommunicationPattern),
+        REQUEST_TYPE("requestType", Communication::getRequestType, Communication::setRequestType),
+        HEADER_SIZE("headerSize", Communication::getHeaderSize, Communication::setHeaderSize),
+        PAYLOAD_TYPE("payloadType", Communication::getPayloadType, Communication::setPayloadType),
+        PAYLOAD_SIZE("payloadSize", Communication::getPayloadSize, Communication::setPayloadSize),
+        SECURITY_TYPE("securityType", Communication::getSecurityType, Communication::setSecurityType),
+        AUTHENTICATION_TYPE("authenticationType", Communication::getAuthenticationType, Communication::setAuthenticationType),
+        QOS_TYPE("qosType", Communication::getQosType, Communication::setQosType),
+        IOT_LEVEL("iotLevel", Communication::getIotLevel, Communication::setIotLevel);
+
+        private final String fieldName;
+        private final Function<Communication, List<DropDownListItem>> items;
+        private final BiConsumer<Communication, List<DropDownListItem>> setItems;
+        private final Vocabulary vocabulary;
+
+        Dimension(String fieldName, Function<Communication, List<DropDownListItem>> items, BiConsumer<Communication, List<DropDownListItem>> setItems)
+        {
+            this.fieldName = fieldName;
+            this.items = items;
+            this.setItems = setItems;
+            this.vocabulary = new Vocabulary();
+        }
+
+        /**
+         * Name of this dropdown list in the Json of a communication.
+         */
+        String getFieldName()
+        {
+            return fieldName;
+        }
+
+        /**
+         * Gets this dropdown list of the communication.
+         */
+        List<DropDownListItem> getItems(Communication communication)
+        {
+            return items.apply(communication);
+        }
+
+        /**
+         * Sets this dropdown list of the communication. (e.g. when it is read from CatalogSnapshot)
+         */
+        void setItems(Communication communication, List<DropDownListItem> list)
+        {
+            setItems.accept(communication, list);
+        }
+    }
+
+    private static final Dimension[] dimensions = Dimension.values();
+
+    // The bits of all the dropdown lists are given under this lock, so a communication gets all of its bits or none.
+    private static final Object vocabularyLock = new Object();
+
+    private final Communication communication;
+
+    // Ordinal of Analyzer.BaseType and Analyzer.CommTypes (only if there is one communication type), -1 if unknown.
+    private final int baseTypeIndex;
+    private final int communicationTypeIndex;
+
+    // Indexed by Dimension.ordinal()
+    private final long[] masks;
+    private final int[] sizes;
+
+    // How many times each bit is in the list. Only set for the lists which have the same item more than once.
+    private final int[][] multiplicities;
+
+
+    private CommunicationProfile(Communication communication, long[] masks, int[] sizes, int[][] multiplicities)
+    {
+        this.communication = communication;
+        this.baseTypeIndex = Analyzer.BaseType.indexOf(communication.getBaseType());
+
+        List<DropDownListItem> communicationType = communication.getCommunicationType();
+        this.communicationTypeIndex = communicationType != null && communicationType.size() == 1 ? Analyzer.CommTypes.indexOf(communicationType.get(0).getItemName()) : -1;
+
+        this.masks = masks;
+        this.sizes = sizes;
+        this.multiplicities = multiplicities;
+    }
+
+    /**
+     * Compiles the communication.
+     * @param communication
+     * @return
+     * @throws IllegalStateException if a dropdown list has no room for the new items. Then no bit is given.
+     */
+    public static CommunicationProfile compile(Communication communication)
+    {
+        int[][] bits = new int[dimensions.length][];
+        synchronized (vocabularyLock)
+        {
+            for (Dimension dimension : dimensions)
+            {
+                List<DropDownListItem> items = dimension.items.apply(communication);
+                if (items != null && !dimension.vocabulary.hasRoomFor(items))
+                {
+                    String message = "Dropdown list has more than " + Long.SIZE + " different items: " + dimension.getFieldName();
+                    logger.warning(message + ", " + communication.getName() + " is not compiled. (The bits are freed when the server is restarted)");
+                    Metrics.get().recordError("vocabulary");
+                    throw new IllegalStateException(message);
+                }
+            }
+            for (Dimension dimension : dimensions)
+            {
+                List<DropDownListItem> items = dimension.items.apply(communication);
+                if (items != null)
+                {
+                    bits[dimension.ordinal()] = new int[items.size()];
+                    for (int i = 0; i < items.size(); i++)
+                    {
+                        bits[dimension.ordinal()][i] = dimension.vocabulary.getBit(items.get(i));
+                    }
+                }
+            }
+        }
+
+        long[] masks = new long[dimensions.length];
+        int[] sizes = new int[dimensions.length];
+        int[][] multiplicities = new int[dimensions.length][];
+
+        for (Dimension dimension : dimensions)
+        {
+            int index = dimension.ordinal();
+            List<DropDownListItem> items = dimension.items.apply(communication);
+
+            // null list is kept as size -1, it is never equal to anything.
+            if (items == null)
+            {
+                sizes[index] = -1;
+                continue;
+            }
+
+            sizes[index] = items.size();
+            for (int bit : bits[index])
+            {
+                long bitMask = 1L << bit;
+
+                if ((masks[index] & bitMask) != 0)
+                {
+                    // Same item is selected again, remember how many times.
+                    if (multiplicities[index] == null)
+                    {
+                        multiplicities[index] = new int[Long.SIZE];
+                        for (int i = 0; i < Long.SIZE; i++)
+                        {
+                            multiplicities[index][i] = (int) ((masks[index] >>> i) & 1L);
+                        }
+                    }
+                    multiplicities[index][bit]++;
+                }
+                else if (multiplicities[index] != null)
+                {
+                    multiplicities[index][bit] = 1;
+                }
+
+                masks[index] |= bitMask;
+            }
+        }
+
+        return new CommunicationProfile(communication, masks, sizes, multiplicities);
+    }
+
+
+    public Communication getCommunication()
+    {
+        return this.communication;
+    }
+
+    public String getName()
+    {
+        return this.communication.getName();
+    }
+
+    public String getBaseType()
+    {
+        return this.communication.getBaseType();
+    }
+
+    int getBaseTypeIndex()
+    {
+        return this.baseTypeIndex;
+    }
+
+    int getCommunicationTypeIndex()
+    {
+        return this.communicationTypeIndex;
+    }
+
+
+    /**
+     * Bits of the items in the given dropdown list.
+     */
+    long getMask(Dimension dimension)
+    {
+        return this.masks[dimension.ordinal()];
+    }
+
+    /**
+     * Number of the items in the given dropdown list. (-1 if the list is null)
+     */
+    int getSize(Dimension dimension)
+    {
+        return this.sizes[dimension.ordinal()];
+    }
+
+    /**
+     * Returns whether the dropdown list has an item with the given itemName. (Any id)
+     */
+    boolean containsName(Dimension dimension, String itemName)
+    {
+        return (this.masks[dimension.ordinal()] & getNameMask(dimension, itemName)) != 0;
+    }
+
+    /**
+     * Number of the items of this dropdown list which are in the given bits.
+     * Same as the number of bits, unless an item is selected more than once.
+     */
+    int countItems(Dimension dimension, long bits)
+    {
+        int index = dimension.ordinal();
+        bits &= this.masks[index];
+        if (this.multiplicities[index] == null)
+        {
+            return Long.bitCount(bits);
+        }
+
+        int count = 0;
+        while (bits != 0)
+        {
+            count += this.multiplicities[index][Long.numberOfTrailingZeros(bits)];
+            bits &= bits - 1;
+        }
+        return count;
+    }
+
+    /**
+     * Bits of all the items (any id) with the given itemName in the given dropdown list.
+     */
+    static long getNameMask(Dimension dimension, String itemName)
+    {
+        return dimension.vocabulary.getNameMask(itemName);
+    }
+
+
+    /**
+     * Gives a bit to each distinct item (id and itemName) of one dropdown list.
+     * The items are interned (see DropDownListItemRegistry), so a lookup is mostly an identity check.
+     * The bits are only read and given under vocabularyLock. (The name masks can be read at any time)
+     */
+    private static final class Vocabulary
+    {
+        private final Map<DropDownListItem, Integer> bits = new HashMap<DropDownListItem, Integer>();
+        private final Map<String, Long> nameMasks = new ConcurrentHashMap<String, Long>();
+        private int used;
+
+        // Whether the items which do not have a bit yet can get one.
+        private boolean hasRoomFor(List<DropDownListItem> items)
+        {
+            int free = Long.SIZE - used;
+            Set<DropDownListItem> newItems = new HashSet<DropDownListItem>();
+            for (DropDownListItem item : items)
+            {
+                if (!bits.containsKey(item) && newItems.add(item) && newItems.size() > free)
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int getBit(DropDownListItem item)
+        {
+            Integer bit = bits.get(item);
+            if (bit == null)
+            {
+                if (used == Long.SIZE)
+                {
+                    throw new IllegalStateException("Dropdown list has more than " + Long.SIZE + " different items.");
+                }
+
+                bit = used++;
+                bits.put(DropDownListItemRegistry.intern(item), bit);
+
+                // itemName can be null in a broken file. It can not be looked up by name anyway.
+                if (item.getItemName() != null)
+                {
+                    nameMasks.merge(item.getItemName(), 1L << bit, (a, b) -> a | b);
+                }
+            }
+            return bit;
+        }
+
+        private long getNameMask(String itemName)
+        {
+            Long mask = nameMasks.get(itemName);
+            return mask == null ? 0L : mask;
+        }
+    }
+}
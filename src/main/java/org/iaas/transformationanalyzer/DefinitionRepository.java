@@ -0,0 +1,109 @@
+package org.iaas.transformationanalyzer;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Storage of the communication and environment definitions.
+ * The servlet and the catalog never touch the disk directly, they read and write the definitions through this.
+ *
+ * A definition is kept as Json content (UTF-8) by its folder (communications or environments) and its name.
+ * The name is the same name that comes from the front-end. (file name without json)
+ * Other Json documents of the folders (e.g. settingsDropdownElements) are kept the same way.
+ *
+ * Implementations:
+ * - JsonFolderRepository: one Json file per definition in json_data/folderName. (Default)
+ * - EmbeddedDefinitionRepository: an MVStore file with an index of the communications by baseType.
+ *
+ * The methods can be called from many threads at the same time.
+ */
+public interface DefinitionRepository extends Closeable
+{
+    /**
+     * Gets notified when a definition is changed without this repository. (e.g. a file edited by hand)
+     * The changes made with write and delete are not notified, the caller knows about them already.
+     */
+    interface Listener
+    {
+        /**
+         * @param folderName
+         * @param name of the definition, it may be created, edited or removed.
+         */
+        void definitionChanged(String folderName, String name);
+
+        /**
+         * Some changes of the folder are not known, everything in it should be read again.
+         * @param folderName
+         */
+        void folderChanged(String folderName);
+    }
+
+    void addListener(Listener listener);
+
+    /**
+     * Opens the storage. It should be called once, before anything else.
+     * @throws Exception if the storage cannot be opened.
+     */
+    void open() throws Exception;
+
+    /**
+     * Gets the names of all the documents in the folder, in order.
+     * @param folderName
+     * @return
+     * @throws Exception if the folder cannot be read.
+     */
+    List<String> getNames(String folderName) throws Exception;
+
+    /**
+     * Gets a number which changes when the content of the document changes. (See CatalogSnapshot)
+     * @param folderName
+     * @param name
+     * @return 0 if there is no such document.
+     * @throws Exception if it cannot be read.
+     */
+    long getFingerprint(String folderName, String name) throws Exception;
+
+    /**
+     * Gets the fingerprints of all the documents in the folder at once. (See getFingerprint)
+     * @param folderName
+     * @return name => fingerprint
+     * @throws Exception if the folder cannot be read.
+     */
+    Map<String, Long> getFingerprints(String folderName) throws Exception;
+
+    /**
+     * Gets the content of the definition.
+     * @param folderName
+     * @param name
+     * @return Json (UTF-8), null if there is no such definition.
+     * @throws Exception if it cannot be read.
+     */
+    byte[] read(String folderName, String name) throws Exception;
+
+    /**
+     * Creates the definition or replaces its content.
+     * @param folderName
+     * @param name
+     * @param content Json (UTF-8)
+     * @throws Exception if it cannot be written.
+     */
+    void write(String folderName, String name, byte[] content) throws Exception;
+
+    /**
+     * Removes the definition.
+     * @param folderName
+     * @param name
+     * @return false if there is no such definition.
+     * @throws Exception if it cannot be removed.
+     */
+    boolean delete(String folderName, String name) throws Exception;
+
+    /**
+     * Gets the names of the communications with the given base type, in order.
+     * @param baseType
+     * @return
+     * @throws Exception if the communications cannot be read.
+     */
+    List<String> findCommunicationsByBaseType(String baseType) throws Exception;
+}
@@ -0,0 +1,94 @@
+package org.iaas.transformationanalyzer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+
+/**
+ * How the difficulty points of a transformation are calculated, rule by rule. (explain=true)
+ *
+ * It is made only when it is asked for. Otherwise Analyzer.analysePair gets null and records nothing,
+ * so the usual analyses do not pay for it.
+ */
+public class DifficultyExplanation
+{
+    /**
+     * The rules of Analyzer.analysePair, in the order they are applied.
+     */
+    public enum Rule
+    {
+        BASE_TYPES("Base types"),
+        COMM_PATTERN("Comm. pattern"),
+        REQUEST_TYPE("Request type"),
+        PAYLOAD_TYPE("Payload type"),
+        HEADER_SIZE("Header size");
+
+        private final String value;
+
+        Rule(String value)
+        {
+            this.value = value;
+        }
+
+        public String getValue()
+        {
+            return value;
+        }
+    }
+
+    // Points added by each rule, by ordinal.
+    private final int[] points = new int[Rule.values().length];
+
+
+    /**
+     * @param rule
+     * @param points added by the rule, may be 0.
+     */
+    public void add(Rule rule, int points)
+    {
+        this.points[rule.ordinal()] += points;
+    }
+
+    public int getPoints(Rule rule)
+    {
+        return points[rule.ordinal()];
+    }
+
+    public int getTotal()
+    {
+        int total = 0;
+        for (int rulePoints : points)
+        {
+            total += rulePoints;
+        }
+        return total;
+    }
+
+    /**
+     * Writes the explanation as one line of the result.
+     * {"Difficulty calculation": [{"Rule": "Base types", "Points": 10}, ..., {"Rule": "Total", "Points": 25}]}
+     *
+     * @param generator
+     * @throws IOException if it cannot be written.
+     */
+    public void write(JsonGenerator generator) throws IOException
+    {
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("Difficulty calculation");
+        for (Rule rule : Rule.values())
+        {
+            writeStep(generator, rule.getValue(), getPoints(rule));
+        }
+        writeStep(generator, "Total", getTotal());
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    private static void writeStep(JsonGenerator generator, String rule, int points) throws IOException
+    {
+        generator.writeStartObject();
+        generator.writeStringField("Rule", rule);
+        generator.writeNumberField("Points", points);
+        generator.writeEndObject();
+    }
+}
@@ -0,0 +1,270 @@
+package org.iaas.transformationanalyzer;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The initial difficulty points of the transformation from one type to another.
+ *
+ * The points are read from json_data/difficultyMatrix.json, so they can be tuned without building the application again.
+ * The file is watched by the Catalog, after saving the file the new points are used.
+ *
+ * Two matrices are in the file:
+ * - knownTypes: between the base types of the known protocols (AMQP, MQTT, ...)
+ * - unknownTypes: between the communication types, used when one of the protocols is a brand new (NEW) protocol.
+ *
+ * Each matrix is kept as int[old][new], indexed by the ordinal of Analyzer.BaseType or Analyzer.CommTypes.
+ * The ordinals are resolved once when the communication is compiled (see CommunicationProfile),
+ * so a lookup is just two array accesses.
+ */
+public final class DifficultyMatrix
+{
+    public static final String fileName = "difficultyMatrix.json";
+
+    // Format of the file which can be read. A file of another version is rejected, its points may mean something else.
+    static final int supportedVersion = 1;
+
+    private final int version;
+
+    private final int[][] knownTypePoints;
+    private final int knownTypeDefaultPoints;
+
+    private final int[][] unknownTypePoints;
+    private final int unknownTypeDefaultPoints;
+
+
+    private DifficultyMatrix(int version, int[][] knownTypePoints, int knownTypeDefaultPoints, int[][] unknownTypePoints, int unknownTypeDefaultPoints)
+    {
+        this.version = version;
+        this.knownTypePoints = knownTypePoints;
+        this.knownTypeDefaultPoints = knownTypeDefaultPoints;
+        this.unknownTypePoints = unknownTypePoints;
+        this.unknownTypeDefaultPoints = unknownTypeDefaultPoints;
+    }
+
+    /**
+     * Reads the matrix from the given file.
+     * @param file
+     * @return
+     * @throws Exception if the file can not be read or the content is not valid.
+     */
+    public static DifficultyMatrix load(Path file) throws Exception
+    {
+        Definition definition = new JsonReaderWriter<Definition>(Definition.class).ConvertJsonFileToJavaObj(file.toString());
+        if (definition.getVersion() != supportedVersion)
+        {
+            throw new Exception("Version of the difficulty points is not supported: " + definition.getVersion() + " (" + supportedVersion + " is expected) " + file.getFileName());
+        }
+        if (definition.getDifficultyPoints() == null)
+        {
+            throw new Exception("Difficulty points are missing: " + file.getFileName());
+        }
+
+        TypePoints known = definition.getDifficultyPoints().getKnownTypes();
+        TypePoints unknown = definition.getDifficultyPoints().getUnknownTypes();
+
+        return new DifficultyMatrix(definition.getVersion(),
+                toMatrix("knownTypes", known, Analyzer.BaseType.values().length, Analyzer.BaseType::indexOf),
+                known.getDefaultPoints(),
+                toMatrix("unknownTypes", unknown, Analyzer.CommTypes.values().length, Analyzer.CommTypes::indexOf),
+                unknown.getDefaultPoints());
+    }
+
+    /**
+     * Puts the points into a matrix indexed by the ordinals of the types. The types which are not listed get the default points.
+     */
+    private static int[][] toMatrix(String name, TypePoints typePoints, int typeCount, TypeIndex typeIndex) throws Exception
+    {
+        if (typePoints == null || typePoints.getPoints() == null || typePoints.getTypes() == null || typePoints.getPoints().size() != typePoints.getTypes().size())
+        {
+            throw new Exception("There should be one row of points for each type: " + name);
+        }
+
+        int[][] matrix = new int[typeCount][typeCount];
+        for (int[] row : matrix)
+        {
+            Arrays.fill(row, typePoints.getDefaultPoints());
+        }
+
+        int[] ordinals = new int[typePoints.getTypes().size()];
+        for (int i = 0; i < ordinals.length; i++)
+        {
+            ordinals[i] = typeIndex.indexOf(typePoints.getTypes().get(i));
+            if (ordinals[i] < 0)
+            {
+                throw new Exception("Unknown type in " + name + ": " + typePoints.getTypes().get(i));
+            }
+        }
+
+        for (int i = 0; i < ordinals.length; i++)
+        {
+            List<Integer> row = typePoints.getPoints().get(i);
+            if (row == null || row.size() != ordinals.length)
+            {
+                throw new Exception("There should be one column of points for each type: " + name + ", row " + typePoints.getTypes().get(i));
+            }
+            for (int j = 0; j < ordinals.length; j++)
+            {
+                if (row.get(j) == null)
+                {
+                    throw new Exception("Points are missing: " + name + ", row " + typePoints.getTypes().get(i) + ", column " + typePoints.getTypes().get(j));
+                }
+                matrix[ordinals[i]][ordinals[j]] = row.get(j);
+            }
+        }
+
+        return matrix;
+    }
+
+
+    public int getVersion()
+    {
+        return this.version;
+    }
+
+    /**
+     * Points between two known base types. Index is the ordinal of Analyzer.BaseType, -1 for an unknown type.
+     */
+    public int getKnownTypePoints(int typeOld, int typeNew)
+    {
+        if (typeOld < 0 || typeNew < 0)
+        {
+            return knownTypeDefaultPoints;
+        }
+        return knownTypePoints[typeOld][typeNew];
+    }
+
+    /**
+     * Points between two communication types. Index is the ordinal of Analyzer.CommTypes, -1 for an unknown type.
+     */
+    public int getUnknownTypePoints(int typeOld, int typeNew)
+    {
+        if (typeOld < 0 || typeNew < 0)
+        {
+            return unknownTypeDefaultPoints;
+        }
+        return unknownTypePoints[typeOld][typeNew];
+    }
+
+
+    private interface TypeIndex
+    {
+        int indexOf(String value);
+    }
+
+
+    //region Json content of the file
+
+    /**
+     * The class definition of the json file.
+     */
+    public static class Definition
+    {
+        private int version;
+        private String description;
+        private Matrices difficultyPoints;
+
+        public int getVersion()
+        {
+            return this.version;
+        }
+
+        public void setVersion(int version)
+        {
+            this.version = version;
+        }
+
+        public String getDescription()
+        {
+            return this.description;
+        }
+
+        public void setDescription(String description)
+        {
+            this.description = description;
+        }
+
+        public Matrices getDifficultyPoints()
+        {
+            return this.difficultyPoints;
+        }
+
+        public void setDifficultyPoints(Matrices difficultyPoints)
+        {
+            this.difficultyPoints = difficultyPoints;
+        }
+    }
+
+    public static class Matrices
+    {
+        private TypePoints knownTypes;
+        private TypePoints unknownTypes;
+
+        public TypePoints getKnownTypes()
+        {
+            return this.knownTypes;
+        }
+
+        public void setKnownTypes(TypePoints knownTypes)
+        {
+            this.knownTypes = knownTypes;
+        }
+
+        public TypePoints getUnknownTypes()
+        {
+            return this.unknownTypes;
+        }
+
+        public void setUnknownTypes(TypePoints unknownTypes)
+        {
+            this.unknownTypes = unknownTypes;
+        }
+    }
+
+    public static class TypePoints
+    {
+        private List<String> types;
+        private int defaultPoints;
+        private List<List<Integer>> points;
+
+        public TypePoints()
+        {
+            this.types = new ArrayList<String>();
+            this.points = new ArrayList<List<Integer>>();
+        }
+
+        public List<String> getTypes()
+        {
+            return this.types;
+        }
+
+        public void setTypes(List<String> types)
+        {
+            this.types = types;
+        }
+
+        public int getDefaultPoints()
+        {
+            return this.defaultPoints;
+        }
+
+        public void setDefaultPoints(int defaultPoints)
+        {
+            this.defaultPoints = defaultPoints;
+        }
+
+        public List<List<Integer>> getPoints()
+        {
+            return this.points;
+        }
+
+        public void setPoints(List<List<Integer>> points)
+        {
+            this.points = points;
+        }
+    }
+
+    //endregion
+}
@@ -1,5 +1,7 @@
 package org.iaas.transformationanalyzer;
 
+import java.util.Objects;
+
 /**
  * The class definition for json objects of communication types.
  * It is used to get the JSON content (from file or from string) as a Java object.
@@ -10,20 +12,33 @@ package org.iaas.transformationanalyzer;
  * The getter and setter should be getFieldName, setFieldName. get or set then continue with name of the field name.
  * The first letter should be capital.
  *
+ * Two items are equal if both id and itemName are the same.
+ * The items read from Json are interned (see DropDownListItemRegistry), so equal items are usually the same object.
+ * An interned item is shared and its fields are in equals/hashCode, so it cannot be changed: its setters throw.
+ * The registry makes interned items itself, an item made with a constructor can always be changed.
  */
 public class DropDownListItem
 {
     private int id;
     private String itemName;
+    // Set only by DropDownListItemRegistry.
+    private final boolean interned;
 
     public DropDownListItem()
     {
+        this.interned = false;
     }
 
     public DropDownListItem(int id, String itemName)
+    {
+        this(id, itemName, false);
+    }
+
+    DropDownListItem(int id, String itemName, boolean interned)
     {
         this.id = id;
         this.itemName = itemName;
+        this.interned = interned;
     }
 
     public int getId()
@@ -33,6 +48,7 @@ public class DropDownListItem
 
     public void setId(int id)
     {
+        checkNotInterned();
         this.id = id;
     }
 
@@ -43,6 +59,44 @@ public class DropDownListItem
 
     public void setItemName(String itemName)
     {
+        checkNotInterned();
         this.itemName = itemName;
     }
+
+    /**
+     * @return whether it is the canonical instance of DropDownListItemRegistry, which cannot be changed.
+     */
+    boolean isInterned()
+    {
+        return this.interned;
+    }
+
+    private void checkNotInterned()
+    {
+        if (this.interned)
+        {
+            throw new UnsupportedOperationException("Interned dropdown list item cannot be changed: " + this.itemName);
+        }
+    }
+
+    @Override
+    public boolean equals(Object other)
+    {
+        if (this == other)
+        {
+            return true;
+        }
+        if (!(other instanceof DropDownListItem))
+        {
+            return false;
+        }
+        DropDownListItem item = (DropDownListItem) other;
+        return this.id == item.id && Objects.equals(this.itemName, item.itemName);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * id + Objects.hashCode(itemName);
+    }
 }
@@ -0,0 +1,148 @@
+package org.iaas.transformationanalyzer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Canonical instances of the dropdown list items, so that equal items (id and itemName) are the same object.
+ *
+ * Thousands of communications select the same few items ("TLS", "Publish/Subscribe", ...).
+ * Without this, each one has its own copies of them. Every DropDownListItem read from Json goes through here
+ * (see Deserializer, it is registered in JsonReaderWriter), and so does CatalogSnapshot.
+ *
+ * The vocabulary (communications/Default.json has all the items of the dropdown lists) is interned first, see Catalog.open.
+ * Other items (e.g. the supported communications of an environment) are interned when they are seen,
+ * up to maxSize items. After that, a new item is used as it is. (Equal items are still equal, see DropDownListItem.equals)
+ *
+ * An interned item is shared, so it cannot be changed (see DropDownListItem).
+ * The registry keeps its own copy of each item, the item given to intern is never shared.
+ */
+public final class DropDownListItemRegistry
+{
+    private static final int maxSize = 65536;
+
+    private static final ConcurrentMap<DropDownListItem, DropDownListItem> items = new ConcurrentHashMap<DropDownListItem, DropDownListItem>();
+
+
+    private DropDownListItemRegistry()
+    {
+    }
+
+    /**
+     * Gets the canonical instance of the item.
+     * @param item
+     * @return the interned one, or the item itself if the registry is full.
+     */
+    public static DropDownListItem intern(DropDownListItem item)
+    {
+        if (item.isInterned())
+        {
+            return item;
+        }
+        DropDownListItem interned = items.get(item);
+        if (interned != null)
+        {
+            return interned;
+        }
+        if (items.size() >= maxSize)
+        {
+            return item;
+        }
+
+        DropDownListItem copy = new DropDownListItem(item.getId(), item.getItemName(), true);
+        interned = items.putIfAbsent(copy, copy);
+        return interned != null ? interned : copy;
+    }
+
+    public static DropDownListItem intern(int id, String itemName)
+    {
+        return intern(new DropDownListItem(id, itemName));
+    }
+
+    /**
+     * Interns all the items of the dropdown lists of the communication.
+     * @param vocabulary communication which has all the items. (communications/Default.json)
+     */
+    public static void addVocabulary(Communication vocabulary)
+    {
+        for (CommunicationProfile.Dimension dimension : CommunicationProfile.Dimension.values())
+        {
+            List<DropDownListItem> list = dimension.getItems(vocabulary);
+            if (list != null)
+            {
+                for (int i = 0; i < list.size(); i++)
+                {
+                    list.set(i, intern(list.get(i)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Number of the interned items.
+     */
+    public static int size()
+    {
+        return items.size();
+    }
+
+
+    /**
+     * Reads a DropDownListItem and returns its canonical instance.
+     * Same Json as the default deserializer: {"id": 1, "itemName": "..."}, an unknown field is an error.
+     */
+    static final class Deserializer extends StdDeserializer<DropDownListItem>
+    {
+        private static final long serialVersionUID = 1L;
+
+        Deserializer()
+        {
+            super(DropDownListItem.class);
+        }
+
+        @Override
+        public DropDownListItem deserialize(JsonParser parser, DeserializationContext context) throws IOException
+        {
+            JsonToken token = parser.getCurrentToken();
+            if (token == JsonToken.START_OBJECT)
+            {
+                token = parser.nextToken();
+            }
+            else if (token != JsonToken.FIELD_NAME)
+            {
+                throw context.mappingException(DropDownListItem.class, token);
+            }
+
+            int id = 0;
+            String itemName = null;
+            for (; token == JsonToken.FIELD_NAME; token = parser.nextToken())
+            {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if (field.equals("id"))
+                {
+                    id = parser.getValueAsInt();
+                }
+                else if (field.equals("itemName"))
+                {
+                    itemName = parser.getCurrentToken() == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+                }
+                else if (!context.handleUnknownProperty(parser, this, DropDownListItem.class, field))
+                {
+                    // Throws, unless FAIL_ON_UNKNOWN_PROPERTIES is disabled.
+                    context.reportUnknownProperty(DropDownListItem.class, field, this);
+                    parser.skipChildren();
+                }
+            }
+
+            return intern(id, itemName);
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package org.iaas.transformationanalyzer;
+
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.iaas.transformationanalyzer.Metrics.Stage;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Definitions in an embedded MVStore file (the storage engine of H2), for catalogs with many definitions.
+ * Opening it does not read tens of thousands of small files, and a lookup does not touch the disk (pages are cached).
+ *
+ * Each folder is a map of name => Json content, the names are kept in order.
+ * The communications are indexed by baseType too: "baseType\0name" => name,
+ * so findCommunicationsByBaseType reads only the matching keys of the index.
+ *
+ * The fingerprint of a definition is the CRC-32 of its content.
+ *
+ * If the store is empty when it is opened, the Json files of the folders are imported once. (See JsonFolderRepository)
+ * Then the store is the only storage, the files are not used anymore.
+ *
+ * Writes are serialized, each one is committed to the file before it returns. Reads are never blocked.
+ * Nothing else changes the store, so the listeners are never notified.
+ */
+public class EmbeddedDefinitionRepository implements DefinitionRepository
+{
+    private static final String baseTypeIndexName = "communicationsByBaseType";
+
+    // Between the baseType and the name in the keys of the index. It cannot be in a name.
+    private static final char indexSeparator = '\0';
+
+    private final Path storeFile;
+    private final Path jsonDataPath;
+    private final String communicationsFolder;
+    private final String environmentsFolder;
+
+    private MVStore store;
+    private Map<String, MVMap<String, byte[]>> folders;
+    private MVMap<String, String> baseTypeIndex;
+
+
+    /**
+     * @param storeFile file of the store, it is created if it does not exist.
+     * @param jsonDataPath json_data folder, the files are imported from here into an empty store. null to start empty.
+     * @param communicationsFolder
+     * @param environmentsFolder
+     */
+    public EmbeddedDefinitionRepository(Path storeFile, Path jsonDataPath, String communicationsFolder, String environmentsFolder)
+    {
+        this.storeFile = storeFile;
+        this.jsonDataPath = jsonDataPath;
+        this.communicationsFolder = communicationsFolder;
+        this.environmentsFolder = environmentsFolder;
+    }
+
+    /**
+     * Nothing is notified, see the class comment.
+     */
+    @Override
+    public void addListener(Listener listener)
+    {
+    }
+
+
+    /**
+     * Opens the store, imports the Json files if it is empty.
+     * @throws Exception if the store cannot be opened or the files cannot be imported.
+     */
+    @Override
+    public void open() throws Exception
+    {
+        try
+        {
+            store = new MVStore.Builder().fileName(storeFile.toString()).compress().open();
+        }
+        catch (IllegalStateException e)
+        {
+            throw new Exception("Could not open the store: " + storeFile.getFileName(), e);
+        }
+
+        folders = new HashMap<String, MVMap<String, byte[]>>();
+        for (String folderName : new String[] { communicationsFolder, environmentsFolder })
+        {
+            folders.put(folderName, store.<String, byte[]>openMap(folderName));
+        }
+        baseTypeIndex = store.openMap(baseTypeIndexName);
+
+        if (jsonDataPath != null && folders.get(communicationsFolder).isEmpty() && folders.get(environmentsFolder).isEmpty())
+        {
+            importFolders(new JsonFolderRepository(jsonDataPath, communicationsFolder, environmentsFolder));
+        }
+    }
+
+    // Copies every document of both folders, then commits once.
+    // (The JsonFolderRepository is not opened, so it does not watch the folders)
+    private synchronized void importFolders(JsonFolderRepository files) throws Exception
+    {
+        for (String folderName : folders.keySet())
+        {
+            for (String name : files.getNames(folderName))
+            {
+                byte[] content = files.read(folderName, name);
+                if (content != null)
+                {
+                    put(folderName, name, content);
+                }
+            }
+        }
+        store.commit();
+    }
+
+    /**
+     * Writes everything to the file and closes the store.
+     */
+    @Override
+    public void close()
+    {
+        if (store != null)
+        {
+            store.close();
+        }
+    }
+
+
+    //region DefinitionRepository
+
+    @Override
+    public List<String> getNames(String folderName) throws Exception
+    {
+        return new ArrayList<String>(getFolder(folderName).keyList());
+    }
+
+    @Override
+    public long getFingerprint(String folderName, String name) throws Exception
+    {
+        byte[] content = read(folderName, name);
+        return content == null ? 0 : getFingerprint(content);
+    }
+
+    @Override
+    public Map<String, Long> getFingerprints(String folderName) throws Exception
+    {
+        Map<String, Long> fingerprints = new HashMap<String, Long>();
+        for (Map.Entry<String, byte[]> entry : getFolder(folderName).entrySet())
+        {
+            fingerprints.put(entry.getKey(), getFingerprint(entry.getValue()));
+        }
+        return fingerprints;
+    }
+
+    // Never 0, that means there is no definition.
+    private static long getFingerprint(byte[] content)
+    {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return crc.getValue() | (1L << 32);
+    }
+
+    @Override
+    public byte[] read(String folderName, String name) throws Exception
+    {
+        MVMap<String, byte[]> folder = getFolder(folderName);
+        checkName(name);
+
+        long start = System.nanoTime();
+        try
+        {
+            return folder.get(name);
+        }
+        catch (IllegalStateException e) { throw JsonReaderWriter.failed(Stage.FILE_READ, "Could not read the definition: " + name, e); }
+        finally { Metrics.get().recordStage(Stage.FILE_READ, start); }
+    }
+
+    @Override
+    public synchronized void write(String folderName, String name, byte[] content) throws Exception
+    {
+        checkName(name);
+
+        long start = System.nanoTime();
+        try
+        {
+            put(folderName, name, content);
+            store.commit();
+        }
+        catch (IllegalStateException e) { throw JsonReaderWriter.failed(Stage.FILE_WRITE, "Could not write the definition: " + name, e); }
+        finally { Metrics.get().recordStage(Stage.FILE_WRITE, start); }
+    }
+
+    @Override
+    public synchronized boolean delete(String folderName, String name) throws Exception
+    {
+        MVMap<String, byte[]> folder = getFolder(folderName);
+        checkName(name);
+
+        long start = System.nanoTime();
+        try
+        {
+            byte[] previous = folder.remove(name);
+            if (previous == null)
+            {
+                return false;
+            }
+            if (folderName.equals(communicationsFolder))
+            {
+                updateIndex(name, previous, null);
+            }
+            store.commit();
+            return true;
+        }
+        catch (IllegalStateException e) { throw JsonReaderWriter.failed(Stage.FILE_WRITE, "Could not delete the definition: " + name, e); }
+        finally { Metrics.get().recordStage(Stage.FILE_WRITE, start); }
+    }
+
+    @Override
+    public List<String> findCommunicationsByBaseType(String baseType) throws Exception
+    {
+        List<String> names = new ArrayList<String>();
+        String prefix = baseType + indexSeparator;
+
+        // Keys are in order, so the matching ones come one after another.
+        Iterator<String> keys = baseTypeIndex.keyIterator(prefix);
+        while (keys.hasNext())
+        {
+            String key = keys.next();
+            if (!key.startsWith(prefix))
+            {
+                break;
+            }
+            names.add(key.substring(prefix.length()));
+        }
+        return names;
+    }
+
+    //endregion
+
+
+    // Puts the content and updates the index, without commit.
+    private void put(String folderName, String name, byte[] content) throws Exception
+    {
+        byte[] previous = getFolder(folderName).put(name, content);
+        if (folderName.equals(communicationsFolder))
+        {
+            updateIndex(name, previous, content);
+        }
+    }
+
+    // Replaces the index key of the communication. (Content is null if it is removed)
+    private void updateIndex(String name, byte[] previousContent, byte[] content)
+    {
+        String previousBaseType = getBaseType(name, previousContent);
+        String baseType = getBaseType(name, content);
+        if (previousBaseType != null && !previousBaseType.equals(baseType))
+        {
+            baseTypeIndex.remove(previousBaseType + indexSeparator + name);
+        }
+        if (baseType != null)
+        {
+            baseTypeIndex.put(baseType + indexSeparator + name, name);
+        }
+    }
+
+    // null if the content is not a valid communication, then it is not in the index.
+    private static String getBaseType(String name, byte[] content)
+    {
+        if (content == null)
+        {
+            return null;
+        }
+        try
+        {
+            return JsonReaderWriter.ReadJsonTextField(content, name, "baseType");
+        }
+        catch (Exception e)
+        {
+            return null;
+        }
+    }
+
+    private MVMap<String, byte[]> getFolder(String folderName) throws Exception
+    {
+        MVMap<String, byte[]> folder = folders.get(folderName);
+        if (folder == null)
+        {
+            throw new Exception("Folder is not known: " + folderName);
+        }
+        return folder;
+    }
+
+    // Same names as JsonFolderRepository accepts, so the definitions can be moved between them.
+    private static void checkName(String name) throws Exception
+    {
+        if (name.isEmpty() || name.indexOf('/') >= 0 || name.indexOf('\\') >= 0 || name.equals("..") || name.indexOf(indexSeparator) >= 0)
+        {
+            throw new Exception("Name is not valid: " + name);
+        }
+    }
+}
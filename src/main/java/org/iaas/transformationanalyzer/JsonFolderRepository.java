@@ -0,0 +1,356 @@
+package org.iaas.transformationanalyzer;
+
+import org.iaas.transformationanalyzer.Metrics.Stage;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Definitions as Json files: json_data/folderName/name.json
+ * This is how the definitions have always been kept, the files can be edited by hand too.
+ *
+ * The paths are made with java.nio.file.Path, so the separator of the platform is used. (Windows and Linux)
+ * Only plain names are accepted, a name cannot point outside of its folder.
+ *
+ * A file is written into a temporary file and then moved over the previous one in one step (see JsonReaderWriter.writeFile),
+ * so a reader always sees a whole file without any lock. Writes (and deletes) of the same name are serialized
+ * with a lock per name. The names are spread over a fixed number of locks, so writes of different names rarely wait.
+ *
+ * Both folders are watched with a WatchService. When a file is created, edited or deleted by someone else,
+ * the listeners are notified on the watcher thread.
+ *
+ * The fingerprint of a file is made from its modification time, size and file key (inode),
+ * so the files are not read for it. Each write makes a new file (see above), so its file key changes too.
+ *
+ * There is no index, findCommunicationsByBaseType reads every communication file.
+ */
+public class JsonFolderRepository implements DefinitionRepository
+{
+    private static final String extension = ".json";
+
+    // Power of two, see getLock.
+    private static final int lockCount = 64;
+
+    private final Path jsonDataPath;
+    private final String communicationsFolder;
+    private final String environmentsFolder;
+
+    private final List<Listener> listeners;
+    private final Object[] locks;
+
+    private WatchService watchService;
+    private Map<WatchKey, String> watchedFolders;
+    private Thread watcherThread;
+
+
+    /**
+     * @param jsonDataPath json_data folder
+     * @param communicationsFolder
+     * @param environmentsFolder
+     */
+    public JsonFolderRepository(Path jsonDataPath, String communicationsFolder, String environmentsFolder)
+    {
+        this.jsonDataPath = jsonDataPath;
+        this.communicationsFolder = communicationsFolder;
+        this.environmentsFolder = environmentsFolder;
+        this.listeners = new CopyOnWriteArrayList<Listener>();
+
+        this.locks = new Object[lockCount];
+        for (int i = 0; i < lockCount; i++)
+        {
+            locks[i] = new Object();
+        }
+    }
+
+    @Override
+    public void addListener(Listener listener)
+    {
+        listeners.add(listener);
+    }
+
+
+    //region Watching
+
+    /**
+     * Starts watching both folders.
+     * @throws IOException if a folder cannot be watched.
+     */
+    @Override
+    public void open() throws IOException
+    {
+        watchService = jsonDataPath.getFileSystem().newWatchService();
+        watchedFolders = new ConcurrentHashMap<WatchKey, String>();
+        for (String folderName : new String[] { communicationsFolder, environmentsFolder })
+        {
+            WatchKey key = jsonDataPath.resolve(folderName).register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            watchedFolders.put(key, folderName);
+        }
+
+        watcherThread = new Thread(this::watchFolders, "definition-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+    }
+
+    /**
+     * Stops watching the folders.
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (watchService != null)
+        {
+            watchService.close();
+        }
+        if (watcherThread != null)
+        {
+            watcherThread.interrupt();
+        }
+    }
+
+    /**
+     * Runs on the watcher thread until the repository is closed.
+     */
+    private void watchFolders()
+    {
+        while (!Thread.currentThread().isInterrupted())
+        {
+            WatchKey key;
+            try
+            {
+                key = watchService.take();
+            }
+            catch (InterruptedException | ClosedWatchServiceException e)
+            {
+                return;
+            }
+
+            String folderName = watchedFolders.get(key);
+            for (WatchEvent<?> event : key.pollEvents())
+            {
+                // Some events are lost, so the whole folder should be read again.
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+                {
+                    for (Listener listener : listeners)
+                    {
+                        listener.folderChanged(folderName);
+                    }
+                    continue;
+                }
+
+                String fileName = event.context().toString();
+                if (fileName.endsWith(extension))
+                {
+                    String name = fileName.substring(0, fileName.length() - extension.length());
+                    for (Listener listener : listeners)
+                    {
+                        listener.definitionChanged(folderName, name);
+                    }
+                }
+            }
+
+            if (!key.reset())
+            {
+                watchedFolders.remove(key);
+            }
+        }
+    }
+
+    //endregion
+
+
+    //region DefinitionRepository
+
+    @Override
+    public List<String> getNames(String folderName) throws Exception
+    {
+        List<String> names = new ArrayList<String>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(getFolderPath(folderName), "*" + extension))
+        {
+            for (Path file : files)
+            {
+                if (Files.isRegularFile(file))
+                {
+                    String fileName = file.getFileName().toString();
+                    names.add(fileName.substring(0, fileName.length() - extension.length()));
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            throw new Exception("Folder cannot be read: " + folderName, e);
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    @Override
+    public long getFingerprint(String folderName, String name) throws Exception
+    {
+        Path file = getFilePath(folderName, name);
+        try
+        {
+            return getFingerprint(Files.readAttributes(file, BasicFileAttributes.class));
+        }
+        catch (IOException e)
+        {
+            // Not there (anymore)
+            return 0;
+        }
+    }
+
+    @Override
+    public Map<String, Long> getFingerprints(String folderName) throws Exception
+    {
+        Map<String, Long> fingerprints = new HashMap<String, Long>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(getFolderPath(folderName), "*" + extension))
+        {
+            for (Path file : files)
+            {
+                BasicFileAttributes attributes;
+                try
+                {
+                    attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                }
+                catch (IOException e)
+                {
+                    // Removed in the meantime.
+                    continue;
+                }
+
+                if (attributes.isRegularFile())
+                {
+                    String fileName = file.getFileName().toString();
+                    fingerprints.put(fileName.substring(0, fileName.length() - extension.length()), getFingerprint(attributes));
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            throw new Exception("Folder cannot be read: " + folderName, e);
+        }
+        return fingerprints;
+    }
+
+    private static long getFingerprint(BasicFileAttributes attributes)
+    {
+        long fingerprint = attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+        fingerprint = 31 * fingerprint + attributes.size();
+        fingerprint = 31 * fingerprint + Objects.hashCode(attributes.fileKey());
+
+        // 0 means there is no file.
+        return fingerprint == 0 ? 1 : fingerprint;
+    }
+
+    @Override
+    public byte[] read(String folderName, String name) throws Exception
+    {
+        Path file = getFilePath(folderName, name);
+        if (!Files.isRegularFile(file))
+        {
+            return null;
+        }
+        return JsonReaderWriter.readFile(file);
+    }
+
+    @Override
+    public void write(String folderName, String name, byte[] content) throws Exception
+    {
+        Path file = getFilePath(folderName, name);
+        synchronized (getLock(folderName, name))
+        {
+            JsonReaderWriter.writeFile(file, content);
+        }
+    }
+
+    @Override
+    public boolean delete(String folderName, String name) throws Exception
+    {
+        Path file = getFilePath(folderName, name);
+        synchronized (getLock(folderName, name))
+        {
+            try
+            {
+                return Files.deleteIfExists(file);
+            }
+            catch (IOException e)
+            {
+                throw JsonReaderWriter.failed(Stage.FILE_WRITE, "Could not delete the file: " + file.getFileName(), e);
+            }
+        }
+    }
+
+    /**
+     * Reads the baseType of each communication file. A file which cannot be parsed is left out.
+     */
+    @Override
+    public List<String> findCommunicationsByBaseType(String baseType) throws Exception
+    {
+        List<String> names = new ArrayList<String>();
+        for (String name : getNames(communicationsFolder))
+        {
+            byte[] content = read(communicationsFolder, name);
+            try
+            {
+                if (content != null && baseType.equals(JsonReaderWriter.ReadJsonTextField(content, name + extension, "baseType")))
+                {
+                    names.add(name);
+                }
+            }
+            catch (Exception e)
+            {
+                // Not a valid communication.
+            }
+        }
+        return names;
+    }
+
+    //endregion
+
+
+    // Same name, same lock. The hash is spread, so the similar names (Gen1, Gen2, ...) do not share the same lock.
+    private Object getLock(String folderName, String name)
+    {
+        int hash = (folderName + "/" + name).hashCode();
+        return locks[(hash ^ (hash >>> 16)) & (lockCount - 1)];
+    }
+
+    private Path getFolderPath(String folderName) throws Exception
+    {
+        if (!folderName.equals(communicationsFolder) && !folderName.equals(environmentsFolder))
+        {
+            throw new Exception("Folder is not known: " + folderName);
+        }
+        return jsonDataPath.resolve(folderName);
+    }
+
+    // Only plain names, nothing outside of the folder.
+    private Path getFilePath(String folderName, String name) throws Exception
+    {
+        Path folder = getFolderPath(folderName);
+        Path file = folder.resolve(name + extension).normalize();
+        if (name.isEmpty() || name.indexOf('/') >= 0 || name.indexOf('\\') >= 0 || !folder.equals(file.getParent()))
+        {
+            throw new Exception("Name is not valid: " + name);
+        }
+        return file;
+    }
+}
@@ -1,12 +1,35 @@
 package org.iaas.transformationanalyzer;
 
-import com.fasterxml.jackson.core.JsonGenerationException;
-import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+import org.iaas.transformationanalyzer.Metrics.Stage;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * This is a template class.
@@ -24,18 +47,66 @@ import java.io.IOException;
  * JAVA_OBJECT <=> JSON File
  * JAVA_OBJECT <=> JSON String
  * JSON String <=> JSON File
+ * JSON Bytes => JAVA_OBJECT, JSON String, JsonGenerator (content from a DefinitionRepository)
+ * JAVA_OBJECT => JSON Bytes (content for a DefinitionRepository)
+ *
+ * Streams can be used instead of Strings too (InputStream => JAVA_OBJECT, JAVA_OBJECT => Writer, JSON File => Writer).
+ * A response can be written part by part with a JsonGenerator, see CreateJsonGenerator.
  *
+ * Creating an ObjectMapper is expensive. There is only one mapper for the whole application.
+ * The readers and writers of each class are created once from it and shared. They are immutable and thread-safe,
+ * so creating many JsonReaderWriter objects is cheap.
  *
+ * Files are read (or written) as a whole first, then parsed (or serialized), so that the time of each stage
+ * is recorded separately in Metrics. An error is counted in Metrics by its stage and logged,
+ * then thrown as an Exception with a short message which can be shown to the user.
  */
 
 public class JsonReaderWriter<T>
 {
-    private Class<T> classTypeExplicit;
+    private static final Logger logger = Logger.getLogger(JsonReaderWriter.class.getName());
+
+    // Streams given by the callers are never closed here. (Files opened here are closed anyway)
+    // The dropdown list items are interned while they are read, see DropDownListItemRegistry.
+    private static final ObjectMapper mapper = new ObjectMapper()
+            .disable(JsonParser.Feature.AUTO_CLOSE_SOURCE)
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .registerModule(new SimpleModule().addDeserializer(DropDownListItem.class, new DropDownListItemRegistry.Deserializer()));
+
+    private static final ObjectReader treeReader = mapper.reader();
+    private static final ObjectWriter treeWriter = mapper.writer();
+    private static final ObjectWriter prettyTreeWriter = mapper.writerWithDefaultPrettyPrinter();
+
+    private static final ConcurrentMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<Class<?>, ObjectReader>();
+    private static final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<Class<?>, ObjectWriter>();
+    private static final ConcurrentMap<Class<?>, ObjectWriter> prettyWriters = new ConcurrentHashMap<Class<?>, ObjectWriter>();
+
+    static
+    {
+        // Known classes are prepared when the class is loaded. The others are prepared on first use.
+        register(Communication.class);
+        register(Environment.class);
+        register(AnalysisResult.class);
+    }
+
+    private final ObjectReader reader;
+    private final ObjectWriter writer;
+    private final ObjectWriter prettyWriter;
 
     // Classname must be sent as parameter too.
     public JsonReaderWriter(Class<T> classNameParameter)
     {
-        this.classTypeExplicit = classNameParameter;
+        register(classNameParameter);
+        this.reader = readers.get(classNameParameter);
+        this.writer = writers.get(classNameParameter);
+        this.prettyWriter = prettyWriters.get(classNameParameter);
+    }
+
+    private static void register(Class<?> classType)
+    {
+        readers.computeIfAbsent(classType, type -> mapper.readerFor(type));
+        writers.computeIfAbsent(classType, type -> mapper.writerFor(type));
+        prettyWriters.computeIfAbsent(classType, type -> mapper.writerFor(type).withDefaultPrettyPrinter());
     }
 
 
@@ -46,26 +117,8 @@ public class JsonReaderWriter<T>
      *  Simply pass the filepath and it will return the java object.
      */
     public T ConvertJsonFileToJavaObj(String fileName) throws Exception {
-        ObjectMapper mapper = new ObjectMapper();
-
-        try
-        {
-            // Convert JSON from file to Object
-            T obj = mapper.readValue(new File(fileName), this.classTypeExplicit);
-            System.out.println(obj);
-
-            //Pretty print
-            String jsonPrettyStr = mapper.writerWithDefaultPrettyPrinter().writeValueAsString(obj);
-            //System.out.println(jsonPrettyStr);
-
-            return obj;
-        }
-
-        catch (JsonGenerationException e) { e.printStackTrace(); throw new Exception(); }
-        catch (JsonMappingException e) { e.printStackTrace(); throw new Exception(); }
-        catch (IOException e) { e.printStackTrace(); throw new Exception(); }
-
-        //return null;
+        Path file = Paths.get(fileName);
+        return ConvertJsonBytesToJavaObject(readFile(file), getName(file));
     }
 
     /**
@@ -73,21 +126,19 @@ public class JsonReaderWriter<T>
      *  Simply pass the filepath and the object that is needed to save to the file.
      */
     public void ConvertJavaObjectJsonFile(String fileName, T obj) throws Exception {
-        ObjectMapper mapper = new ObjectMapper();
+        byte[] content;
 
+        long start = System.nanoTime();
         try
         {
-            // Convert object to JSON string and save into a file directly
-            mapper.writerWithDefaultPrettyPrinter().writeValue(new File(fileName), obj);
-
-            //Pretty print
-            String jsonPrettyStr = mapper.writerWithDefaultPrettyPrinter().writeValueAsString(obj);
-            //System.out.println(jsonPrettyStr);
+            // Convert object to JSON
+            content = prettyWriter.writeValueAsBytes(obj);
         }
+        catch (IOException e) { throw failed(Stage.SERIALIZE, "Could not convert to json: " + getName(Paths.get(fileName)), e); }
+        finally { Metrics.get().recordStage(Stage.SERIALIZE, start); }
 
-        catch (JsonGenerationException e) { e.printStackTrace(); throw new Exception(); }
-        catch (JsonMappingException e) { e.printStackTrace(); throw new Exception(); }
-        catch (IOException e) { e.printStackTrace(); throw new Exception(); }
+        // Save into a file
+        writeFile(Paths.get(fileName), content);
     }
 
     //endregion
@@ -101,106 +152,408 @@ public class JsonReaderWriter<T>
      *  Simply pass the filepath and it will return the file content as string.
      */
     public String ConvertJsonFileToJsonSting(String fileName) throws Exception {
-        ObjectMapper mapper = new ObjectMapper();
+        Path file = Paths.get(fileName);
+        return ConvertJsonBytesToJsonString(readFile(file), getName(file));
+    }
 
+    /**
+     *  Writes strings into file as Json in pretty format.
+     *  Simply pass the filepath and the string that is needed to save to the file.
+     */
+    public void ConvertJsonStingToJsonFile(String fileName, String jsonStr) throws Exception {
+        Path file = Paths.get(fileName);
+
+        // Write to file
+        writeFile(file, ConvertJsonStringToPrettyJson(jsonStr, getName(file)));
+    }
+
+    //endregion
+
+
+
+    //region JsonString-JavaObj Conversion
+
+    /**
+     *  Converts Json content in string to the corresponding java object.
+     *  Simply pass the string and it will return the java object.
+     */
+    public T ConvertJsonStringToJavaObject(String jsonStr) throws Exception {
+        long start = System.nanoTime();
         try
         {
-            // Convert JSON string from file to json string
-            JsonNode root = mapper.readTree(new File(fileName));
-            String jsonStr = mapper.writeValueAsString(root);
-
-            //Pretty print
-            String jsonPrettyStr = mapper.writerWithDefaultPrettyPrinter().writeValueAsString(root);
-            //System.out.println(jsonPrettyStr);
+            // Convert JSON string to Object
+            return reader.readValue(jsonStr);
+        }
+        catch (IOException e) { throw failed(Stage.PARSE, "Content is not valid json.", e); }
+        finally { Metrics.get().recordStage(Stage.PARSE, start); }
+    }
 
-            return jsonStr;
+    /**
+     *  Converts Java object to Json string.
+     *  Simply pass the object and it will return string (json format) of the object
+     */
+    public String ConvertJavaObjectToJsonString(T obj) throws Exception {
+        long start = System.nanoTime();
+        try
+        {
+            // Convert object to JSON string
+            return writer.writeValueAsString(obj);
         }
+        catch (IOException e) { throw failed(Stage.SERIALIZE, "Could not convert to json.", e); }
+        finally { Metrics.get().recordStage(Stage.SERIALIZE, start); }
+    }
+
+    //endregion
 
-        catch (JsonGenerationException e) { e.printStackTrace(); throw new Exception(); }
-        catch (JsonMappingException e) { e.printStackTrace(); throw new Exception(); }
-        catch (IOException e) { e.printStackTrace(); throw new Exception(); }
 
-        //return null;
-    }
+
+    //region Stream Conversion
 
     /**
-     *  Writes strings into file as Json in pretty format.
-     *  Simply pass the filepath and the string that is needed to save to the file.
+     *  Converts Json content from a stream to the corresponding java object.
+     *  The stream is not closed, the caller owns it.
      */
-    public void ConvertJsonStingToJsonFile(String fileName, String jsonStr) throws Exception {
-        ObjectMapper mapper = new ObjectMapper();
+    public T ConvertJsonStreamToJavaObject(InputStream jsonStream) throws Exception {
+        long start = System.nanoTime();
+        try
+        {
+            // Convert JSON stream to Object
+            return reader.readValue(jsonStream);
+        }
+        catch (IOException e) { throw failed(Stage.PARSE, "Content is not valid json.", e); }
+        finally { Metrics.get().recordStage(Stage.PARSE, start); }
+    }
 
+    /**
+     *  Writes Java object as Json into the given writer.
+     *  The writer is not closed, the caller owns it.
+     */
+    public void ConvertJavaObjectToJsonStream(Writer jsonWriter, T obj) throws Exception {
+        long start = System.nanoTime();
         try
         {
-            // Write json string to file
-            JsonNode root = mapper.readTree(jsonStr);
-            mapper.writerWithDefaultPrettyPrinter().writeValue(new File(fileName), root);
+            // Convert object to JSON and write into the stream
+            writer.writeValue(jsonWriter, obj);
+        }
+        catch (IOException e) { throw failed(Stage.SERIALIZE, "Could not write the json.", e); }
+        finally { Metrics.get().recordStage(Stage.SERIALIZE, start); }
+    }
 
-            //Pretty print
-            String jsonPrettyStr = mapper.writerWithDefaultPrettyPrinter().writeValueAsString(root);
-            //System.out.println(jsonPrettyStr);
+    /**
+     *  Writes the content of the Json file into the given writer in compact form, like ConvertJsonFileToJsonSting.
+     *  The content is copied token by token, it is never held in memory as a java object or tree.
+     *  The writer is not closed, the caller owns it.
+     */
+    public void ConvertJsonFileToJsonStream(String fileName, Writer jsonWriter) throws Exception {
+        byte[] content = readFile(Paths.get(fileName));
+
+        long start = System.nanoTime();
+        try (JsonParser parser = mapper.getFactory().createParser(content);
+             JsonGenerator generator = mapper.getFactory().createGenerator(jsonWriter))
+        {
+            // Copy JSON from file to stream
+            parser.nextToken();
+            generator.copyCurrentStructure(parser);
         }
+        catch (IOException e) { throw failed(Stage.PARSE, "Could not parse the file: " + getName(Paths.get(fileName)), e); }
+        finally { Metrics.get().recordStage(Stage.PARSE, start); }
+    }
 
-        catch (JsonGenerationException e) { e.printStackTrace(); throw new Exception(); }
-        catch (JsonMappingException e) { e.printStackTrace(); throw new Exception(); }
-        catch (IOException e) { e.printStackTrace(); throw new Exception(); }
+    /**
+     *  Writes the content of the Json file with the given generator in compact form, as the next value.
+     *  The file is read completely before anything is written, so a broken file does not leave half of it in the output.
+     *  (Only one file is in memory at a time)
+     */
+    public void ConvertJsonFileToJsonStream(String fileName, JsonGenerator generator) throws Exception {
+        Path file = Paths.get(fileName);
+        ConvertJsonBytesToJsonStream(readFile(file), getName(file), generator);
+    }
+
+    /**
+     *  Creates a generator which writes Json (UTF-8) into the given stream part by part.
+     *  Closing the generator flushes it, but the stream is not closed. The caller owns it.
+     */
+    public static JsonGenerator CreateJsonGenerator(OutputStream jsonStream) throws IOException {
+        return mapper.getFactory().createGenerator(jsonStream);
+    }
+
+    /**
+     *  Creates a generator which writes Json into the given writer part by part.
+     *  Closing the generator flushes it, but the writer is not closed. The caller owns it.
+     */
+    public static JsonGenerator CreateJsonGenerator(Writer jsonWriter) throws IOException {
+        return mapper.getFactory().createGenerator(jsonWriter);
     }
 
     //endregion
 
 
 
-    //region JsonString-JavaObj Conversion
+    //region JsonBytes Conversion
 
     /**
-     *  Converts Json content in string to the corresponding java object.
-     *  Simply pass the string and it will return the java object.
+     *  Converts Json content (e.g. read by a DefinitionRepository) to the corresponding java object.
+     *  The name is only used in the error message.
      */
-    public T ConvertJsonStringToJavaObject(String jsonStr) throws Exception {
-        ObjectMapper mapper = new ObjectMapper();
+    public T ConvertJsonBytesToJavaObject(byte[] content, String name) throws Exception {
+        long start = System.nanoTime();
+        try
+        {
+            // Convert JSON bytes to Object
+            return reader.readValue(content);
+        }
+        catch (IOException e) { throw failed(Stage.PARSE, "Could not parse the file: " + name, e); }
+        finally { Metrics.get().recordStage(Stage.PARSE, start); }
+    }
 
+    /**
+     *  Converts Json content to compact json string.
+     *  The name is only used in the error message.
+     */
+    public String ConvertJsonBytesToJsonString(byte[] content, String name) throws Exception {
+        JsonNode root = readTree(content, name);
+
+        long start = System.nanoTime();
         try
         {
-            // Convert JSON string to Object
-            T obj = mapper.readValue(jsonStr, this.classTypeExplicit);
+            // Convert JSON to compact json string
+            return treeWriter.writeValueAsString(root);
+        }
+        catch (IOException e) { throw failed(Stage.SERIALIZE, "Could not convert to json: " + name, e); }
+        finally { Metrics.get().recordStage(Stage.SERIALIZE, start); }
+    }
 
-            String jsonPrettyStr = mapper.writerWithDefaultPrettyPrinter().writeValueAsString(obj);
-            //System.out.println("Pretty JSON:  " + jsonPrettyStr);
+    /**
+     *  Writes Json content with the given generator in compact form, as the next value.
+     *  The content is parsed completely before anything is written, so a broken content does not leave half of it in the output.
+     *  The name is only used in the error message.
+     */
+    public void ConvertJsonBytesToJsonStream(byte[] content, String name, JsonGenerator generator) throws Exception {
+        JsonNode root = readTree(content, name);
 
-            return obj;
+        long start = System.nanoTime();
+        try
+        {
+            // Write it as the next value
+            generator.writeTree(root);
         }
+        catch (IOException e) { throw failed(Stage.SERIALIZE, "Could not write the json: " + name, e); }
+        finally { Metrics.get().recordStage(Stage.SERIALIZE, start); }
+    }
 
-        catch (JsonGenerationException e) { e.printStackTrace(); throw new Exception(); }
-        catch (JsonMappingException e) { e.printStackTrace(); throw new Exception(); }
-        catch (IOException e) { e.printStackTrace(); throw new Exception(); }
+    /**
+     *  Converts the java object to Json in pretty format (UTF-8), as it is saved.
+     *  The name is only used in the error message.
+     */
+    public byte[] ConvertJavaObjectToPrettyJson(T obj, String name) throws Exception {
+        long start = System.nanoTime();
+        try
+        {
+            // Convert Object to pretty json
+            return prettyWriter.writeValueAsBytes(obj);
+        }
+        catch (IOException e) { throw failed(Stage.SERIALIZE, "Could not convert to json: " + name, e); }
+        finally { Metrics.get().recordStage(Stage.SERIALIZE, start); }
+    }
+
+    /**
+     *  Converts Json string to Json in pretty format (UTF-8), as it is saved.
+     *  The name is only used in the error message.
+     */
+    public byte[] ConvertJsonStringToPrettyJson(String jsonStr, String name) throws Exception {
+        JsonNode root;
 
-        //return null;
+        long start = System.nanoTime();
+        try
+        {
+            // Read json string
+            root = treeReader.readTree(jsonStr);
+        }
+        catch (IOException e) { throw failed(Stage.PARSE, "Content is not valid json: " + name, e); }
+        finally { Metrics.get().recordStage(Stage.PARSE, start); }
+
+        start = System.nanoTime();
+        try
+        {
+            // Convert to pretty json
+            return prettyTreeWriter.writeValueAsBytes(root);
+        }
+        catch (IOException e) { throw failed(Stage.SERIALIZE, "Could not convert to json: " + name, e); }
+        finally { Metrics.get().recordStage(Stage.SERIALIZE, start); }
     }
 
     /**
-     *  Converts Java object to Json string.
-     *  Simply pass the object and it will return string (json format) of the object
+     *  Reads only the given text field of the top level object of Json content. (e.g. baseType of a communication)
+     *  @return null if the content has no such field.
      */
-    public String ConvertJavaObjectToJsonString(T obj) throws Exception {
-        ObjectMapper mapper = new ObjectMapper();
+    public static String ReadJsonTextField(byte[] content, String name, String fieldName) throws Exception {
+        JsonNode field = readTree(content, name).get(fieldName);
+        return field == null || !field.isTextual() ? null : field.asText();
+    }
+
+    //endregion
+
+
+
+    //region Files
+
+    /**
+     *  Reads the whole file. The time is recorded as the FILE_READ stage.
+     *  (Also used by JsonFolderRepository)
+     */
+    static byte[] readFile(Path file) throws Exception
+    {
+        long start = System.nanoTime();
+        try
+        {
+            return Files.readAllBytes(file);
+        }
+        catch (IOException e) { throw failed(Stage.FILE_READ, "Could not read the file: " + getName(file), e); }
+        finally { Metrics.get().recordStage(Stage.FILE_READ, start); }
+    }
 
+    private static JsonNode readTree(byte[] content, String name) throws Exception
+    {
+        long start = System.nanoTime();
         try
         {
-            // Convert object to JSON string
-            String jsonStr = mapper.writeValueAsString(obj);
+            return mapper.readTree(content);
+        }
+        catch (IOException e) { throw failed(Stage.PARSE, "Could not parse the file: " + name, e); }
+        finally { Metrics.get().recordStage(Stage.PARSE, start); }
+    }
 
-            // Convert object to JSON string and pretty print
-            String jsonPrettyStr = mapper.writerWithDefaultPrettyPrinter().writeValueAsString(obj);
-            //System.out.println("Pretty JSON:  " + jsonPrettyStr);
+    /**
+     *  Writes the whole file atomically. The time is recorded as the FILE_WRITE stage.
+     *  (Also used by JsonFolderRepository)
+     *
+     *  The content is written into a temporary file in the same folder and forced to the disk,
+     *  then the temporary file is moved over the file in one step. So a reader sees either the previous
+     *  or the new content, never a half-written file, and a crash does not leave a broken file.
+     *  The temporary file ends with .tmp, so it is not taken as a Json file by the watchers.
+     *  It gets the permissions of the file it replaces, or the default ones (umask) if there is no file yet,
+     *  as if the file were written directly.
+     */
+    static void writeFile(Path file, byte[] content) throws Exception
+    {
+        long start = System.nanoTime();
+        Path temporaryFile = null;
+        try
+        {
+            Path folder = file.toAbsolutePath().getParent();
+            temporaryFile = createTemporaryFile(folder, file);
+            try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE))
+            {
+                ByteBuffer buffer = ByteBuffer.wrap(content);
+                while (buffer.hasRemaining())
+                {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+
+            try
+            {
+                Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (AtomicMoveNotSupportedException e)
+            {
+                // Some file systems cannot do it, the file is still replaced as a whole.
+                Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            temporaryFile = null;
+
+            forceFolder(folder);
+        }
+        catch (IOException e) { throw failed(Stage.FILE_WRITE, "Could not write the file: " + getName(file), e); }
+        finally
+        {
+            if (temporaryFile != null)
+            {
+                deleteTemporaryFile(temporaryFile);
+            }
+            Metrics.get().recordStage(Stage.FILE_WRITE, start);
+        }
+    }
 
-            return jsonStr;
+    // Not Files.createTempFile, it makes the file readable only by the owner.
+    private static Path createTemporaryFile(Path folder, Path file) throws IOException
+    {
+        while (true)
+        {
+            Path temporaryFile = folder.resolve("." + file.getFileName() + Long.toUnsignedString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+            try
+            {
+                Files.createFile(temporaryFile);
+            }
+            catch (FileAlreadyExistsException e)
+            {
+                continue;
+            }
+
+            PosixFileAttributeView attributes = Files.getFileAttributeView(temporaryFile, PosixFileAttributeView.class);
+            if (attributes != null)
+            {
+                try
+                {
+                    attributes.setPermissions(Files.getPosixFilePermissions(file));
+                }
+                catch (NoSuchFileException e)
+                {
+                    // No file yet, the default permissions are kept.
+                }
+                catch (IOException e)
+                {
+                    deleteTemporaryFile(temporaryFile);
+                    throw e;
+                }
+            }
+            return temporaryFile;
         }
+    }
 
-        catch (JsonGenerationException e) { e.printStackTrace(); throw new Exception(); }
-        catch (JsonMappingException e) { e.printStackTrace(); throw new Exception(); }
-        catch (IOException e) { e.printStackTrace(); throw new Exception(); }
+    // Only after a failed write, the error of the write is thrown.
+    private static void deleteTemporaryFile(Path temporaryFile)
+    {
+        try
+        {
+            Files.deleteIfExists(temporaryFile);
+        }
+        catch (IOException e)
+        {
+            logger.log(Level.WARNING, "Could not delete the temporary file: " + temporaryFile.getFileName(), e);
+        }
+    }
 
-        //return null;
+    // So that the new name of the file is on the disk too. Not possible on every platform (e.g. Windows), then it is skipped.
+    private static void forceFolder(Path folder)
+    {
+        try (FileChannel channel = FileChannel.open(folder, StandardOpenOption.READ))
+        {
+            channel.force(true);
+        }
+        catch (IOException e)
+        {
+            // The file itself is on the disk already.
+        }
+    }
+
+    // Only the name, the full path is not shown to the user.
+    private static String getName(Path file)
+    {
+        Path name = file.getFileName();
+        return name == null ? file.toString() : name.toString();
+    }
+
+    /**
+     * Counts and logs the error, then returns the exception to throw.
+     * (Also used by the repositories)
+     */
+    static Exception failed(Stage stage, String message, Exception cause)
+    {
+        Metrics.get().recordError(stage.getValue());
+        logger.log(Level.WARNING, message, cause);
+        return new Exception(message, cause);
     }
 
     //endregion
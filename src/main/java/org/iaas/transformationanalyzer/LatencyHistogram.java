@@ -0,0 +1,135 @@
+package org.iaas.transformationanalyzer;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of durations, recorded in microseconds.
+ *
+ * The buckets are like HdrHistogram: the values below 64 have their own bucket, then each power of two
+ * is split into 32 buckets. So a value is known within ~3%, from 1 microsecond up to ~25 days,
+ * with a fixed number of buckets (1184 counters) and without any locking.
+ *
+ * Recording is thread-safe. Reading while recording gives a value that is maybe a few recordings behind.
+ */
+final class LatencyHistogram
+{
+    private static final int linearBuckets = 64;
+    private static final int subBuckets = 32;
+    private static final int subBucketBits = 5;
+    private static final int maxExponent = 35;
+    private static final long maxValue = (2L * subBuckets << maxExponent) - 1;
+
+    private final AtomicLongArray counts;
+    private final LongAdder sumNanos;
+
+
+    LatencyHistogram()
+    {
+        this.counts = new AtomicLongArray(linearBuckets + maxExponent * subBuckets);
+        this.sumNanos = new LongAdder();
+    }
+
+    /**
+     * Records one duration.
+     * @param nanos
+     */
+    void record(long nanos)
+    {
+        if (nanos < 0)
+        {
+            nanos = 0;
+        }
+        sumNanos.add(nanos);
+        counts.incrementAndGet(indexOf(Math.min(nanos / 1000, maxValue)));
+    }
+
+    /**
+     * Gets a copy of the bucket counts. The values of the bucket i are between lowestValue(i) and highestValue(i).
+     */
+    long[] getCounts()
+    {
+        long[] result = new long[counts.length()];
+        for (int i = 0; i < result.length; i++)
+        {
+            result[i] = counts.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Sum of all the recorded durations in nanoseconds.
+     */
+    long getSumNanos()
+    {
+        return sumNanos.sum();
+    }
+
+    /**
+     * Gets the value (in microseconds) which the given part of the recordings are below or equal to.
+     * @param counts from getCounts()
+     * @param quantile between 0 and 1, e.g. 0.99
+     * @return 0 if nothing is recorded.
+     */
+    static long getValueAtQuantile(long[] counts, double quantile)
+    {
+        long total = 0;
+        for (long count : counts)
+        {
+            total += count;
+        }
+        if (total == 0)
+        {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++)
+        {
+            seen += counts[i];
+            if (seen >= target)
+            {
+                return highestValue(i);
+            }
+        }
+        return maxValue;
+    }
+
+
+    static int indexOf(long micros)
+    {
+        if (micros < linearBuckets)
+        {
+            return (int) micros;
+        }
+
+        // micros >> exponent is between 32 and 63
+        int exponent = 63 - Long.numberOfLeadingZeros(micros) - subBucketBits;
+        return linearBuckets + (exponent - 1) * subBuckets + (int) ((micros >> exponent) - subBuckets);
+    }
+
+    static long lowestValue(int index)
+    {
+        if (index < linearBuckets)
+        {
+            return index;
+        }
+
+        int exponent = (index - linearBuckets) / subBuckets + 1;
+        long mantissa = (index - linearBuckets) % subBuckets + subBuckets;
+        return mantissa << exponent;
+    }
+
+    static long highestValue(int index)
+    {
+        if (index < linearBuckets)
+        {
+            return index;
+        }
+
+        int exponent = (index - linearBuckets) / subBuckets + 1;
+        long mantissa = (index - linearBuckets) % subBuckets + subBuckets;
+        return ((mantissa + 1) << exponent) - 1;
+    }
+}
@@ -0,0 +1,214 @@
+package org.iaas.transformationanalyzer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timings and error counts of the application.
+ *
+ * - Request duration of each operation (single, multi, create, analyse, analyseBatch)
+ * - Duration of each stage (file read/write, parse, serialize, analysis), so the slow stage can be found.
+ * - Errors by where they happened, and the requests rejected because the server is busy.
+ * - Hits, misses and evictions of the caches (e.g. AnalysisCache)
+ *
+ * There is one instance for the whole application (get()), because the stages are recorded deep
+ * in the code (e.g. JsonReaderWriter), where no servlet is known.
+ * Everything is exposed in Prometheus text format by MetricsServlet. (/metrics)
+ */
+public final class Metrics
+{
+    /**
+     * The stages of a request.
+     */
+    public enum Stage
+    {
+        FILE_READ,
+        FILE_WRITE,
+        PARSE,
+        SERIALIZE,
+        ANALYSIS;
+
+        public String getValue()
+        {
+            return name().toLowerCase();
+        }
+    }
+
+    private static final String prefix = "transformation_analyzer_";
+
+    // Upper bounds of the buckets in Prometheus, in seconds.
+    private static final double[] bucketBounds = { 0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10 };
+
+    private static final Metrics instance = new Metrics();
+
+    private final ConcurrentMap<String, LatencyHistogram> requestDurations;
+    private final ConcurrentMap<String, LatencyHistogram> stageDurations;
+    private final ConcurrentMap<String, LongAdder> errors;
+    private final LongAdder rejectedRequests;
+    private final ConcurrentMap<String, LongAdder> cacheHits;
+    private final ConcurrentMap<String, LongAdder> cacheMisses;
+    private final ConcurrentMap<String, LongAdder> cacheEvictions;
+
+
+    private Metrics()
+    {
+        this.requestDurations = new ConcurrentHashMap<String, LatencyHistogram>();
+        this.stageDurations = new ConcurrentHashMap<String, LatencyHistogram>();
+        this.errors = new ConcurrentHashMap<String, LongAdder>();
+        this.rejectedRequests = new LongAdder();
+        this.cacheHits = new ConcurrentHashMap<String, LongAdder>();
+        this.cacheMisses = new ConcurrentHashMap<String, LongAdder>();
+        this.cacheEvictions = new ConcurrentHashMap<String, LongAdder>();
+    }
+
+    public static Metrics get()
+    {
+        return instance;
+    }
+
+
+    //region Recording
+
+    /**
+     * Records the duration of a request.
+     * @param operation should be one of the known operations, every value is a new time series.
+     * @param startNanos System.nanoTime() when the request started
+     */
+    public void recordRequest(String operation, long startNanos)
+    {
+        requestDurations.computeIfAbsent(operation, name -> new LatencyHistogram()).record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Records the duration of a stage.
+     * @param stage
+     * @param startNanos System.nanoTime() when the stage started
+     */
+    public void recordStage(Stage stage, long startNanos)
+    {
+        stageDurations.computeIfAbsent(stage.getValue(), name -> new LatencyHistogram()).record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Counts an error.
+     * @param source where it happened, an operation or a stage.
+     */
+    public void recordError(String source)
+    {
+        errors.computeIfAbsent(source, name -> new LongAdder()).increment();
+    }
+
+    /**
+     * Counts a request which is rejected because the server is busy.
+     */
+    public void recordRejected()
+    {
+        rejectedRequests.increment();
+    }
+
+    /**
+     * Counts a lookup which is found in the cache.
+     * @param cache name of the cache
+     */
+    public void recordCacheHit(String cache)
+    {
+        cacheHits.computeIfAbsent(cache, name -> new LongAdder()).increment();
+    }
+
+    /**
+     * Counts a lookup which is not found in the cache.
+     * @param cache name of the cache
+     */
+    public void recordCacheMiss(String cache)
+    {
+        cacheMisses.computeIfAbsent(cache, name -> new LongAdder()).increment();
+    }
+
+    /**
+     * Counts an entry which is removed from the cache to make room for a new one.
+     * (Entries removed because they are not valid anymore are not counted)
+     * @param cache name of the cache
+     */
+    public void recordCacheEviction(String cache)
+    {
+        cacheEvictions.computeIfAbsent(cache, name -> new LongAdder()).increment();
+    }
+
+    //endregion
+
+
+    //region Prometheus
+
+    /**
+     * Writes all the metrics in Prometheus text format (version 0.0.4)
+     * @param writer
+     * @throws IOException
+     */
+    public void writePrometheus(Writer writer) throws IOException
+    {
+        writeHistograms(writer, "request_duration_seconds", "Time to handle a request, by operation.", "operation", requestDurations);
+        writeHistograms(writer, "stage_duration_seconds", "Time spent in each stage of the requests.", "stage", stageDurations);
+
+        writeCounters(writer, "errors_total", "Errors by where they happened (operation or stage).", "source", errors);
+
+        writeHeader(writer, "rejected_requests_total", "Requests rejected with 503 because the request queue is full.", "counter");
+        writer.write(prefix + "rejected_requests_total " + rejectedRequests.sum() + "\n");
+
+        writeCounters(writer, "cache_hits_total", "Lookups found in the cache.", "cache", cacheHits);
+        writeCounters(writer, "cache_misses_total", "Lookups not found in the cache.", "cache", cacheMisses);
+        writeCounters(writer, "cache_evictions_total", "Entries removed from the cache to make room for new ones.", "cache", cacheEvictions);
+    }
+
+    private void writeCounters(Writer writer, String name, String help, String label, Map<String, LongAdder> counters) throws IOException
+    {
+        writeHeader(writer, name, help, "counter");
+        for (Map.Entry<String, LongAdder> counter : new TreeMap<String, LongAdder>(counters).entrySet())
+        {
+            writer.write(prefix + name + "{" + label + "=\"" + counter.getKey() + "\"} " + counter.getValue().sum() + "\n");
+        }
+    }
+
+    private void writeHistograms(Writer writer, String name, String help, String label, Map<String, LatencyHistogram> histograms) throws IOException
+    {
+        writeHeader(writer, name, help, "histogram");
+        for (Map.Entry<String, LatencyHistogram> histogram : new TreeMap<String, LatencyHistogram>(histograms).entrySet())
+        {
+            String labelValue = label + "=\"" + histogram.getKey() + "\"";
+            long[] counts = histogram.getValue().getCounts();
+
+            // Buckets are cumulative. A bucket of the histogram is counted when all of its values are within the bound.
+            long cumulative = 0;
+            int index = 0;
+            for (double bound : bucketBounds)
+            {
+                long boundMicros = Math.round(bound * 1000000);
+                while (index < counts.length && LatencyHistogram.highestValue(index) <= boundMicros)
+                {
+                    cumulative += counts[index++];
+                }
+                writer.write(prefix + name + "_bucket{" + labelValue + ",le=\"" + BigDecimal.valueOf(bound).toPlainString() + "\"} " + cumulative + "\n");
+            }
+            while (index < counts.length)
+            {
+                cumulative += counts[index++];
+            }
+            writer.write(prefix + name + "_bucket{" + labelValue + ",le=\"+Inf\"} " + cumulative + "\n");
+            writer.write(prefix + name + "_sum{" + labelValue + "} " + histogram.getValue().getSumNanos() / 1e9 + "\n");
+            writer.write(prefix + name + "_count{" + labelValue + "} " + cumulative + "\n");
+        }
+    }
+
+    private void writeHeader(Writer writer, String name, String help, String type) throws IOException
+    {
+        writer.write("# HELP " + prefix + name + " " + help + "\n");
+        writer.write("# TYPE " + prefix + name + " " + type + "\n");
+    }
+
+    //endregion
+}
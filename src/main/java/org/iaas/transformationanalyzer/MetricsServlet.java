@@ -0,0 +1,35 @@
+package org.iaas.transformationanalyzer;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Sends the metrics of the application in Prometheus text format.
+ * Prometheus can scrape it from /metrics. (See Metrics for what is recorded)
+ */
+
+@WebServlet(name="MetricsServlet", urlPatterns = {"/metrics"})
+public class MetricsServlet extends HttpServlet
+{
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Handles the GET requests.
+     *
+     * @param request
+     * @param response
+     * @throws ServletException
+     * @throws IOException
+     */
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException
+    {
+        response.setContentType("text/plain; version=0.0.4");
+        response.setCharacterEncoding("UTF-8");
+        Metrics.get().writePrometheus(response.getWriter());
+    }
+}
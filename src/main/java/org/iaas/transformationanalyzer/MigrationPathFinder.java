@@ -0,0 +1,285 @@
+package org.iaas.transformationanalyzer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Finds the cheapest chain of transformations from the old communication to one of the supported communications of the new environment.
+ * Some migrations are easier in steps (e.g. DDS => XMPP => MQTT) than as one transformation.
+ *
+ * The communications are the nodes of a graph. There is an edge from a to b if the transformation a => b is possible,
+ * its weight is the difficulty points of the transformation. (The results come from the transformation matrix, see Analyzer.analysePair)
+ * The chain is found with Dijkstra's algorithm, with at most maxHops transformations.
+ *
+ * A communication can be reached again later with more transformations but fewer points,
+ * so a communication is expanded once for each smaller number of transformations it is reached with.
+ * So the edges of a communication are calculated once per search (see getEdges), and a step is not queued
+ * if the communication is queued already with fewer points and not more transformations.
+ *
+ * maxHops is at most maxHopsLimit. (Above the limit of the transformation matrix, each edge is a full analysis of the pair)
+ */
+public class MigrationPathFinder
+{
+    static final int maxHopsLimit = 5;
+
+    private CommunicationProfile oldCommunication;
+    private List<CommunicationProfile> newEnvironmentSupportedComms;
+    private Collection<CommunicationProfile> communications;
+    private TransformationMatrix transformationMatrix;
+    private int maxHops;
+
+    // Set by FindPath(), null if there is no chain.
+    private List<AnalysisResult> path;
+    private long pathPoints;
+    private boolean searched;
+
+
+    /**
+     * @param oldCommunication start of the chain
+     * @param newEnvironmentSupportedComms end of the chain is one of them
+     * @param communications all the communications which can be in the chain
+     * @param transformationMatrix results of the transformations
+     * @param maxHops maximum number of transformations in the chain, at most maxHopsLimit.
+     */
+    MigrationPathFinder(CommunicationProfile oldCommunication, List<CommunicationProfile> newEnvironmentSupportedComms, Collection<CommunicationProfile> communications, TransformationMatrix transformationMatrix, int maxHops)
+    {
+        this.oldCommunication = oldCommunication;
+        this.newEnvironmentSupportedComms = newEnvironmentSupportedComms;
+        this.communications = communications;
+        this.transformationMatrix = transformationMatrix;
+        this.maxHops = Math.min(maxHops, maxHopsLimit);
+    }
+
+
+    /**
+     * Finds the chain. The result can be written with WritePathResult.
+     */
+    public void FindPath()
+    {
+        Set<CommunicationProfile> targets = Collections.newSetFromMap(new IdentityHashMap<CommunicationProfile, Boolean>());
+        targets.addAll(newEnvironmentSupportedComms);
+
+        // The supported communications can be in the chain too.
+        Set<CommunicationProfile> nodes = new LinkedHashSet<CommunicationProfile>(communications);
+        nodes.addAll(newEnvironmentSupportedComms);
+
+        CommunicationProfile[] nodeArray = nodes.toArray(new CommunicationProfile[0]);
+
+        // Smallest number of transformations each communication is expanded with.
+        Map<CommunicationProfile, Integer> expandedHops = new IdentityHashMap<CommunicationProfile, Integer>();
+
+        // Results of the transformations from each expanded communication to the nodes, in the order of nodeArray.
+        Map<CommunicationProfile, AnalysisResult[]> edges = new IdentityHashMap<CommunicationProfile, AnalysisResult[]>();
+
+        // Fewest points each communication is queued with, by the number of transformations.
+        Map<CommunicationProfile, long[]> queuedPoints = new IdentityHashMap<CommunicationProfile, long[]>();
+
+        PriorityQueue<Step> queue = new PriorityQueue<Step>(Comparator.<Step>comparingLong(step -> step.points).thenComparingInt(step -> step.hops));
+        queue.add(new Step(oldCommunication, null, null, 0, 0));
+
+        path = null;
+        pathPoints = 0;
+        searched = true;
+
+        while (!queue.isEmpty())
+        {
+            Step step = queue.poll();
+
+            // Reached already with fewer points and not more transformations.
+            Integer hops = expandedHops.get(step.communication);
+            if (hops != null && hops <= step.hops)
+            {
+                continue;
+            }
+            expandedHops.put(step.communication, step.hops);
+
+            // Steps come in the order of the points, so the first supported communication is the cheapest.
+            if (targets.contains(step.communication))
+            {
+                path = step.getPath();
+                pathPoints = step.points;
+                return;
+            }
+
+            if (step.hops == maxHops)
+            {
+                continue;
+            }
+
+            AnalysisResult[] stepEdges = getEdges(edges, step.communication, nodeArray);
+            for (int i = 0; i < nodeArray.length; i++)
+            {
+                CommunicationProfile next = nodeArray[i];
+                AnalysisResult result = stepEdges[i];
+                Integer nextHops = expandedHops.get(next);
+                if (result == null || !result.getPossibility() || (nextHops != null && nextHops <= step.hops + 1))
+                {
+                    continue;
+                }
+
+                // Dijkstra needs weights which are not negative.
+                long nextPoints = step.points + Math.max(0, result.getDifficultyPoint());
+                if (isQueuedCheaper(queuedPoints, next, nextPoints, step.hops + 1))
+                {
+                    continue;
+                }
+                queue.add(new Step(next, result, step, nextPoints, step.hops + 1));
+            }
+        }
+    }
+
+    // The results are calculated when the communication is expanded for the first time. (null for the communication itself)
+    private AnalysisResult[] getEdges(Map<CommunicationProfile, AnalysisResult[]> edges, CommunicationProfile from, CommunicationProfile[] nodeArray)
+    {
+        AnalysisResult[] results = edges.get(from);
+        if (results == null)
+        {
+            results = new AnalysisResult[nodeArray.length];
+            for (int i = 0; i < nodeArray.length; i++)
+            {
+                if (nodeArray[i] != from)
+                {
+                    results[i] = transformationMatrix.getResult(from, nodeArray[i]);
+                }
+            }
+            edges.put(from, results);
+        }
+        return results;
+    }
+
+    // Whether the communication is queued with at most these points and at most these transformations. If not, these are kept.
+    private boolean isQueuedCheaper(Map<CommunicationProfile, long[]> queuedPoints, CommunicationProfile communication, long points, int hops)
+    {
+        long[] pointsByHops = queuedPoints.get(communication);
+        if (pointsByHops == null)
+        {
+            pointsByHops = new long[maxHops + 1];
+            Arrays.fill(pointsByHops, Long.MAX_VALUE);
+            queuedPoints.put(communication, pointsByHops);
+        }
+
+        for (int h = 0; h <= hops; h++)
+        {
+            if (pointsByHops[h] <= points)
+            {
+                return true;
+            }
+        }
+        pointsByHops[hops] = points;
+        return false;
+    }
+
+    /**
+     * Gets the transformations of the chain in order.
+     * @return null if there is no chain, empty if the old communication is supported already.
+     */
+    public List<AnalysisResult> getPath()
+    {
+        if (!searched)
+        {
+            FindPath();
+        }
+        return path;
+    }
+
+    /**
+     * Writes the chain with the given generator, as a Json array.
+     * [header, transformations of the chain]
+     *
+     * @param generator
+     * @throws IOException if it cannot be written.
+     */
+    public void WritePathResult(JsonGenerator generator) throws IOException
+    {
+        if (!searched)
+        {
+            FindPath();
+        }
+
+        generator.writeStartArray();
+
+        generator.writeStartArray();
+        Analyzer.writeLine(generator, "Old communication", oldCommunication.getName());
+        if (path == null)
+        {
+            Analyzer.writeLine(generator, "Is transformation possible?", Analyzer.TransformationPossibility.TRANSFORMATION_NOT_POSSIBLE.getValue());
+            Analyzer.writeLine(generator, "Additional note", String.format("There is no chain of at most %d transformations to a supported comm. of the new env.", maxHops));
+        }
+        else if (path.isEmpty())
+        {
+            Analyzer.writeLine(generator, "Additional note", "New environment supports the previous communication.");
+        }
+        else
+        {
+            Analyzer.writeLine(generator, "Is transformation possible?", Analyzer.TransformationPossibility.TRANSFORMATION_POSSIBLE.getValue());
+            Analyzer.writeLine(generator, "Number of transformations", String.valueOf(path.size()));
+            Analyzer.writeLine(generator, "Total difficulty points", String.valueOf(pathPoints));
+        }
+        generator.writeEndArray();
+
+        if (path != null && !path.isEmpty())
+        {
+            generator.writeStartArray();
+            String from = oldCommunication.getName();
+            for (AnalysisResult result : path)
+            {
+                generator.writeStartArray();
+                Analyzer.writeLine(generator, "From", from);
+                Analyzer.writeLine(generator, "To", result.getName());
+                Analyzer.writeLine(generator, "Difficulty", result.getDifficulty());
+                Analyzer.writeLine(generator, "Difficulty points", String.valueOf(result.getDifficultyPoint()));
+                Analyzer.writeLine(generator, "Possible losses", String.join(", ", result.getPossibleLosses()));
+                generator.writeEndArray();
+                from = result.getName();
+            }
+            generator.writeEndArray();
+        }
+
+        generator.writeEndArray();
+    }
+
+
+    /**
+     * A communication reached by a chain of transformations.
+     */
+    private static final class Step
+    {
+        final CommunicationProfile communication;
+        final AnalysisResult result;
+        final Step previous;
+        final long points;
+        final int hops;
+
+        Step(CommunicationProfile communication, AnalysisResult result, Step previous, long points, int hops)
+        {
+            this.communication = communication;
+            this.result = result;
+            this.previous = previous;
+            this.points = points;
+            this.hops = hops;
+        }
+
+        List<AnalysisResult> getPath()
+        {
+            List<AnalysisResult> path = new ArrayList<AnalysisResult>();
+            for (Step step = this; step.previous != null; step = step.previous)
+            {
+                path.add(step.result);
+            }
+            Collections.reverse(path);
+            return path;
+        }
+    }
+}
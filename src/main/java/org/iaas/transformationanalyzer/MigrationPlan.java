@@ -0,0 +1,114 @@
+package org.iaas.transformationanalyzer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Plan of moving a whole environment: the analysis of every supported communication of the old environment
+ * against the new environment. (postRequestType=analyseEnvironment)
+ *
+ * For each communication, the suggested communication to transform to is shown (see Analyzer.getSuggestedResult),
+ * and the plan shows all the possible losses of the suggested transformations together.
+ */
+public class MigrationPlan
+{
+    private Environment oldEnvironment;
+    private Environment newEnvironment;
+
+    // One per supported communication of the old environment, in the same order. Analyse is called already.
+    private List<Analyzer> analyzers;
+
+
+    MigrationPlan(Environment oldEnvironment, Environment newEnvironment, List<Analyzer> analyzers)
+    {
+        this.oldEnvironment = oldEnvironment;
+        this.newEnvironment = newEnvironment;
+        this.analyzers = analyzers;
+    }
+
+    /**
+     * Writes the plan with the given generator, as a Json array.
+     * [header, plan of each communication]
+     *
+     * @param generator
+     * @throws IOException if it cannot be written.
+     */
+    public void WritePlanResult(JsonGenerator generator) throws IOException
+    {
+        Set<String> allLosses = new LinkedHashSet<String>();
+        List<String> notPossible = new ArrayList<String>();
+        List<AnalysisResult> suggestedResults = new ArrayList<AnalysisResult>();
+        for (Analyzer analyzer : analyzers)
+        {
+            AnalysisResult suggested = analyzer.getSuggestedResult();
+            suggestedResults.add(suggested);
+            if (suggested != null && suggested.getPossibility())
+            {
+                allLosses.addAll(suggested.getPossibleLosses());
+            }
+            else if (isNotPossible(analyzer, suggested))
+            {
+                notPossible.add(analyzer.getOldCommunication().getName());
+            }
+        }
+
+        generator.writeStartArray();
+
+        generator.writeStartArray();
+        Analyzer.writeLine(generator, "Old environment", oldEnvironment.getName());
+        Analyzer.writeLine(generator, "New environment", newEnvironment.getName());
+        Analyzer.writeLine(generator, "Number of comms. of the old env.", String.valueOf(analyzers.size()));
+        Analyzer.writeLine(generator, "All possible losses", String.join(", ", allLosses));
+        if (!notPossible.isEmpty())
+        {
+            Analyzer.writeLine(generator, "Transformation is not possible for", String.join(", ", notPossible));
+        }
+        generator.writeEndArray();
+
+        generator.writeStartArray();
+        for (int i = 0; i < analyzers.size(); i++)
+        {
+            Analyzer analyzer = analyzers.get(i);
+            AnalysisResult suggested = suggestedResults.get(i);
+
+            generator.writeStartArray();
+            Analyzer.writeLine(generator, "Communication protocol", analyzer.getOldCommunication().getName());
+            Analyzer.writeLine(generator, "Is transformation required?", analyzer.getTransformationRequired());
+            if (suggested != null)
+            {
+                Analyzer.writeLine(generator, "Suggested comm.", suggested.getName());
+                Analyzer.writeLine(generator, "Is transformation possible?", (suggested.getPossibility() ? Analyzer.TransformationPossibility.TRANSFORMATION_POSSIBLE : Analyzer.TransformationPossibility.TRANSFORMATION_NOT_POSSIBLE).getValue());
+                if (suggested.getPossibility())
+                {
+                    Analyzer.writeLine(generator, "Difficulty", suggested.getDifficulty());
+                    Analyzer.writeLine(generator, "Possible losses", String.join(", ", suggested.getPossibleLosses()));
+                }
+            }
+            else if (isNotPossible(analyzer, suggested))
+            {
+                Analyzer.writeLine(generator, "Is transformation possible?", Analyzer.TransformationPossibility.TRANSFORMATION_NOT_POSSIBLE.getValue());
+            }
+            generator.writeEndArray();
+        }
+        generator.writeEndArray();
+
+        generator.writeEndArray();
+    }
+
+    // Transformation is needed but there is no possible one.
+    private static boolean isNotPossible(Analyzer analyzer, AnalysisResult suggested)
+    {
+        if (suggested != null)
+        {
+            return !suggested.getPossibility();
+        }
+
+        // Nothing is suggested: either it is not required or there is no supported communication at all.
+        return !analyzer.isTransformationNotRequired();
+    }
+}
@@ -0,0 +1,358 @@
+package org.iaas.transformationanalyzer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Responses of the GET requests (single file and folder listing) as bytes, ready to be sent.
+ * The Angular part loads the same folders again and again, so the files are read and converted once.
+ *
+ * Each payload has a strong ETag made from its content, so a client which has it already gets 304 (see RestServlet.writePayload)
+ *
+ * A payload which is big enough is compressed with gzip once, when it is loaded. Then it is sent as it is
+ * to the clients which accept gzip, instead of being compressed again for each response.
+ * (The gzip content has its own ETag, as a different representation of the same content)
+ *
+ * The cache listens to the catalog. When a communication or an environment is created, edited or removed,
+ * its file and the listing of its folder are removed, they are loaded again with the next request.
+ * The catalog keeps the previous content of a file which cannot be parsed (and does not notify),
+ * so a file written by the servlet is removed with fileChanged too.
+ * It listens to the repository as well, for the documents which are not definitions (settingsDropdownElements)
+ * and the files which the catalog cannot parse. (A folder whose changes are not known is removed completely)
+ * Like AnalysisCache, a payload is only put if nothing has changed while it was being loaded.
+ *
+ * Only the communications and environments folders are kept, and only plain file names.
+ * (So there is at most one payload per file plus one per folder)
+ * Hits and misses are counted in Metrics. (cache="payload")
+ */
+public class PayloadCache implements Catalog.Listener, DefinitionRepository.Listener
+{
+    private static final String metricName = "payload";
+
+    // Smaller payloads fit into one packet anyway.
+    private static final int minGzipSize = 1024;
+
+    private final String communicationsFolder;
+    private final String environmentsFolder;
+
+    // folder or folder/file => payload. Changes are guarded by this.
+    private final Map<String, Payload> payloads;
+    private long version;
+
+
+    /**
+     * Loads the content of a payload if it is not in the cache.
+     */
+    public interface Loader
+    {
+        byte[] load() throws Exception;
+    }
+
+    public PayloadCache(String communicationsFolder, String environmentsFolder)
+    {
+        this.communicationsFolder = communicationsFolder;
+        this.environmentsFolder = environmentsFolder;
+        this.payloads = new ConcurrentHashMap<String, Payload>();
+    }
+
+    /**
+     * Gets the listing of the folder.
+     * @param folderName
+     * @param loader makes the listing if it is not in the cache.
+     * @return
+     * @throws Exception from the loader, nothing is kept then.
+     */
+    public Payload getFolder(String folderName, Loader loader) throws Exception
+    {
+        return get(isCached(folderName) ? folderName : null, loader);
+    }
+
+    /**
+     * Gets the content of the file.
+     * @param folderName
+     * @param fileName without json
+     * @param loader reads the file if it is not in the cache.
+     * @return
+     * @throws Exception from the loader, nothing is kept then.
+     */
+    public Payload getFile(String folderName, String fileName, Loader loader) throws Exception
+    {
+        boolean plainName = !fileName.isEmpty() && fileName.indexOf('/') < 0 && fileName.indexOf('\\') < 0 && !fileName.equals("..");
+        return get(isCached(folderName) && plainName ? folderName + "/" + fileName : null, loader);
+    }
+
+    private boolean isCached(String folderName)
+    {
+        return folderName.equals(communicationsFolder) || folderName.equals(environmentsFolder);
+    }
+
+    // Key is null if it should not be kept.
+    private Payload get(String key, Loader loader) throws Exception
+    {
+        if (key == null)
+        {
+            return new Payload(loader.load());
+        }
+
+        Payload payload = payloads.get(key);
+        if (payload != null)
+        {
+            Metrics.get().recordCacheHit(metricName);
+            return payload;
+        }
+        Metrics.get().recordCacheMiss(metricName);
+
+        long loadVersion;
+        synchronized (this)
+        {
+            loadVersion = version;
+        }
+
+        payload = new Payload(loader.load());
+
+        synchronized (this)
+        {
+            if (loadVersion == version)
+            {
+                payloads.put(key, payload);
+            }
+        }
+        return payload;
+    }
+
+
+    //region Catalog.Listener
+
+    @Override
+    public void communicationChanged(String name, CommunicationProfile communication)
+    {
+        invalidate(communicationsFolder, name);
+    }
+
+    @Override
+    public void environmentChanged(String name, Environment environment)
+    {
+        invalidate(environmentsFolder, name);
+    }
+
+    @Override
+    public void difficultyMatrixChanged(DifficultyMatrix difficultyMatrix)
+    {
+        // Not sent by the GET requests.
+    }
+
+    //endregion
+
+
+    //region DefinitionRepository.Listener
+
+    @Override
+    public void definitionChanged(String folderName, String name)
+    {
+        invalidate(folderName, name);
+    }
+
+    @Override
+    public synchronized void folderChanged(String folderName)
+    {
+        version++;
+        payloads.keySet().removeIf(key -> key.equals(folderName) || key.startsWith(folderName + "/"));
+    }
+
+    //endregion
+
+
+    /**
+     * Removes the file and the listing of its folder.
+     * @param folderName
+     * @param fileName without json
+     */
+    public void fileChanged(String folderName, String fileName)
+    {
+        invalidate(folderName, fileName);
+    }
+
+    private synchronized void invalidate(String folderName, String fileName)
+    {
+        version++;
+        payloads.remove(folderName);
+        payloads.remove(folderName + "/" + fileName);
+    }
+
+
+    /**
+     * Returns whether the client accepts gzip content.
+     * @param acceptEncoding value of the Accept-Encoding header, may be null.
+     * @return
+     */
+    public static boolean acceptsGzip(String acceptEncoding)
+    {
+        if (acceptEncoding == null)
+        {
+            return false;
+        }
+
+        // e.g. "gzip, deflate, br" or "gzip;q=0" (not accepted)
+        for (String coding : acceptEncoding.split(","))
+        {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            if (name.equalsIgnoreCase("gzip") || name.equalsIgnoreCase("x-gzip") || name.equals("*"))
+            {
+                for (int i = 1; i < parts.length; i++)
+                {
+                    String parameter = parts[i].trim();
+                    if (parameter.startsWith("q=") && parseQuality(parameter.substring(2)) <= 0)
+                    {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static double parseQuality(String value)
+    {
+        try
+        {
+            return Double.parseDouble(value.trim());
+        }
+        catch (NumberFormatException e)
+        {
+            return 0;
+        }
+    }
+
+
+    /**
+     * Content of a response and its ETag. (Also in gzip, if it is big enough)
+     */
+    public static final class Payload
+    {
+        private final byte[] body;
+        private final String eTag;
+        private final byte[] gzipBody;
+        private final String gzipETag;
+
+        Payload(byte[] body) throws IOException
+        {
+            this.body = body;
+            this.eTag = createETag(body, "");
+
+            byte[] gzipBody = body.length >= minGzipSize ? gzip(body) : null;
+            if (gzipBody != null && gzipBody.length < body.length)
+            {
+                this.gzipBody = gzipBody;
+                this.gzipETag = createETag(body, "-gzip");
+            }
+            else
+            {
+                this.gzipBody = null;
+                this.gzipETag = null;
+            }
+        }
+
+        /**
+         * @return the content, it should not be changed.
+         */
+        public byte[] getBody()
+        {
+            return body;
+        }
+
+        public String getETag()
+        {
+            return eTag;
+        }
+
+        /**
+         * @return the content in gzip, null if it is not compressed. It should not be changed.
+         */
+        public byte[] getGzipBody()
+        {
+            return gzipBody;
+        }
+
+        public String getGzipETag()
+        {
+            return gzipETag;
+        }
+
+        /**
+         * Returns whether the client has the representation which would be sent already.
+         * Only the ETag of that representation is compared, a client which has the other one gets the content.
+         * @param ifNoneMatch value of the If-None-Match header, may be null.
+         * @param gzip whether the gzip content would be sent.
+         * @return
+         */
+        public boolean matches(String ifNoneMatch, boolean gzip)
+        {
+            if (ifNoneMatch == null)
+            {
+                return false;
+            }
+
+            String sentETag = gzip ? gzipETag : eTag;
+            // A list of ETags or *. Weak ones are compared by their value. (RFC 7232)
+            for (String tag : ifNoneMatch.split(","))
+            {
+                tag = tag.trim();
+                if (tag.startsWith("W/"))
+                {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals("*") || tag.equals(sentETag))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Compressed once, so the best compression is worth it.
+        private static byte[] gzip(byte[] body) throws IOException
+        {
+            ByteArrayOutputStream result = new ByteArrayOutputStream(body.length / 4);
+            try (GZIPOutputStream gzipStream = new GZIPOutputStream(result)
+            {
+                {
+                    def.setLevel(Deflater.BEST_COMPRESSION);
+                }
+            })
+            {
+                gzipStream.write(body);
+            }
+            return result.toByteArray();
+        }
+
+        // First half of SHA-256 of the content in hex, quoted.
+        private static String createETag(byte[] body, String suffix)
+        {
+            byte[] hash;
+            try
+            {
+                hash = MessageDigest.getInstance("SHA-256").digest(body);
+            }
+            catch (NoSuchAlgorithmException e)
+            {
+                // Every Java platform has SHA-256.
+                throw new IllegalStateException(e);
+            }
+
+            StringBuilder eTag = new StringBuilder("\"");
+            for (int i = 0; i < 16; i++)
+            {
+                eTag.append(Character.forDigit((hash[i] >> 4) & 0xF, 16)).append(Character.forDigit(hash[i] & 0xF, 16));
+            }
+            return eTag.append(suffix).append('"').toString();
+        }
+    }
+}
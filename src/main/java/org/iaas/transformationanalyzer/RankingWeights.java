@@ -0,0 +1,105 @@
+package org.iaas.transformationanalyzer;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Weights of the ranking of the candidate communications. (See Analyzer.rank)
+ *
+ * The score of a candidate is
+ *   difficultyPoint * points + difficultyLevel * level (0 = easiest) + lossCount * number of losses
+ *   + the weight of each loss it has (e.g. "Security": 50)
+ * Lower score is better, but only among the candidates which are equally possible: a possible one always comes before an impossible one.
+ * Candidates with the same score are ranked as the suggested communication is chosen:
+ * lower difficulty level, then fewer losses, then lower points, then the order of the new environment.
+ * So the default weights (all zero) give the suggested communication first.
+ *
+ * Example : {"difficultyPoint": 1, "lossCount": 100, "losses": {"Security": 500}}
+ */
+public class RankingWeights
+{
+    private double difficultyPoint;
+    private double difficultyLevel;
+    private double lossCount;
+    private Map<String, Double> losses;
+
+    public RankingWeights()
+    {
+        losses = new HashMap<String, Double>();
+    }
+
+
+    public double getDifficultyPoint()
+    {
+        return this.difficultyPoint;
+    }
+
+    public void setDifficultyPoint(double difficultyPoint)
+    {
+        this.difficultyPoint = difficultyPoint;
+    }
+
+
+    public double getDifficultyLevel()
+    {
+        return this.difficultyLevel;
+    }
+
+    public void setDifficultyLevel(double difficultyLevel)
+    {
+        this.difficultyLevel = difficultyLevel;
+    }
+
+
+    public double getLossCount()
+    {
+        return this.lossCount;
+    }
+
+    public void setLossCount(double lossCount)
+    {
+        this.lossCount = lossCount;
+    }
+
+
+    public Map<String, Double> getLosses()
+    {
+        return this.losses;
+    }
+
+    public void setLosses(Map<String, Double> losses)
+    {
+        this.losses = losses == null ? new HashMap<String, Double>() : losses;
+    }
+
+
+    /**
+     * Gets the score of the result.
+     * @param result
+     * @param level difficulty level of the result, 0 is the easiest.
+     * @return
+     */
+    double getScore(AnalysisResult result, int level)
+    {
+        double score = difficultyPoint * result.getDifficultyPoint() + difficultyLevel * level + lossCount * result.getPossibleLosses().size();
+        for (String loss : result.getPossibleLosses())
+        {
+            Double weight = losses.get(loss);
+            if (weight != null)
+            {
+                score += weight;
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Same weights give the same string, it is used in the key of AnalysisCache.
+     */
+    @Override
+    public String toString()
+    {
+        return "difficultyPoint=" + difficultyPoint + ", difficultyLevel=" + difficultyLevel + ", lossCount=" + lossCount + ", losses=" + new TreeMap<String, Double>(losses);
+    }
+}
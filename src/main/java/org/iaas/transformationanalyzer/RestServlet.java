@@ -1,19 +1,38 @@
 package org.iaas.transformationanalyzer;
 
-import org.json.JSONArray;
+import com.fasterxml.jackson.core.JsonGenerator;
 import org.json.JSONObject;
 
 import javax.json.JsonArray;
 import javax.json.JsonObject;
+import javax.servlet.AsyncContext;
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.File;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -24,9 +43,18 @@ import java.util.stream.Collectors;
  * - Get Json content and save as a file.
  * - Get Json file and send as Json content
  * - Do analysis of transformation capabilities.
+ * - Do many analyses in one request (analyseBatch).
+ * - Find the cheapest chain of transformations (analysePath).
+ * - Plan the move of a whole environment (analyseEnvironment).
+ *
+ * The analyses and the multi-file GET are handled asynchronously on the request executor,
+ * so that the container threads are released right away. If the executor is full, 503 is sent.
+ *
+ * The duration of each request is recorded in Metrics by its operation (single, multi, create, analyse, analyseBatch),
+ * together with the errors. See MetricsServlet.
  */
 
-@WebServlet(name="RestServlet", urlPatterns = {"/RestServlet"})
+@WebServlet(name="RestServlet", urlPatterns = {"/RestServlet"}, asyncSupported = true)
 public class RestServlet extends HttpServlet
 {
     String environmentsFolder;
@@ -39,12 +67,26 @@ public class RestServlet extends HttpServlet
     JSONObject jsonFileLoadError;
     JSONObject jsonFileCreateError;
     JSONObject jsonFileAnalysisError;
+    JSONObject jsonServerBusyError;
 
     String jsonErrorAttributeString;
     String jsonSuccessAttributeString;
 
-    String fileSeperator;
+    DefinitionRepository repository;
+    Catalog catalog;
+    TransformationMatrix transformationMatrix;
+    AnalysisCache analysisCache;
+    PayloadCache payloadCache;
+
+    // Runs the analyses of the batch requests. Shared by all the requests, so the number of threads is bounded.
+    ThreadPoolExecutor analysisExecutor;
+    int analysisThreads;
 
+    // Environments with at least this many supported communications are scored in parallel. (See Analyzer.setParallelScoring)
+    int parallelScoringThreshold;
+
+    // Handles the analysis and multi-file requests instead of the container threads.
+    ThreadPoolExecutor requestExecutor;
 
     /**
      * Defines some constants.
@@ -65,8 +107,155 @@ public class RestServlet extends HttpServlet
         jsonFileLoadError = new JSONObject().put(jsonErrorAttributeString, "Could not load files.");
         jsonFileCreateError = new JSONObject().put(jsonErrorAttributeString, "Could not create the file.");
         jsonFileAnalysisError = new JSONObject().put(jsonErrorAttributeString, "Could not make the analysis.");
+        jsonServerBusyError = new JSONObject().put(jsonErrorAttributeString, "Server is busy, try again later.");
+
+        // Where the definitions are kept, can be set as init-param of the servlet:
+        // json (default): one file per definition in json_data.
+        // embedded: an MVStore file (definitionStoreFile, default json_data/definitions.mv.db), the files are imported into it once.
+        Path jsonDataPath = Paths.get(jsonDataUrl);
+        String definitionStore = getInitParameter("definitionStore");
+        if (definitionStore == null || definitionStore.equals("json"))
+        {
+            repository = new JsonFolderRepository(jsonDataPath, communicationsFolder, environmentsFolder);
+        }
+        else if (definitionStore.equals("embedded"))
+        {
+            String storeFile = getInitParameter("definitionStoreFile");
+            repository = new EmbeddedDefinitionRepository(storeFile == null ? jsonDataPath.resolve("definitions.mv.db") : Paths.get(storeFile),
+                    jsonDataPath, communicationsFolder, environmentsFolder);
+        }
+        else
+        {
+            throw new ServletException("Init parameter should be json or embedded: definitionStore=" + definitionStore);
+        }
+
+        // Load all the communications and environments once. They are refreshed when the definitions change.
+        // The unchanged ones are taken from the snapshot (catalogSnapshotFile, default json_data/catalog.snapshot, none to disable it).
+        catalog = new Catalog(jsonDataPath, repository, communicationsFolder, environmentsFolder, settingsFileName);
+        String snapshotFile = getInitParameter("catalogSnapshotFile");
+        if (snapshotFile == null)
+        {
+            catalog.setSnapshotFile(jsonDataPath.resolve("catalog.snapshot"));
+        }
+        else if (!snapshotFile.equals("none"))
+        {
+            catalog.setSnapshotFile(Paths.get(snapshotFile));
+        }
+        try
+        {
+            catalog.open();
+        }
+        catch (Exception e)
+        {
+            throw new ServletException("Could not load the catalog.", e);
+        }
+
+        // Results of all the communication pairs. It listens to the catalog, so it is refreshed when a communication changes.
+        transformationMatrix = new TransformationMatrix(catalog.getDifficultyMatrix(), getIntInitParameter("transformationMatrixLimit", 500));
+        catalog.addListener(transformationMatrix);
+        transformationMatrix.build(catalog.getCommunications());
+
+        // Results of the last analyses. It listens to the catalog too, so a result is removed when one of its files changes.
+        analysisCache = new AnalysisCache(getIntInitParameter("analysisCacheSize", 256));
+        catalog.addListener(analysisCache);
 
-        fileSeperator = "\\";
+        // Responses of the GET requests, with their ETags.
+        // It listens to the repository too, the settings of the dropdown lists are not in the catalog.
+        payloadCache = new PayloadCache(communicationsFolder, environmentsFolder);
+        catalog.addListener(payloadCache);
+        repository.addListener(payloadCache);
+
+        // Can be set as init-param of the servlet. Default is one thread per processor.
+        analysisThreads = getIntInitParameter("analysisThreads", Runtime.getRuntime().availableProcessors());
+        parallelScoringThreshold = getIntInitParameter("parallelScoringThreshold", 256);
+        int analysisQueueSize = getIntInitParameter("analysisQueueSize", 1024);
+
+        // If the queue is full, the request thread does the analysis itself. That slows down the batch instead of failing it.
+        // (Not after destroy, then the task is rejected. Otherwise the request would wait for it forever)
+        analysisExecutor = createExecutor("analysis", analysisThreads, analysisQueueSize,
+                (runnable, executor) ->
+                {
+                    if (executor.isShutdown())
+                    {
+                        throw new RejectedExecutionException("Servlet is stopped.");
+                    }
+                    runnable.run();
+                });
+
+        // If the queue is full, the request is rejected with 503. (See handleAsync)
+        requestExecutor = createExecutor("request",
+                getIntInitParameter("requestThreads", Runtime.getRuntime().availableProcessors() * 2),
+                getIntInitParameter("requestQueueSize", 256),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Creates a fixed size executor with a bounded queue. The threads are named as prefix-1, prefix-2, ...
+     * @param prefix
+     * @param threads
+     * @param queueSize
+     * @param rejectedExecutionHandler what to do if the queue is full.
+     * @return
+     */
+    private ThreadPoolExecutor createExecutor(String prefix, int threads, int queueSize, RejectedExecutionHandler rejectedExecutionHandler)
+    {
+        AtomicInteger threadCount = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize),
+                runnable ->
+                {
+                    Thread thread = new Thread(runnable, prefix + "-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                rejectedExecutionHandler);
+    }
+
+    /**
+     * Reads an integer init-param of the servlet.
+     * @param name
+     * @param defaultValue used if the parameter is not set.
+     * @return
+     * @throws ServletException if the value is not a positive number.
+     */
+    private int getIntInitParameter(String name, int defaultValue) throws ServletException
+    {
+        String value = getInitParameter(name);
+        if (value == null)
+        {
+            return defaultValue;
+        }
+
+        try
+        {
+            int result = Integer.parseInt(value.trim());
+            if (result > 0)
+            {
+                return result;
+            }
+        }
+        catch (NumberFormatException e)
+        {
+            // Same error as a negative number.
+        }
+        throw new ServletException("Init parameter should be a positive number: " + name + "=" + value);
+    }
+
+    /**
+     * Stops watching the json_data folder, closes the definitions and stops the request and analysis threads.
+     */
+    public void destroy()
+    {
+        requestExecutor.shutdownNow();
+        analysisExecutor.shutdownNow();
+        try
+        {
+            catalog.close();
+        }
+        catch (IOException e)
+        {
+            // Nothing to do, servlet is going down anyway.
+        }
     }
 
 
@@ -82,11 +271,15 @@ public class RestServlet extends HttpServlet
      */
     protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException
     {
+        long start = System.nanoTime();
+
         // get body and parameters
         String postBody = request.getReader().lines().collect(Collectors.joining(System.lineSeparator()));
         String postRequestType = request.getParameter("postRequestType");
+        String operation = getOperationName(postRequestType, "create", "analyse", "analyseBatch", "analysePath", "analyseEnvironment");
 
-        String result = jsonRequestNotValid.toString();
+        // Stays null if the request is not valid.
+        String result = null;
 
         if(postRequestType != null)
         {
@@ -109,23 +302,150 @@ public class RestServlet extends HttpServlet
                 String env2 = request.getParameter("env2");
                 String oldComm = request.getParameter("oldComm");
 
-                if(env1 != null && env2 != null && oldComm != null)
+                // Optional: only the best k results are shown (rank=k), the weights of the ranking are in the body. See RankingWeights.
+                String rank = request.getParameter("rank");
+                int rankingCount = 0;
+                RankingWeights rankingWeights = null;
+                if(rank != null)
+                {
+                    try
+                    {
+                        rankingCount = Integer.parseInt(rank.trim());
+                        rankingWeights = postBody.trim().isEmpty() ? new RankingWeights() : new JsonReaderWriter<RankingWeights>(RankingWeights.class).ConvertJsonStringToJavaObject(postBody);
+                    }
+                    catch (Exception e)
+                    {
+                        // Not valid, the default result is sent.
+                        rankingCount = 0;
+                    }
+                }
+
+                // Optional: explain=true shows how the difficulty of each result is calculated. See DifficultyExplanation.
+                boolean explain = "true".equals(request.getParameter("explain"));
+
+                if(env1 != null && env2 != null && oldComm != null && (rank == null || rankingCount > 0))
+                {
+                    // Result is written directly into the response.
+                    int analysisRankingCount = rankingCount;
+                    RankingWeights analysisRankingWeights = rankingWeights;
+                    handleAsync(request, response, operation, start, asyncResponse ->
+                    {
+                        asyncResponse.setContentType("application/json");
+                        asyncResponse.setCharacterEncoding("UTF-8");
+                        try (JsonGenerator generator = JsonReaderWriter.CreateJsonGenerator(asyncResponse.getOutputStream()))
+                        {
+                            doAnalysis(env1, env2, oldComm, analysisRankingCount, analysisRankingWeights, explain, generator);
+                        }
+                    });
+                    return;
+                }
+            }
+
+            // if it is a search of the cheapest chain of transformations..
+            else if(postRequestType.equals("analysePath"))
+            {
+                String env2 = request.getParameter("env2");
+                String oldComm = request.getParameter("oldComm");
+
+                // Maximum number of transformations in the chain, 3 if it is not given. At most MigrationPathFinder.maxHopsLimit.
+                int maxHops = 0;
+                try
                 {
-                    result = doAnalysis(env1, env2, oldComm);
+                    maxHops = request.getParameter("maxHops") == null ? 3 : Integer.parseInt(request.getParameter("maxHops").trim());
+                    maxHops = Math.min(maxHops, MigrationPathFinder.maxHopsLimit);
+                }
+                catch (NumberFormatException e)
+                {
+                    // Not valid, the default result is sent.
+                }
+
+                if(env2 != null && oldComm != null && maxHops > 0)
+                {
+                    int pathMaxHops = maxHops;
+                    handleAsync(request, response, operation, start, asyncResponse ->
+                    {
+                        asyncResponse.setContentType("application/json");
+                        asyncResponse.setCharacterEncoding("UTF-8");
+                        try (JsonGenerator generator = JsonReaderWriter.CreateJsonGenerator(asyncResponse.getOutputStream()))
+                        {
+                            doPathAnalysis(env2, oldComm, pathMaxHops, generator);
+                        }
+                    });
+                    return;
+                }
+            }
+
+            // if it is analysis of all the communications of an environment..
+            else if(postRequestType.equals("analyseEnvironment"))
+            {
+                String env1 = request.getParameter("env1");
+                String env2 = request.getParameter("env2");
+
+                if(env1 != null && env2 != null)
+                {
+                    handleAsync(request, response, operation, start, asyncResponse ->
+                    {
+                        asyncResponse.setContentType("application/json");
+                        asyncResponse.setCharacterEncoding("UTF-8");
+                        try (JsonGenerator generator = JsonReaderWriter.CreateJsonGenerator(asyncResponse.getOutputStream()))
+                        {
+                            doEnvironmentAnalysis(env1, env2, generator);
+                        }
+                    });
+                    return;
+                }
+            }
+
+            // if it is analysis of many triples..
+            else if(postRequestType.equals("analyseBatch"))
+            {
+                // Body is a json array: [{"env1": .., "env2": .., "oldComm": ..}, ...]
+                List<AnalysisRequest> analysisRequests = null;
+                try
+                {
+                    analysisRequests = Arrays.asList(new JsonReaderWriter<AnalysisRequest[]>(AnalysisRequest[].class).ConvertJsonStringToJavaObject(postBody));
+                }
+                catch (Exception e)
+                {
+                    // Not valid, the default result is sent.
+                }
+
+                if(analysisRequests != null)
+                {
+                    // Results are written as soon as they are ready, so the response is not built in memory.
+                    List<AnalysisRequest> batch = analysisRequests;
+                    boolean ndjson = "ndjson".equals(request.getParameter("format"));
+                    handleAsync(request, response, operation, start, asyncResponse ->
+                    {
+                        asyncResponse.setContentType(ndjson ? "application/x-ndjson" : "application/json");
+                        asyncResponse.setCharacterEncoding("UTF-8");
+                        doBatchAnalysis(batch, ndjson, asyncResponse.getWriter());
+                    });
+                    return;
                 }
             }
         }
 
+        if(result == null)
+        {
+            result = jsonRequestNotValid.toString();
+            Metrics.get().recordError(operation);
+        }
+
         // set content type and body and make the response.
         response.setContentType("application/json");
         response.setCharacterEncoding("UTF-8");
         response.getWriter().write(result);
+        Metrics.get().recordRequest(operation, start);
     }
 
     /**
      * Handles the GET requests.
      * Returns all the JSON files to the Angular part of the application.
      *
+     * The responses come from the payload cache and have an ETag.
+     * If the client sends the same ETag in If-None-Match, only 304 is sent. (See writePayload)
+     *
      * @param request
      * @param response
      * @throws ServletException
@@ -133,11 +453,19 @@ public class RestServlet extends HttpServlet
      */
     protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException
     {
-        String result = jsonRequestNotValid.toString();
+        long start = System.nanoTime();
+
+        // Stays null if the request is not valid.
+        String result = null;
+
+        // set content type
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
 
         // get parameters
         String operation = request.getParameter("operation");
         String folderName = request.getParameter("folderName");
+        String operationName = getOperationName(operation, "single", "multi");
 
         if(operation != null && folderName != null)
         {
@@ -147,121 +475,274 @@ public class RestServlet extends HttpServlet
                 String fileName = request.getParameter("fileName");
                 if(fileName != null)
                 {
-                    result = doGetJsonContentSingleFile(folderName, fileName);
+                    try
+                    {
+                        writePayload(request, response, payloadCache.getFile(folderName, fileName, () -> doGetJsonContentSingleFile(folderName, fileName).getBytes(StandardCharsets.UTF_8)));
+                        Metrics.get().recordRequest(operationName, start);
+                        return;
+                    }
+                    catch (Exception e)
+                    {
+                        result = getError(jsonFileLoadError, e.getMessage());
+                        Metrics.get().recordError(operationName);
+                    }
                 }
             }
 
             // if all the files are requested..
             else if(operation.equals("multi"))
             {
-                result = doGetJsonContentMultiFile(folderName);
+                // The folder is read only if it is not in the cache.
+                handleAsync(request, response, operationName, start, asyncResponse ->
+                {
+                    PayloadCache.Payload payload;
+                    try
+                    {
+                        payload = payloadCache.getFolder(folderName, () -> doGetJsonContentMultiFile(folderName));
+                    }
+                    catch (Exception e)
+                    {
+                        Metrics.get().recordError(operationName);
+                        asyncResponse.getWriter().write(getError(jsonFileLoadError, e.getMessage()));
+                        return;
+                    }
+                    writePayload(request, asyncResponse, payload);
+                });
+                return;
             }
         }
 
-        // set content type and body and make the response.
-        response.setContentType("application/json");
-        response.setCharacterEncoding("UTF-8");
+        if(result == null)
+        {
+            result = jsonRequestNotValid.toString();
+            Metrics.get().recordError(operationName);
+        }
+
+        // set body and make the response.
         response.getWriter().write(result);
+        Metrics.get().recordRequest(operationName, start);
     }
 
     /**
-     * Get the content as Json string from the given folder with give fileName (without json)
+     * Gets the name of the operation for the metrics.
+     * Only the known names are used, so a client cannot create new time series. The others are "invalid".
      *
-     * @param folderName
-     * @param fileName
-     * @return Sting in Json format.
+     * @param name parameter of the request, may be null.
+     * @param knownNames
+     * @return
      */
-    private String doGetJsonContentSingleFile(String folderName, String fileName)
+    private static String getOperationName(String name, String... knownNames)
     {
-        JsonReaderWriter<Communication> communicationJsonReaderWriter = new JsonReaderWriter<Communication>(Communication.class);
-        JsonReaderWriter<Environment> environmentJsonReaderWriter = new JsonReaderWriter<Environment>(Environment.class);
+        for (String knownName : knownNames)
+        {
+            if (knownName.equals(name))
+            {
+                return knownName;
+            }
+        }
+        return "invalid";
+    }
 
-        String errorDetails = "";
-        String jsonResult = "";
+    /**
+     * Writes the response of a request, see handleAsync.
+     */
+    private interface AsyncHandler
+    {
+        void handle(HttpServletResponse response) throws IOException;
+    }
 
-        String fullFilePath = jsonDataUrl + fileSeperator + folderName + fileSeperator + fileName + ".json";
-        try
+    /**
+     * Handles the request on the request executor. The container thread is released right away.
+     *
+     * If the queue of the executor is full, the request is rejected with 503 (and Retry-After),
+     * so that a burst does not pile up more work than the server can do.
+     * If async is not supported (e.g. a filter without asyncSupported), the request is handled on the current thread.
+     *
+     * The duration of the request is recorded when the response is completed.
+     *
+     * @param request
+     * @param response
+     * @param operation name of the operation for the metrics.
+     * @param start System.nanoTime() when the request started.
+     * @param handler writes the response.
+     * @throws IOException
+     */
+    private void handleAsync(HttpServletRequest request, HttpServletResponse response, String operation, long start, AsyncHandler handler) throws IOException
+    {
+        if (!request.isAsyncSupported())
         {
-            // convert file into string
-            if (folderName.equals(this.communicationsFolder))
+            try
+            {
+                handler.handle(response);
+            }
+            catch (IOException e)
             {
-                jsonResult = communicationJsonReaderWriter.ConvertJsonFileToJsonSting(fullFilePath);
+                Metrics.get().recordError(operation);
+                throw e;
             }
-            else if (folderName.equals(this.environmentsFolder))
+            finally
             {
-                jsonResult = environmentJsonReaderWriter.ConvertJsonFileToJsonSting(fullFilePath);
+                Metrics.get().recordRequest(operation, start);
             }
+            return;
+        }
+
+        AsyncContext asyncContext = request.startAsync(request, response);
 
-            return  jsonResult;
+        // No timeout, the handler always completes the request.
+        asyncContext.setTimeout(0);
+        try
+        {
+            requestExecutor.execute(() ->
+            {
+                HttpServletResponse asyncResponse = (HttpServletResponse) asyncContext.getResponse();
+                try
+                {
+                    handler.handle(asyncResponse);
+                }
+                catch (Exception e)
+                {
+                    Metrics.get().recordError(operation);
+
+                    // Client is gone or something unexpected happened. Send an error if nothing is sent yet.
+                    if (!asyncResponse.isCommitted())
+                    {
+                        asyncResponse.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                    }
+                }
+                finally
+                {
+                    asyncContext.complete();
+                    Metrics.get().recordRequest(operation, start);
+                }
+            });
         }
-        catch (Exception e)
+        catch (RejectedExecutionException e)
         {
-            errorDetails = e.getMessage();
+            Metrics.get().recordRejected();
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", "1");
+            response.setContentType("application/json");
+            response.setCharacterEncoding("UTF-8");
+            response.getWriter().write(jsonServerBusyError.toString());
+            asyncContext.complete();
+            Metrics.get().recordRequest(operation, start);
+        }
+    }
+
+    /**
+     * Sends the payload with its ETag.
+     * If the client has the same content already (If-None-Match), only 304 is sent.
+     * If the client accepts gzip, the compressed content of the payload is sent as it is.
+     *
+     * Cache-Control is no-cache: the client may keep the response, but it should ask each time,
+     * because the files can be changed by any client.
+     *
+     * @param request
+     * @param response
+     * @param payload
+     * @throws IOException
+     */
+    private void writePayload(HttpServletRequest request, HttpServletResponse response, PayloadCache.Payload payload) throws IOException
+    {
+        boolean gzip = payload.getGzipBody() != null && PayloadCache.acceptsGzip(request.getHeader("Accept-Encoding"));
+
+        response.setHeader("ETag", gzip ? payload.getGzipETag() : payload.getETag());
+        response.setHeader("Cache-Control", "no-cache");
+        response.setHeader("Vary", "Accept-Encoding");
+
+        if (payload.matches(request.getHeader("If-None-Match"), gzip))
+        {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        byte[] body = gzip ? payload.getGzipBody() : payload.getBody();
+        if (gzip)
+        {
+            response.setHeader("Content-Encoding", "gzip");
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    /**
+     * Get the content as Json string from the given folder with give fileName (without json)
+     *
+     * @param folderName
+     * @param fileName
+     * @return Sting in Json format.
+     * @throws Exception if the file cannot be read.
+     */
+    private String doGetJsonContentSingleFile(String folderName, String fileName) throws Exception
+    {
+        // Only the Json tree is used, the type does not matter.
+        JsonReaderWriter<Communication> io = new JsonReaderWriter<Communication>(Communication.class);
+
+        byte[] content = repository.read(folderName, fileName);
+        if (content == null)
+        {
+            throw new Exception("File is not found: " + fileName + ".json");
         }
 
-        return jsonFileLoadError.put("Details", errorDetails).toString();
+        // convert content into string
+        return io.ConvertJsonBytesToJsonString(content, fileName + ".json");
     }
 
     /**
      * Gets all the content in the given folderName
      *
+     * Json array format, each item is a file content. [json1, json2, ...]
+     * A file which cannot be read is left out, the others are still sent.
+     *
      * @param folderName
-     * @return Sting in Json array format, each item is a file content
+     * @return the array as Json (UTF-8)
+     * @throws Exception if the folder cannot be read.
      */
-    private String doGetJsonContentMultiFile(String folderName)
+    private byte[] doGetJsonContentMultiFile(String folderName) throws Exception
     {
-        JsonReaderWriter<Communication> communicationJsonReaderWriter = new JsonReaderWriter<Communication>(Communication.class);
-        JsonReaderWriter<Environment> environmentJsonReaderWriter = new JsonReaderWriter<Environment>(Environment.class);
+        // Only the Json tree is used, the type does not matter.
+        JsonReaderWriter<Communication> io = new JsonReaderWriter<Communication>(Communication.class);
 
-        String errorDetails = "";
+        List<String> names = repository.getNames(folderName);
 
-        String jsonResult = "";
-        String fullFolderPath = jsonDataUrl + fileSeperator + folderName;
-        try
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (JsonGenerator generator = JsonReaderWriter.CreateJsonGenerator(outputStream))
         {
-            // get the files and filter to read only *.json and except for settings.json (it has different logic)
-            File folder = new File(fullFolderPath);
-            if (folder != null)
+            generator.writeStartArray();
+            for (String fileName : names)
             {
-                File[] listOfFiles = folder.listFiles();
-                List<String> tempResult = new ArrayList<String>();
-
-                for (int i = 0; i < listOfFiles.length; i++)
+                // except for settings.json (it has different logic)
+                if (!fileName.contains(settingsFileName))
                 {
-                    if (listOfFiles[i].isFile())
+                    try
                     {
-                        String fileName = listOfFiles[i].getName();
-                        if (fileName.contains("json") && !fileName.contains(settingsFileName))
+                        // Write each file content as the next item of the array. (null if it is removed in the meantime)
+                        byte[] content = repository.read(folderName, fileName);
+                        if (content != null)
                         {
-                            // Convert each file into json string and add to the list
-                            if (folderName.equals(this.communicationsFolder))
-                            {
-                                tempResult.add(communicationJsonReaderWriter.ConvertJsonFileToJsonSting(fullFolderPath + fileSeperator + fileName));
-                            }
-                            else if (folderName.equals(this.environmentsFolder))
-                            {
-                                tempResult.add(environmentJsonReaderWriter.ConvertJsonFileToJsonSting(fullFolderPath + fileSeperator + fileName));
-                            }
+                            io.ConvertJsonBytesToJsonStream(content, fileName + ".json", generator);
                         }
                     }
+                    catch (Exception e)
+                    {
+                        // Leave this file out, the others are still sent.
+                        Metrics.get().recordError("multi");
+                    }
                 }
-
-                // Make a json array. [json1, json2, ...] where json{i} is a file content.
-                jsonResult = "[" + String.join(",", tempResult) + "]";
-                return jsonResult;
             }
+            generator.writeEndArray();
         }
-        catch (Exception e)
-        {
-            errorDetails = e.getMessage();
-        }
-
-        return jsonFileLoadError.put("Details", errorDetails).toString();
+        return outputStream.toByteArray();
     }
 
 
     /**
-     * Gets the content and writes into a Json file
+     * Gets the content and saves it into the repository (a Json file by default)
+     *
+     * A communication or environment is checked and compiled by the catalog first, see Catalog.publish.
+     * If it is not valid, nothing is written and the reason is sent in the Details.
+     * The settings of the dropdown lists are only checked to be Json.
      *
      * @param folderName
      * @param fileName
@@ -270,14 +751,22 @@ public class RestServlet extends HttpServlet
      */
     private String doCreation(String folderName, String fileName, String content)
     {
-        String fullFilePath = jsonDataUrl + fileSeperator + folderName + fileSeperator + fileName + ".json";
-        JsonReaderWriter<Communication> io = new JsonReaderWriter<Communication>(Communication.class);
-
         String errorDetails = "";
 
         try
         {
-            io.ConvertJsonStingToJsonFile(fullFilePath, content);
+            if (fileName.equals(settingsFileName))
+            {
+                JsonReaderWriter<Communication> io = new JsonReaderWriter<Communication>(Communication.class);
+                repository.write(folderName, fileName, io.ConvertJsonStringToPrettyJson(content, fileName + ".json"));
+            }
+            else
+            {
+                // The catalog has the compiled form right away, the next analysis may use it without waiting for the watcher.
+                // (Only the row and column of this communication are calculated again in the transformation matrix)
+                catalog.publish(folderName, fileName, content.getBytes(StandardCharsets.UTF_8));
+            }
+            payloadCache.fileChanged(folderName, fileName);
 
             String result = "File is created in local server!";
             JSONObject jsonObj = new JSONObject().put(jsonSuccessAttributeString, result);
@@ -292,85 +781,408 @@ public class RestServlet extends HttpServlet
         catch (Exception e)
         {
             errorDetails = e.getMessage();
-
+            Metrics.get().recordError("create");
         }
-        return jsonFileCreateError.put("Details", errorDetails).toString();
+        return getError(jsonFileCreateError, errorDetails);
     }
 
 
     /**
      * Gets the name of the environments and the old communication between them.
      *
-     * Finds all the supported communications of the both environments and converts those info from file to java object.
-     * Working with java objects is way easier than JSON objects. That's why it converts everyting to java object.
+     * Finds all the supported communications of the both environments in the catalog.
+     * The catalog has already converted everything from file to java object, so nothing is read from disk here.
+     * Working with java objects is way easier than JSON objects.
      *
-     * All the environments and the supported communications of the both will be converted to java object.
-     * Old communication is also converted to the java object too.
+     * All the environments and the supported communications of the both will be taken as java object.
+     * Old communication is also taken as java object too.
      *
      * Then the logic starts and evaluates according to the content of the supported communications and old communication.
      *
+     * The result is written with the given generator, in Json format.
+     * If the analysis cannot be made, the error is written instead. [{"ERROR": ..}, {"Details": ..}]
+     *
+     * The result is kept in the analysis cache, so the same request is answered from there
+     * until one of its files changes. Errors are not kept, the missing file may be created later.
+     *
      * @param env1
      * @param env2
      * @param oldComm
-     * @return result of the analysis in Sting (Json format)
+     * @param rankingCount number of the results to show if they are ranked.
+     * @param rankingWeights null to show all the results. (See Analyzer.rank)
+     * @param explain shows how the difficulty of each result is calculated. (See Analyzer.setExplain)
+     * @param generator
+     * @throws IOException if the result cannot be written.
      */
-    private String doAnalysis(String env1, String env2, String oldComm)
+    private void doAnalysis(String env1, String env2, String oldComm, int rankingCount, RankingWeights rankingWeights, boolean explain, JsonGenerator generator) throws IOException
     {
-        JSONArray jsonArrayResult = new JSONArray();
-        try
+        String options = (rankingWeights == null ? "" : "rank=" + rankingCount + ", " + rankingWeights) + (explain ? ", explain" : "");
+        String cachedResult = analysisCache.get(env1, env2, oldComm, options);
+        if (cachedResult != null)
         {
-            JsonReaderWriter<Communication> communicationJsonReaderWriter = new JsonReaderWriter<Communication>(Communication.class);
-            JsonReaderWriter<Environment> environmentJsonReaderWriter = new JsonReaderWriter<Environment>(Environment.class);
+            generator.writeRawValue(cachedResult);
+            return;
+        }
 
+        // Taken before the catalog, see AnalysisCache.
+        long cacheVersion = analysisCache.getVersion();
+        Set<String> communications = new HashSet<String>();
+
+        Analyzer analyzer;
+        try
+        {
             // Get the old communication in object form.
-            String oldCommunicationStringFormat = doGetJsonContentSingleFile(communicationsFolder, oldComm);
-            Communication oldCommunicationObj = communicationJsonReaderWriter.ConvertJsonStringToJavaObject(oldCommunicationStringFormat);
+            CommunicationProfile oldCommunicationObj = catalog.getCommunication(oldComm);
 
             // Get the old env in object form.
-            String oldEnvironmentStringFormat = doGetJsonContentSingleFile(environmentsFolder, env1);
-            Environment oldEnvironmentObj = environmentJsonReaderWriter.ConvertJsonStringToJavaObject(oldEnvironmentStringFormat);
+            Environment oldEnvironmentObj = catalog.getEnvironment(env1);
 
             // Get the new env in object form.
-            String newEnvironmentStringFormat = doGetJsonContentSingleFile(environmentsFolder, env2);
-            Environment newEnvironmentObj = environmentJsonReaderWriter.ConvertJsonStringToJavaObject(newEnvironmentStringFormat);
+            Environment newEnvironmentObj = catalog.getEnvironment(env2);
 
 
             // get all the supported comm types of old and new env in java object form.
-            List<Communication> oldEnvironmentSupportedCommObjs = new ArrayList<Communication>();
-            List<Communication> newEnvironmentSupportedCommObjs = new ArrayList<Communication>();
+            List<CommunicationProfile> oldEnvironmentSupportedCommObjs = new ArrayList<CommunicationProfile>();
+            List<CommunicationProfile> newEnvironmentSupportedCommObjs = new ArrayList<CommunicationProfile>();
 
             for (DropDownListItem commItem: oldEnvironmentObj.getSupportedCommunications())
             {
-                String commName = commItem.getItemName();
-                String tempCommStringFormat = doGetJsonContentSingleFile(communicationsFolder, commName);
-                Communication tempCommObj = communicationJsonReaderWriter.ConvertJsonStringToJavaObject(tempCommStringFormat);
-                oldEnvironmentSupportedCommObjs.add(tempCommObj);
+                oldEnvironmentSupportedCommObjs.add(catalog.getCommunication(commItem.getItemName()));
+                communications.add(commItem.getItemName());
             }
 
             for (DropDownListItem commItem: newEnvironmentObj.getSupportedCommunications())
             {
-                String commName = commItem.getItemName();
-                String tempCommStringFormat = doGetJsonContentSingleFile(communicationsFolder, commName);
-                Communication tempCommObj = communicationJsonReaderWriter.ConvertJsonStringToJavaObject(tempCommStringFormat);
-                newEnvironmentSupportedCommObjs.add(tempCommObj);
+                newEnvironmentSupportedCommObjs.add(catalog.getCommunication(commItem.getItemName()));
+                communications.add(commItem.getItemName());
             }
+            communications.add(oldComm);
 
             // Now everything is ready, get the results.
-            Analyzer analyzer = new Analyzer(oldEnvironmentObj, newEnvironmentObj, oldCommunicationObj, oldEnvironmentSupportedCommObjs, newEnvironmentSupportedCommObjs);
-            jsonArrayResult = analyzer.GetAnalysisResult();
+            analyzer = new Analyzer(oldEnvironmentObj, newEnvironmentObj, oldCommunicationObj, oldEnvironmentSupportedCommObjs, newEnvironmentSupportedCommObjs, transformationMatrix);
+            analyzer.setParallelScoring(parallelScoringThreshold);
+            analyzer.setExplain(explain);
+            if (rankingWeights != null)
+            {
+                // More than the supported communications shows all of them.
+                analyzer.setRanking(Math.min(rankingCount, newEnvironmentSupportedCommObjs.size()), rankingWeights);
+            }
+
+            long start = System.nanoTime();
+            analyzer.Analyse();
+            Metrics.get().recordStage(Metrics.Stage.ANALYSIS, start);
         }
         catch (Exception e)
         {
-            jsonArrayResult = new JSONArray();
-            JSONObject jsonObjLine1 = jsonFileAnalysisError;
-            JSONObject jsonObjLine2 = new JSONObject().put("Details", e.getMessage());
+            // Nothing is written yet.
+            Metrics.get().recordError("analyse");
+            generator.writeStartArray();
+            generator.writeRawValue(jsonFileAnalysisError.toString());
+            generator.writeRawValue(new JSONObject().put("Details", e.getMessage()).toString());
+            generator.writeEndArray();
+            return;
+        }
+
+        StringWriter result = new StringWriter();
+        try (JsonGenerator resultGenerator = JsonReaderWriter.CreateJsonGenerator(result))
+        {
+            analyzer.WriteAnalysisResult(resultGenerator);
+        }
+        analysisCache.put(env1, env2, oldComm, options, communications, cacheVersion, result.toString());
+        generator.writeRawValue(result.toString());
+    }
+
+    /**
+     * Finds the cheapest chain of transformations from the old communication to a supported communication of the new environment.
+     * All the communications of the catalog can be in the chain. (See MigrationPathFinder)
+     *
+     * The result is written with the given generator, in Json format.
+     * If the search cannot be made, the error is written instead. [{"ERROR": ..}, {"Details": ..}]
+     *
+     * @param env2
+     * @param oldComm
+     * @param maxHops maximum number of transformations in the chain.
+     * @param generator
+     * @throws IOException if the result cannot be written.
+     */
+    private void doPathAnalysis(String env2, String oldComm, int maxHops, JsonGenerator generator) throws IOException
+    {
+        MigrationPathFinder pathFinder;
+        try
+        {
+            CommunicationProfile oldCommunicationObj = catalog.getCommunication(oldComm);
+            Environment newEnvironmentObj = catalog.getEnvironment(env2);
+
+            List<CommunicationProfile> newEnvironmentSupportedCommObjs = new ArrayList<CommunicationProfile>();
+            for (DropDownListItem commItem: newEnvironmentObj.getSupportedCommunications())
+            {
+                newEnvironmentSupportedCommObjs.add(catalog.getCommunication(commItem.getItemName()));
+            }
+
+            pathFinder = new MigrationPathFinder(oldCommunicationObj, newEnvironmentSupportedCommObjs, catalog.getCommunications().values(), transformationMatrix, maxHops);
 
-            jsonArrayResult.put(jsonObjLine1);
-            jsonArrayResult.put(jsonObjLine2);
+            long start = System.nanoTime();
+            pathFinder.FindPath();
+            Metrics.get().recordStage(Metrics.Stage.ANALYSIS, start);
+        }
+        catch (Exception e)
+        {
+            // Nothing is written yet.
+            Metrics.get().recordError("analysePath");
+            generator.writeStartArray();
+            generator.writeRawValue(jsonFileAnalysisError.toString());
+            generator.writeRawValue(new JSONObject().put("Details", e.getMessage()).toString());
+            generator.writeEndArray();
+            return;
         }
 
-        String jsonString = jsonArrayResult.toString();
-        return jsonString;
+        pathFinder.WritePathResult(generator);
+    }
+
+    /**
+     * Analyses every supported communication of the old environment against the new environment, and writes the plan.
+     * (See MigrationPlan)
+     *
+     * The environments and the communications are taken from the catalog once and shared by all the analyses.
+     * The analyses run in parallel on the analysis executor, like a batch.
+     *
+     * The result is written with the given generator, in Json format.
+     * If the analysis cannot be made, the error is written instead. [{"ERROR": ..}, {"Details": ..}]
+     *
+     * @param env1
+     * @param env2
+     * @param generator
+     * @throws IOException if the result cannot be written.
+     */
+    private void doEnvironmentAnalysis(String env1, String env2, JsonGenerator generator) throws IOException
+    {
+        MigrationPlan plan;
+        List<Future<Analyzer>> analyses = new ArrayList<Future<Analyzer>>();
+        try
+        {
+            Environment oldEnvironmentObj = catalog.getEnvironment(env1);
+            Environment newEnvironmentObj = catalog.getEnvironment(env2);
+
+            List<CommunicationProfile> oldEnvironmentSupportedCommObjs = new ArrayList<CommunicationProfile>();
+            List<CommunicationProfile> newEnvironmentSupportedCommObjs = new ArrayList<CommunicationProfile>();
+
+            for (DropDownListItem commItem: oldEnvironmentObj.getSupportedCommunications())
+            {
+                oldEnvironmentSupportedCommObjs.add(catalog.getCommunication(commItem.getItemName()));
+            }
+
+            for (DropDownListItem commItem: newEnvironmentObj.getSupportedCommunications())
+            {
+                newEnvironmentSupportedCommObjs.add(catalog.getCommunication(commItem.getItemName()));
+            }
+
+            long start = System.nanoTime();
+            for (CommunicationProfile oldCommunicationObj : oldEnvironmentSupportedCommObjs)
+            {
+                analyses.add(analysisExecutor.submit(() ->
+                {
+                    Analyzer analyzer = new Analyzer(oldEnvironmentObj, newEnvironmentObj, oldCommunicationObj, oldEnvironmentSupportedCommObjs, newEnvironmentSupportedCommObjs, transformationMatrix);
+                    analyzer.setParallelScoring(parallelScoringThreshold);
+                    analyzer.Analyse();
+                    return analyzer;
+                }));
+            }
+
+            List<Analyzer> analyzers = new ArrayList<Analyzer>();
+            for (Future<Analyzer> analysis : analyses)
+            {
+                analyzers.add(analysis.get());
+            }
+            Metrics.get().recordStage(Metrics.Stage.ANALYSIS, start);
+
+            plan = new MigrationPlan(oldEnvironmentObj, newEnvironmentObj, analyzers);
+        }
+        catch (Exception e)
+        {
+            if (e instanceof InterruptedException)
+            {
+                Thread.currentThread().interrupt();
+            }
+            for (Future<Analyzer> analysis : analyses)
+            {
+                analysis.cancel(true);
+            }
+
+            // Nothing is written yet.
+            Metrics.get().recordError("analyseEnvironment");
+            generator.writeStartArray();
+            generator.writeRawValue(jsonFileAnalysisError.toString());
+            generator.writeRawValue(new JSONObject().put("Details", e.getMessage()).toString());
+            generator.writeEndArray();
+            return;
+        }
+
+        plan.WritePlanResult(generator);
+    }
+
+    /**
+     * Makes the analysis of each triple in parallel and writes the results in the same order as the requests.
+     *
+     * Each result is written as {"env1": .., "env2": .., "oldComm": .., "result": [result of the analysis]}
+     * Json format: [result1, result2, ...]
+     * NDJSON format: one result per line.
+     *
+     * Only a few analyses are made ahead of the writer, so a big batch does not keep all the results in memory.
+     * All of them use the catalog, so no file is read for the batch.
+     *
+     * If an analysis fails (or the request is interrupted), an error result is written for that triple (see getBatchError).
+     * The array is always closed, so the client never gets a truncated Json.
+     *
+     * @param analysisRequests
+     * @param ndjson
+     * @param writer
+     * @throws IOException if the client is gone.
+     */
+    private void doBatchAnalysis(List<AnalysisRequest> analysisRequests, boolean ndjson, Writer writer) throws IOException
+    {
+        int window = analysisThreads * 2;
+        Deque<Future<String>> pending = new ArrayDeque<Future<String>>();
+        // Triples of the pending analyses, in the same order.
+        Deque<AnalysisRequest> pendingRequests = new ArrayDeque<AnalysisRequest>();
+
+        try
+        {
+            if (!ndjson)
+            {
+                writer.write("[");
+            }
+
+            int next = 0;
+            boolean first = true;
+            boolean interrupted = false;
+            while (!interrupted && (next < analysisRequests.size() || !pending.isEmpty()))
+            {
+                // Keep the threads busy while the previous result is being written.
+                while (next < analysisRequests.size() && pending.size() < window)
+                {
+                    AnalysisRequest analysisRequest = analysisRequests.get(next++);
+                    pending.add(analysisExecutor.submit(() -> getBatchResult(analysisRequest)));
+                    pendingRequests.add(analysisRequest);
+                }
+
+                AnalysisRequest analysisRequest = pendingRequests.poll();
+                String line;
+                try
+                {
+                    line = pending.poll().get();
+                }
+                catch (InterruptedException e)
+                {
+                    // The rest is not analysed, this triple gets the error.
+                    Thread.currentThread().interrupt();
+                    interrupted = true;
+                    line = getBatchError(analysisRequest, "Request is interrupted.");
+                }
+                catch (ExecutionException e)
+                {
+                    // Any exception or error of the analysis. The other triples are not affected.
+                    Metrics.get().recordError("analyseBatch");
+                    line = getBatchError(analysisRequest, String.valueOf(e.getCause()));
+                }
+
+                if (!ndjson && !first)
+                {
+                    writer.write(",");
+                }
+                writer.write(line);
+                if (ndjson)
+                {
+                    writer.write("\n");
+                }
+                first = false;
+            }
+
+            if (!ndjson)
+            {
+                writer.write("]");
+            }
+        }
+        finally
+        {
+            // Client is gone or the request is interrupted, the rest is not needed.
+            for (Future<String> future : pending)
+            {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Error response with details. The error objects are shared by the requests, so the details are put into a copy.
+     * @param error one of the json...Error objects.
+     * @param details
+     * @return the error as Json string.
+     */
+    private String getError(JSONObject error, String details)
+    {
+        return new JSONObject().put(jsonErrorAttributeString, error.get(jsonErrorAttributeString)).put("Details", details).toString();
+    }
+
+    /**
+     * Error result of one triple of a batch request, same form as the result. (See doBatchAnalysis)
+     * {"env1": .., "env2": .., "oldComm": .., "result": [{"ERROR": ..}, {"Details": ..}]}
+     */
+    private String getBatchError(AnalysisRequest analysisRequest, String details) throws IOException
+    {
+        if (analysisRequest == null)
+        {
+            analysisRequest = new AnalysisRequest();
+        }
+
+        StringWriter line = new StringWriter();
+        try (JsonGenerator generator = JsonReaderWriter.CreateJsonGenerator(line))
+        {
+            generator.writeStartObject();
+            generator.writeStringField("env1", analysisRequest.getEnv1());
+            generator.writeStringField("env2", analysisRequest.getEnv2());
+            generator.writeStringField("oldComm", analysisRequest.getOldComm());
+
+            generator.writeArrayFieldStart("result");
+            generator.writeRawValue(jsonFileAnalysisError.toString());
+            generator.writeRawValue(new JSONObject().put("Details", details).toString());
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        return line.toString();
+    }
+
+    /**
+     * Result of one triple of a batch request. (See doBatchAnalysis)
+     */
+    private String getBatchResult(AnalysisRequest analysisRequest) throws IOException
+    {
+        if (analysisRequest == null)
+        {
+            analysisRequest = new AnalysisRequest();
+        }
+
+        StringWriter line = new StringWriter();
+        try (JsonGenerator generator = JsonReaderWriter.CreateJsonGenerator(line))
+        {
+            generator.writeStartObject();
+            generator.writeStringField("env1", analysisRequest.getEnv1());
+            generator.writeStringField("env2", analysisRequest.getEnv2());
+            generator.writeStringField("oldComm", analysisRequest.getOldComm());
+
+            generator.writeFieldName("result");
+            if (analysisRequest.hasAllParameters())
+            {
+                doAnalysis(analysisRequest.getEnv1(), analysisRequest.getEnv2(), analysisRequest.getOldComm(), 0, null, false, generator);
+            }
+            else
+            {
+                generator.writeStartArray();
+                generator.writeRawValue(jsonRequestNotValid.toString());
+                generator.writeEndArray();
+            }
+            generator.writeEndObject();
+        }
+        return line.toString();
     }
 
 
@@ -0,0 +1,244 @@
+package org.iaas.transformationanalyzer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Results of the transformations between all the pairs of communications. (old => new)
+ *
+ * The result of a pair depends only on the two communications and the difficulty points (see Analyzer.analysePair),
+ * so it is calculated once and then all the analyses just look it up.
+ *
+ * All the pairs are calculated when the servlet starts, in parallel. (Parallel streams run on the common fork/join pool)
+ * The matrix listens to the catalog:
+ * - a communication is created, edited or removed: only its row and column are calculated again.
+ * - the difficulty points are changed: everything is calculated again.
+ *
+ * The results are kept by the profiles themselves, a profile is never changed. (Edited file => new profile)
+ * Each result also remembers the difficulty points it is calculated from.
+ * If a lookup comes before the matrix is updated, the result is not found and it is calculated right away,
+ * so a lookup never returns an old result.
+ *
+ * If there are more communications than the limit, nothing is kept and each lookup calculates the result. (N x N results need a lot of memory)
+ */
+public class TransformationMatrix implements Catalog.Listener
+{
+    // old communication => new communication => result
+    private final Map<CommunicationProfile, Map<CommunicationProfile, Entry>> rows;
+
+    // The communications which are in the matrix, by name (file name without json) and the profiles themselves.
+    private final Map<String, CommunicationProfile> communications;
+    private final Set<CommunicationProfile> profiles;
+
+    private final int limit;
+    private volatile DifficultyMatrix difficultyMatrix;
+
+
+    /**
+     * @param difficultyMatrix current difficulty points
+     * @param limit maximum number of communications to keep the results for
+     */
+    public TransformationMatrix(DifficultyMatrix difficultyMatrix, int limit)
+    {
+        this.rows = new ConcurrentHashMap<CommunicationProfile, Map<CommunicationProfile, Entry>>();
+        this.communications = new ConcurrentHashMap<String, CommunicationProfile>();
+        this.profiles = ConcurrentHashMap.newKeySet();
+        this.limit = limit;
+        this.difficultyMatrix = difficultyMatrix;
+    }
+
+    /**
+     * Calculates the results of all the pairs of the given communications.
+     * @param communications by name (file name without json)
+     */
+    public void build(Map<String, CommunicationProfile> communications)
+    {
+        for (Map.Entry<String, CommunicationProfile> communication : communications.entrySet())
+        {
+            put(communication.getKey(), communication.getValue());
+        }
+        rebuild();
+    }
+
+    /**
+     * Gets the result of the transformation from old to new.
+     * @param oldComm
+     * @param newComm
+     * @return the result, it should not be changed.
+     */
+    public AnalysisResult getResult(CommunicationProfile oldComm, CommunicationProfile newComm)
+    {
+        DifficultyMatrix points = this.difficultyMatrix;
+
+        Map<CommunicationProfile, Entry> row = rows.get(oldComm);
+        Entry entry = row == null ? null : row.get(newComm);
+        if (entry != null && entry.difficultyMatrix == points)
+        {
+            return entry.result;
+        }
+
+        return calculate(oldComm, newComm, points).result;
+    }
+
+    /**
+     * Gets the difficulty points which the results are calculated from.
+     */
+    public DifficultyMatrix getDifficultyMatrix()
+    {
+        return this.difficultyMatrix;
+    }
+
+    public int getLimit()
+    {
+        return this.limit;
+    }
+
+    /**
+     * Returns whether the results are kept. (Number of communications is within the limit)
+     */
+    public boolean isEnabled()
+    {
+        return communications.size() <= limit;
+    }
+
+
+    //region Catalog.Listener
+
+    @Override
+    public void communicationChanged(String name, CommunicationProfile communication)
+    {
+        // Results of the old content are not valid anymore.
+        CommunicationProfile previous = put(name, communication);
+        if (previous != null)
+        {
+            rows.remove(previous);
+            for (Map<CommunicationProfile, Entry> row : rows.values())
+            {
+                row.remove(previous);
+            }
+        }
+
+        if (communication == null)
+        {
+            return;
+        }
+
+        if (!isEnabled())
+        {
+            rows.clear();
+            return;
+        }
+
+        // Row: name => all, Column: all => name
+        DifficultyMatrix points = this.difficultyMatrix;
+        List<CommunicationProfile> all = new ArrayList<CommunicationProfile>(communications.values());
+        all.parallelStream().forEach(other ->
+        {
+            calculate(communication, other, points);
+            calculate(other, communication, points);
+        });
+    }
+
+    @Override
+    public void environmentChanged(String name, Environment environment)
+    {
+        // Results do not depend on the environments.
+    }
+
+    @Override
+    public void difficultyMatrixChanged(DifficultyMatrix difficultyMatrix)
+    {
+        this.difficultyMatrix = difficultyMatrix;
+        rebuild();
+    }
+
+    //endregion
+
+
+    /**
+     * Puts the communication into the matrix, null removes it.
+     * @return the previous profile with the same name
+     */
+    private CommunicationProfile put(String name, CommunicationProfile communication)
+    {
+        CommunicationProfile previous = communication == null ? communications.remove(name) : communications.put(name, communication);
+        if (communication != null)
+        {
+            profiles.add(communication);
+        }
+        if (previous != null && previous != communication)
+        {
+            profiles.remove(previous);
+        }
+        return previous;
+    }
+
+    /**
+     * Calculates all the pairs again.
+     */
+    private void rebuild()
+    {
+        rows.clear();
+        if (!isEnabled())
+        {
+            return;
+        }
+
+        DifficultyMatrix points = this.difficultyMatrix;
+        List<CommunicationProfile> all = new ArrayList<CommunicationProfile>(communications.values());
+
+        // One task per row.
+        all.parallelStream().forEach(oldComm ->
+        {
+            for (CommunicationProfile newComm : all)
+            {
+                calculate(oldComm, newComm, points);
+            }
+        });
+    }
+
+    /**
+     * Calculates the result of the pair and keeps it, if the matrix is enabled.
+     */
+    private Entry calculate(CommunicationProfile oldComm, CommunicationProfile newComm, DifficultyMatrix points)
+    {
+        Entry entry = new Entry(points, Analyzer.analysePair(oldComm, newComm, points));
+
+        // Only the current communications are kept, not a result of an old content.
+        if (isEnabled() && profiles.contains(oldComm) && profiles.contains(newComm))
+        {
+            Map<CommunicationProfile, Entry> row = rows.computeIfAbsent(oldComm, profile -> new ConcurrentHashMap<CommunicationProfile, Entry>());
+            row.put(newComm, entry);
+
+            // One of them may be removed meanwhile, communicationChanged has already removed its results then.
+            if (!profiles.contains(oldComm) || !profiles.contains(newComm))
+            {
+                row.remove(newComm);
+                if (!profiles.contains(oldComm))
+                {
+                    rows.remove(oldComm, row);
+                }
+            }
+        }
+        return entry;
+    }
+
+
+    /**
+     * Result of one pair and the difficulty points it is calculated from.
+     */
+    private static final class Entry
+    {
+        private final DifficultyMatrix difficultyMatrix;
+        private final AnalysisResult result;
+
+        private Entry(DifficultyMatrix difficultyMatrix, AnalysisResult result)
+        {
+            this.difficultyMatrix = difficultyMatrix;
+            this.result = result;
+        }
+    }
+}
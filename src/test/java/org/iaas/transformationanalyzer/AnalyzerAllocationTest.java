@@ -0,0 +1,78 @@
+package org.iaas.transformationanalyzer;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The default path of Analyzer.analysePair (no explanation) should allocate only the result.
+ * A String made for each rule (as the difficulty history did) costs about 100 bytes, with its StringBuilder, so five of them break the bound.
+ *
+ * The allocated bytes of the thread are read with com.sun.management.ThreadMXBean, the test is skipped on a JVM which does not have it.
+ */
+public class AnalyzerAllocationTest
+{
+    // The result (AnalysisResult and its list of losses) is about 150 bytes.
+    private static final long maxBytesPerPair = 256;
+
+    private static final int warmupRounds = 20;
+    private static final int rounds = 50;
+
+    private static List<CommunicationProfile> communications;
+    private static DifficultyMatrix difficultyMatrix;
+
+    // Keeps the results alive, so they are not optimized away.
+    private static AnalysisResult lastResult;
+
+    @BeforeClass
+    public static void loadCatalog() throws Exception
+    {
+        communications = new ArrayList<CommunicationProfile>(ShippedCatalog.compileCommunications().values());
+        difficultyMatrix = ShippedCatalog.loadDifficultyMatrix();
+    }
+
+    @Test
+    public void defaultPathAllocatesOnlyTheResult()
+    {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        Assume.assumeTrue(allocations.isThreadAllocatedMemorySupported());
+        allocations.setThreadAllocatedMemoryEnabled(true);
+
+        // So that the measured calls are compiled, as in the server.
+        analyseAllPairs(warmupRounds);
+
+        long threadId = Thread.currentThread().getId();
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        int pairs = analyseAllPairs(rounds);
+        long bytesPerPair = (allocations.getThreadAllocatedBytes(threadId) - before) / pairs;
+
+        Assert.assertNotNull(lastResult);
+        Assert.assertTrue("analysePair without an explanation allocates " + bytesPerPair + " bytes per pair, at most " + maxBytesPerPair + " are expected.",
+                bytesPerPair <= maxBytesPerPair);
+    }
+
+    private static int analyseAllPairs(int rounds)
+    {
+        int pairs = 0;
+        for (int round = 0; round < rounds; round++)
+        {
+            for (CommunicationProfile oldComm : communications)
+            {
+                for (CommunicationProfile newComm : communications)
+                {
+                    lastResult = Analyzer.analysePair(oldComm, newComm, difficultyMatrix, null);
+                    pairs++;
+                }
+            }
+        }
+        return pairs;
+    }
+}
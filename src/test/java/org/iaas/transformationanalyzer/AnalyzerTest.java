@@ -0,0 +1,115 @@
+package org.iaas.transformationanalyzer;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ranking of the candidates of an analysis, on the shipped communications.
+ */
+public class AnalyzerTest
+{
+    private static Map<String, CommunicationProfile> communications;
+    private static TransformationMatrix transformationMatrix;
+
+    @BeforeClass
+    public static void loadCatalog() throws Exception
+    {
+        communications = ShippedCatalog.compileCommunications();
+        transformationMatrix = new TransformationMatrix(ShippedCatalog.loadDifficultyMatrix(), 500);
+    }
+
+    private static Analyzer createAnalyzer(String oldCommunication, String... candidates)
+    {
+        return createAnalyzer(transformationMatrix, oldCommunication, candidates);
+    }
+
+    private static Analyzer createAnalyzer(TransformationMatrix transformationMatrix, String oldCommunication, String... candidates)
+    {
+        List<CommunicationProfile> newEnvironmentSupportedComms = new ArrayList<CommunicationProfile>();
+        for (String candidate : candidates)
+        {
+            newEnvironmentSupportedComms.add(communications.get(candidate));
+        }
+        return new Analyzer(null, null, communications.get(oldCommunication), Collections.<CommunicationProfile>emptyList(), newEnvironmentSupportedComms, transformationMatrix);
+    }
+
+    @Test
+    public void possibleCandidateIsRankedBeforeImpossibleOneWhateverTheWeights()
+    {
+        // MQTT => CoAP is possible and loses QoS, MQTT => DDS is not possible and does not lose QoS.
+        Analyzer analyzer = createAnalyzer("MQTT", "DDS", "CoAP");
+        Assert.assertFalse(transformationMatrix.getResult(communications.get("MQTT"), communications.get("DDS")).getPossibility());
+        Assert.assertTrue(transformationMatrix.getResult(communications.get("MQTT"), communications.get("CoAP")).getPossibility());
+
+        RankingWeights weights = new RankingWeights();
+        weights.getLosses().put("QoS", 100.0);
+
+        List<AnalysisResult> ranked = analyzer.rank(2, weights);
+        Assert.assertEquals(Arrays.asList("CoAP", "DDS"), Arrays.asList(ranked.get(0).getName(), ranked.get(1).getName()));
+        Assert.assertEquals("CoAP", analyzer.rank(1, weights).get(0).getName());
+    }
+
+    @Test
+    public void scoreOrdersThePossibleCandidates()
+    {
+        // From MQTT: AMQP has no losses, HTTP loses the header fields and QoS.
+        Analyzer analyzer = createAnalyzer("MQTT", "HTTP", "DDS", "AMQP");
+
+        RankingWeights weights = new RankingWeights();
+        weights.setLossCount(1);
+
+        List<AnalysisResult> ranked = analyzer.rank(3, weights);
+        Assert.assertEquals(Arrays.asList("AMQP", "HTTP", "DDS"), Arrays.asList(ranked.get(0).getName(), ranked.get(1).getName(), ranked.get(2).getName()));
+    }
+
+    @Test
+    public void suggestedResultIsTheBestOfTheAnalysisWithoutScoringAgain()
+    {
+        AtomicInteger scored = new AtomicInteger();
+        TransformationMatrix countingMatrix = new TransformationMatrix(transformationMatrix.getDifficultyMatrix(), 500)
+        {
+            @Override
+            public AnalysisResult getResult(CommunicationProfile oldComm, CommunicationProfile newComm)
+            {
+                scored.incrementAndGet();
+                return super.getResult(oldComm, newComm);
+            }
+        };
+
+        // No candidate has the base type of MQTT, so the transformation is required.
+        for (RankingWeights weights : new RankingWeights[] { null, new RankingWeights() })
+        {
+            Analyzer analyzer = createAnalyzer(countingMatrix, "MQTT", "HTTP", "DDS", "AMQP", "CoAP");
+            if (weights != null)
+            {
+                weights.setLossCount(1);
+                analyzer.setRanking(2, weights);
+            }
+            scored.set(0);
+            analyzer.Analyse();
+            Assert.assertEquals(4, scored.get());
+
+            AnalysisResult suggested = analyzer.getSuggestedResult();
+            Assert.assertEquals(4, scored.get());
+            Assert.assertEquals("AMQP", suggested.getName());
+            Assert.assertEquals(analyzer.rank(1, weights != null ? weights : new RankingWeights()).get(0).getName(), suggested.getName());
+        }
+    }
+
+    @Test
+    public void rankingCountZeroStillHasTheSuggestedResult()
+    {
+        Analyzer analyzer = createAnalyzer("MQTT", "HTTP", "AMQP");
+        analyzer.setRanking(0, new RankingWeights());
+        analyzer.Analyse();
+        Assert.assertEquals("AMQP", analyzer.getSuggestedResult().getName());
+    }
+}
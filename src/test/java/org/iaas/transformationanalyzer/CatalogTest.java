@@ -0,0 +1,169 @@
+package org.iaas.transformationanalyzer;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Publishing definitions into the catalog, on a copy of the shipped json_data.
+ */
+public class CatalogTest
+{
+    private static final String communicationsFolder = "communications";
+    private static final String environmentsFolder = "environments";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private JsonFolderRepository repository;
+    private Catalog catalog;
+
+
+    @Before
+    public void openCatalog() throws Exception
+    {
+        Path jsonDataPath = folder.getRoot().toPath();
+        for (String folderName : new String[] { communicationsFolder, environmentsFolder })
+        {
+            Files.createDirectory(jsonDataPath.resolve(folderName));
+            try (Stream<Path> files = Files.list(ShippedCatalog.jsonData.resolve(folderName)))
+            {
+                for (Path file : (Iterable<Path>) files::iterator)
+                {
+                    Files.copy(file, jsonDataPath.resolve(folderName).resolve(file.getFileName()));
+                }
+            }
+        }
+        Files.copy(ShippedCatalog.jsonData.resolve(DifficultyMatrix.fileName), jsonDataPath.resolve(DifficultyMatrix.fileName));
+
+        repository = new JsonFolderRepository(jsonDataPath, communicationsFolder, environmentsFolder);
+        catalog = new Catalog(jsonDataPath, repository, communicationsFolder, environmentsFolder, "settingsDropdownElements");
+        catalog.open();
+    }
+
+    @After
+    public void closeCatalog() throws Exception
+    {
+        catalog.close();
+    }
+
+    private void publishCommunication(String name, Communication communication) throws Exception
+    {
+        communication.setName(name);
+        catalog.publish(communicationsFolder, name, new JsonReaderWriter<Communication>(Communication.class).ConvertJavaObjectToPrettyJson(communication, name + ".json"));
+    }
+
+    /**
+     * A copy of each shipped communication (as the front-end makes it) and the communication saved again as it is
+     * should be analysed the same as the shipped one: the same result from and to every communication, and the same need for a transformation.
+     * (Some shipped communications have other ids than the vocabulary for the same items, the ids should be kept)
+     */
+    @Test
+    public void republishedCommunicationAnalysesTheSameAsTheOriginal() throws Exception
+    {
+        Map<String, CommunicationProfile> originals = new LinkedHashMap<String, CommunicationProfile>();
+        for (String name : ShippedCatalog.communicationNames)
+        {
+            originals.put(name, catalog.getCommunication(name));
+        }
+
+        for (String name : ShippedCatalog.communicationNames)
+        {
+            publishCommunication("Copy" + name, ShippedCatalog.readCommunication(name));
+        }
+        for (String name : ShippedCatalog.communicationNames)
+        {
+            publishCommunication(name, ShippedCatalog.readCommunication(name));
+        }
+
+        TransformationMatrix transformationMatrix = new TransformationMatrix(catalog.getDifficultyMatrix(), 500);
+        for (String name : ShippedCatalog.communicationNames)
+        {
+            CommunicationProfile original = originals.get(name);
+            for (CommunicationProfile republished : new CommunicationProfile[] { catalog.getCommunication("Copy" + name), catalog.getCommunication(name) })
+            {
+                Assert.assertNotSame(original, republished);
+                for (CommunicationProfile other : originals.values())
+                {
+                    String pair = name + " (" + republished.getName() + ") and " + other.getName();
+                    assertSameResult(pair, Analyzer.analysePair(original, other, catalog.getDifficultyMatrix()), Analyzer.analysePair(republished, other, catalog.getDifficultyMatrix()));
+                    assertSameResult(pair, Analyzer.analysePair(other, original, catalog.getDifficultyMatrix()), Analyzer.analysePair(other, republished, catalog.getDifficultyMatrix()));
+
+                    Assert.assertEquals(pair, getTransformationRequired(other, original, transformationMatrix), getTransformationRequired(other, republished, transformationMatrix));
+                    Assert.assertEquals(pair, getTransformationRequired(original, other, transformationMatrix), getTransformationRequired(republished, other, transformationMatrix));
+                }
+            }
+        }
+    }
+
+    private static void assertSameResult(String pair, AnalysisResult expected, AnalysisResult actual)
+    {
+        Assert.assertEquals(pair, expected.getPossibility(), actual.getPossibility());
+        Assert.assertEquals(pair, expected.getDifficultyPoint(), actual.getDifficultyPoint());
+        Assert.assertEquals(pair, expected.getDifficulty(), actual.getDifficulty());
+        Assert.assertEquals(pair, expected.getPossibleLosses(), actual.getPossibleLosses());
+    }
+
+    // Whether the transformation is required, if the new environment supports only newComm.
+    private static String getTransformationRequired(CommunicationProfile oldComm, CommunicationProfile newComm, TransformationMatrix transformationMatrix)
+    {
+        List<CommunicationProfile> newEnvironmentSupportedComms = Collections.singletonList(newComm);
+        Analyzer analyzer = new Analyzer(null, null, oldComm, Collections.<CommunicationProfile>emptyList(), newEnvironmentSupportedComms, transformationMatrix);
+        analyzer.Analyse();
+        return analyzer.getTransformationRequired();
+    }
+
+    @Test
+    public void communicationWithAnItemWhichIsNotInTheVocabularyIsRejected() throws Exception
+    {
+        Communication communication = ShippedCatalog.readCommunication("MQTT");
+        communication.getQosType().add(new DropDownListItem(1, "Not in the vocabulary"));
+        try
+        {
+            publishCommunication("Unknown", communication);
+            Assert.fail("Should be rejected.");
+        }
+        catch (Exception e)
+        {
+            Assert.assertEquals("Communication is not valid: qosType has an unknown item: 1, Not in the vocabulary", e.getMessage());
+        }
+        Assert.assertNull(repository.read(communicationsFolder, "Unknown"));
+    }
+
+    @Test
+    public void failedRefreshKeepsTheCommunicationAndIsCounted() throws Exception
+    {
+        CommunicationProfile previous = catalog.getCommunication("MQTT");
+        long errorsBefore = getErrorCount("refresh");
+
+        // Written directly, as an editor would do.
+        repository.write(communicationsFolder, "MQTT", "{ \"name\" : \"MQTT\", ".getBytes(StandardCharsets.UTF_8));
+        catalog.refresh(communicationsFolder, "MQTT");
+
+        Assert.assertSame(previous, catalog.getCommunication("MQTT"));
+        Assert.assertTrue(getErrorCount("refresh") > errorsBefore);
+    }
+
+    private static long getErrorCount(String source) throws Exception
+    {
+        StringWriter writer = new StringWriter();
+        Metrics.get().writePrometheus(writer);
+        Matcher matcher = Pattern.compile("errors_total\\{source=\"" + source + "\"\\} (\\d+)").matcher(writer.toString());
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : 0;
+    }
+}
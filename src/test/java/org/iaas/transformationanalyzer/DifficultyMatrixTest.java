@@ -0,0 +1,289 @@
+package org.iaas.transformationanalyzer;
+
+import org.iaas.transformationanalyzer.Analyzer.BaseType;
+import org.iaas.transformationanalyzer.Analyzer.CommTypes;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The points of json_data/difficultyMatrix.json should be the same as the if/else chains they are moved from.
+ * The chains are kept here as they were in Analyzer, every pair of the known (7x7) and communication (6x6) types is compared.
+ */
+public class DifficultyMatrixTest
+{
+    private static final Path shippedFile = ShippedCatalog.jsonData.resolve(DifficultyMatrix.fileName);
+
+    private static DifficultyMatrix matrix;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+
+    @BeforeClass
+    public static void loadShippedFile() throws Exception
+    {
+        matrix = DifficultyMatrix.load(shippedFile);
+    }
+
+    @Test
+    public void knownTypesAreTheSameAsBefore()
+    {
+        int pairs = 0;
+        for (BaseType typeOld : BaseType.values())
+        {
+            for (BaseType typeNew : BaseType.values())
+            {
+                if (typeOld == BaseType.BASE_TYPE_NEW || typeNew == BaseType.BASE_TYPE_NEW)
+                {
+                    continue;
+                }
+                Assert.assertEquals(typeOld.getValue() + " => " + typeNew.getValue(),
+                        difficultyPointsOfKnownTypes(typeOld.getValue(), typeNew.getValue()),
+                        matrix.getKnownTypePoints(typeOld.ordinal(), typeNew.ordinal()));
+                pairs++;
+            }
+        }
+        Assert.assertEquals(7 * 7, pairs);
+    }
+
+    @Test
+    public void unknownTypesAreTheSameAsBefore()
+    {
+        int pairs = 0;
+        for (CommTypes typeOld : CommTypes.values())
+        {
+            for (CommTypes typeNew : CommTypes.values())
+            {
+                Assert.assertEquals(typeOld.getValue() + " => " + typeNew.getValue(),
+                        difficultyPointsOfUnknownTypes(typeOld.getValue(), typeNew.getValue()),
+                        matrix.getUnknownTypePoints(typeOld.ordinal(), typeNew.ordinal()));
+                pairs++;
+            }
+        }
+        Assert.assertEquals(6 * 6, pairs);
+    }
+
+    @Test
+    public void typesWhichAreNotListedGetTheDefaultPoints()
+    {
+        Assert.assertEquals(difficultyPointsOfKnownTypes("NEW", "AMQP"), matrix.getKnownTypePoints(BaseType.BASE_TYPE_NEW.ordinal(), BaseType.BASE_TYPE_AMQP.ordinal()));
+        Assert.assertEquals(difficultyPointsOfKnownTypes("Other", "AMQP"), matrix.getKnownTypePoints(-1, BaseType.BASE_TYPE_AMQP.ordinal()));
+        Assert.assertEquals(difficultyPointsOfUnknownTypes("Other", "Brokered Messaging"), matrix.getUnknownTypePoints(-1, CommTypes.COMM_TYPES_MS_BROKERED.ordinal()));
+    }
+
+    @Test
+    public void otherVersionIsRejected() throws Exception
+    {
+        String content = new String(Files.readAllBytes(shippedFile), StandardCharsets.UTF_8).replace("\"version\" : 1,", "\"version\" : 2,");
+        assertRejected(content, "Version of the difficulty points is not supported: 2");
+    }
+
+    @Test
+    public void nullRowIsRejected() throws Exception
+    {
+        String content = new String(Files.readAllBytes(shippedFile), StandardCharsets.UTF_8).replace("[ 200,   0, 200, 200, 750, 200, 450 ]", "null");
+        assertRejected(content, "There should be one column of points for each type: knownTypes, row STOMP");
+    }
+
+    @Test
+    public void missingPointIsRejected() throws Exception
+    {
+        String content = new String(Files.readAllBytes(shippedFile), StandardCharsets.UTF_8).replace("[ 200,   0, 200, 200, 750, 200, 450 ]", "[ 200, null, 200, 200, 750, 200, 450 ]");
+        assertRejected(content, "Points are missing: knownTypes, row STOMP, column STOMP");
+    }
+
+    private void assertRejected(String content, String message) throws Exception
+    {
+        Path file = folder.getRoot().toPath().resolve(DifficultyMatrix.fileName);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        try
+        {
+            DifficultyMatrix.load(file);
+            Assert.fail("Should be rejected: " + message);
+        }
+        catch (Exception e)
+        {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith(message));
+        }
+    }
+
+
+    //region The points before difficultyMatrix.json, as they were in Analyzer
+
+    private static int difficultyPointsOfKnownTypes(String typeOld, String typeNew)
+    {
+        if(typeOld.equals(BaseType.BASE_TYPE_AMQP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_STOMP.getValue()))
+            return 275;
+        else if(typeOld.equals(BaseType.BASE_TYPE_AMQP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_MQTT.getValue()))
+            return 275;
+        else if(typeOld.equals(BaseType.BASE_TYPE_AMQP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_HTTP.getValue()))
+            return 275;
+        else if(typeOld.equals(BaseType.BASE_TYPE_AMQP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_COAP.getValue()))
+            return 275;
+        else if(typeOld.equals(BaseType.BASE_TYPE_AMQP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_XMPP.getValue()))
+            return 450;
+        else if(typeOld.equals(BaseType.BASE_TYPE_AMQP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_DDS.getValue()))
+            return 750;
+
+        else if(typeOld.equals(BaseType.BASE_TYPE_STOMP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_AMQP.getValue()))
+            return 200;
+        else if(typeOld.equals(BaseType.BASE_TYPE_STOMP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_MQTT.getValue()))
+            return 200;
+        else if(typeOld.equals(BaseType.BASE_TYPE_STOMP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_HTTP.getValue()))
+            return 200;
+        else if(typeOld.equals(BaseType.BASE_TYPE_STOMP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_COAP.getValue()))
+            return 200;
+        else if(typeOld.equals(BaseType.BASE_TYPE_STOMP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_XMPP.getValue()))
+            return 450;
+        else if(typeOld.equals(BaseType.BASE_TYPE_STOMP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_DDS.getValue()))
+            return 750;
+
+        else if(typeOld.equals(BaseType.BASE_TYPE_MQTT.getValue()) && typeNew.equals(BaseType.BASE_TYPE_AMQP.getValue()))
+            return 175;
+        else if(typeOld.equals(BaseType.BASE_TYPE_MQTT.getValue()) && typeNew.equals(BaseType.BASE_TYPE_STOMP.getValue()))
+            return 175;
+        else if(typeOld.equals(BaseType.BASE_TYPE_MQTT.getValue()) && typeNew.equals(BaseType.BASE_TYPE_HTTP.getValue()))
+            return 225;
+        else if(typeOld.equals(BaseType.BASE_TYPE_MQTT.getValue()) && typeNew.equals(BaseType.BASE_TYPE_COAP.getValue()))
+            return 225;
+        else if(typeOld.equals(BaseType.BASE_TYPE_MQTT.getValue()) && typeNew.equals(BaseType.BASE_TYPE_XMPP.getValue()))
+            return 450;
+        else if(typeOld.equals(BaseType.BASE_TYPE_MQTT.getValue()) && typeNew.equals(BaseType.BASE_TYPE_DDS.getValue()))
+            return 750;
+
+        else if(typeOld.equals(BaseType.BASE_TYPE_HTTP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_AMQP.getValue()))
+            return 200;
+        else if(typeOld.equals(BaseType.BASE_TYPE_HTTP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_STOMP.getValue()))
+            return 200;
+        else if(typeOld.equals(BaseType.BASE_TYPE_HTTP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_MQTT.getValue()))
+            return 250;
+        else if(typeOld.equals(BaseType.BASE_TYPE_HTTP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_COAP.getValue()))
+            return 100;
+        else if(typeOld.equals(BaseType.BASE_TYPE_HTTP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_XMPP.getValue()))
+            return 450;
+        else if(typeOld.equals(BaseType.BASE_TYPE_HTTP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_DDS.getValue()))
+            return 750;
+
+        else if(typeOld.equals(BaseType.BASE_TYPE_COAP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_AMQP.getValue()))
+            return 200;
+        else if(typeOld.equals(BaseType.BASE_TYPE_COAP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_STOMP.getValue()))
+            return 200;
+        else if(typeOld.equals(BaseType.BASE_TYPE_COAP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_MQTT.getValue()))
+            return 250;
+        else if(typeOld.equals(BaseType.BASE_TYPE_COAP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_HTTP.getValue()))
+            return 100;
+        else if(typeOld.equals(BaseType.BASE_TYPE_COAP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_XMPP.getValue()))
+            return 450;
+        else if(typeOld.equals(BaseType.BASE_TYPE_COAP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_DDS.getValue()))
+            return 750;
+
+        else if(typeOld.equals(BaseType.BASE_TYPE_XMPP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_AMQP.getValue()))
+            return 450;
+        else if(typeOld.equals(BaseType.BASE_TYPE_XMPP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_STOMP.getValue()))
+            return 450;
+        else if(typeOld.equals(BaseType.BASE_TYPE_XMPP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_MQTT.getValue()))
+            return 450;
+        else if(typeOld.equals(BaseType.BASE_TYPE_XMPP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_HTTP.getValue()))
+            return 450;
+        else if(typeOld.equals(BaseType.BASE_TYPE_XMPP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_COAP.getValue()))
+            return 450;
+        else if(typeOld.equals(BaseType.BASE_TYPE_XMPP.getValue()) && typeNew.equals(BaseType.BASE_TYPE_DDS.getValue()))
+            return 450;
+
+        else if(typeOld.equals(BaseType.BASE_TYPE_DDS.getValue()) && typeNew.equals(BaseType.BASE_TYPE_AMQP.getValue()))
+            return 750;
+        else if(typeOld.equals(BaseType.BASE_TYPE_DDS.getValue()) && typeNew.equals(BaseType.BASE_TYPE_STOMP.getValue()))
+            return 750;
+        else if(typeOld.equals(BaseType.BASE_TYPE_DDS.getValue()) && typeNew.equals(BaseType.BASE_TYPE_MQTT.getValue()))
+            return 750;
+        else if(typeOld.equals(BaseType.BASE_TYPE_DDS.getValue()) && typeNew.equals(BaseType.BASE_TYPE_HTTP.getValue()))
+            return 750;
+        else if(typeOld.equals(BaseType.BASE_TYPE_DDS.getValue()) && typeNew.equals(BaseType.BASE_TYPE_COAP.getValue()))
+            return 750;
+        else if(typeOld.equals(BaseType.BASE_TYPE_DDS.getValue()) && typeNew.equals(BaseType.BASE_TYPE_XMPP.getValue()))
+            return 750;
+
+        return 0;
+    }
+
+
+    private static int difficultyPointsOfUnknownTypes(String typeOld, String typeNew)
+    {
+        if(typeOld.equals(CommTypes.COMM_TYPES_CS_BI_DIR.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_CS_ONE_DIR.getValue()))
+            return 300;
+        else if(typeOld.equals(CommTypes.COMM_TYPES_CS_BI_DIR.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_MS_BROKERED.getValue()))
+            return 300;
+        else if(typeOld.equals(CommTypes.COMM_TYPES_CS_BI_DIR.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_MS_NOT_BROKERED.getValue()))
+            return 300;
+        else if(typeOld.equals(CommTypes.COMM_TYPES_CS_BI_DIR.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_DS_BROKERED.getValue()))
+            return 500;
+        else if(typeOld.equals(CommTypes.COMM_TYPES_CS_BI_DIR.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_DS_NOT_BROKERED.getValue()))
+            return 500;
+
+        else if(typeOld.equals(CommTypes.COMM_TYPES_CS_ONE_DIR.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_CS_BI_DIR.getValue()))
+            return 200;
+        else if(typeOld.equals(CommTypes.COMM_TYPES_CS_ONE_DIR.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_MS_BROKERED.getValue()))
+            return 300;
+        else if(typeOld.equals(CommTypes.COMM_TYPES_CS_ONE_DIR.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_MS_NOT_BROKERED.getValue()))
+            return 300;
+        else if(typeOld.equals(CommTypes.COMM_TYPES_CS_ONE_DIR.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_DS_BROKERED.getValue()))
+            return 500;
+        else if(typeOld.equals(CommTypes.COMM_TYPES_CS_ONE_DIR.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_DS_NOT_BROKERED.getValue()))
+            return 500;
+
+        else if(typeOld.equals(CommTypes.COMM_TYPES_MS_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_CS_BI_DIR.getValue()))
+            return 300;
+        else if(typeOld.equals(CommTypes.COMM_TYPES_MS_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_CS_ONE_DIR.getValue()))
+            return 300;
+        else if(typeOld.equals(CommTypes.COMM_TYPES_MS_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_MS_NOT_BROKERED.getValue()))
+            return 300;
+        else if(typeOld.equals(CommTypes.COMM_TYPES_MS_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_DS_BROKERED.getValue()))
+            return 500;
+        else if(typeOld.equals(CommTypes.COMM_TYPES_MS_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_DS_NOT_BROKERED.getValue()))
+            return 500;
+
+        else if(typeOld.equals(CommTypes.COMM_TYPES_MS_NOT_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_CS_BI_DIR.getValue()))
+            return 300;
+        else if(typeOld.equals(CommTypes.COMM_TYPES_MS_NOT_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_CS_ONE_DIR.getValue()))
+            return 300;
+        else if(typeOld.equals(CommTypes.COMM_TYPES_MS_NOT_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_MS_BROKERED.getValue()))
+            return 300;
+        else if(typeOld.equals(CommTypes.COMM_TYPES_MS_NOT_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_DS_BROKERED.getValue()))
+            return 500;
+        else if(typeOld.equals(CommTypes.COMM_TYPES_MS_NOT_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_DS_NOT_BROKERED.getValue()))
+            return 500;
+
+        else if(typeOld.equals(CommTypes.COMM_TYPES_DS_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_CS_BI_DIR.getValue()))
+            return 500;
+        else if(typeOld.equals(CommTypes.COMM_TYPES_DS_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_CS_ONE_DIR.getValue()))
+            return 500;
+        else if(typeOld.equals(CommTypes.COMM_TYPES_DS_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_MS_BROKERED.getValue()))
+            return 500;
+        else if(typeOld.equals(CommTypes.COMM_TYPES_DS_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_MS_NOT_BROKERED.getValue()))
+            return 500;
+        else if(typeOld.equals(CommTypes.COMM_TYPES_DS_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_DS_NOT_BROKERED.getValue()))
+            return 300;
+
+        else if(typeOld.equals(CommTypes.COMM_TYPES_DS_NOT_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_CS_BI_DIR.getValue()))
+            return 500;
+        else if(typeOld.equals(CommTypes.COMM_TYPES_DS_NOT_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_CS_ONE_DIR.getValue()))
+            return 500;
+        else if(typeOld.equals(CommTypes.COMM_TYPES_DS_NOT_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_MS_BROKERED.getValue()))
+            return 500;
+        else if(typeOld.equals(CommTypes.COMM_TYPES_DS_NOT_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_MS_NOT_BROKERED.getValue()))
+            return 500;
+        else if(typeOld.equals(CommTypes.COMM_TYPES_DS_NOT_BROKERED.getValue()) && typeNew.equals(CommTypes.COMM_TYPES_DS_BROKERED.getValue()))
+            return 300;
+
+        return 150;
+    }
+
+    //endregion
+}
@@ -0,0 +1,260 @@
+package org.iaas.transformationanalyzer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Writes of JsonFolderRepository: concurrent writers and readers of the same names, and the permissions of the written files.
+ */
+public class JsonFolderRepositoryTest
+{
+    private static final String folderName = "communications";
+    private static final String[] names = { "A", "B", "C", "D" };
+
+    // Big enough that a file is not written with one system call.
+    private static final int paddingSize = 256 * 1024;
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path jsonDataPath;
+    private JsonFolderRepository repository;
+
+
+    @Before
+    public void openRepository() throws Exception
+    {
+        jsonDataPath = folder.getRoot().toPath();
+        Files.createDirectory(jsonDataPath.resolve("communications"));
+        Files.createDirectory(jsonDataPath.resolve("environments"));
+        repository = new JsonFolderRepository(jsonDataPath, "communications", "environments");
+        repository.open();
+    }
+
+    @After
+    public void closeRepository() throws Exception
+    {
+        repository.close();
+    }
+
+    // Content of one write, it can be made again from the writer and the iteration in it.
+    private static byte[] getContent(String name, int writer, int iteration)
+    {
+        StringBuilder padding = new StringBuilder(paddingSize);
+        Random random = new Random(((long) writer << 32) | iteration);
+        for (int i = 0; i < paddingSize; i++)
+        {
+            padding.append((char) ('a' + random.nextInt(26)));
+        }
+        return ("{\n  \"name\" : \"" + name + "\",\n  \"writer\" : " + writer + ",\n  \"iteration\" : " + iteration + ",\n  \"padding\" : \"" + padding + "\"\n}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    // The content should be exactly what one writer has written for the name.
+    private static String checkContent(String name, byte[] content)
+    {
+        JsonNode node;
+        try
+        {
+            node = mapper.readTree(content);
+        }
+        catch (Exception e)
+        {
+            return name + " cannot be parsed (" + content.length + " bytes): " + e.getMessage();
+        }
+
+        if (!node.path("name").asText().equals(name))
+        {
+            return name + " has the content of " + node.path("name").asText();
+        }
+        byte[] expected = getContent(name, node.path("writer").asInt(), node.path("iteration").asInt());
+        if (!Arrays.equals(expected, content))
+        {
+            return name + " is not the content of writer " + node.path("writer").asInt() + ", iteration " + node.path("iteration").asInt();
+        }
+        return null;
+    }
+
+    @Test
+    public void concurrentWritersAndReadersOfTheSameNames() throws Exception
+    {
+        int writers = 8;
+        int readers = 8;
+        int iterations = 25;
+
+        for (String name : names)
+        {
+            repository.write(folderName, name, getContent(name, -1, 0));
+        }
+
+        Queue<String> errors = new ConcurrentLinkedQueue<String>();
+        AtomicInteger reads = new AtomicInteger();
+        AtomicBoolean writing = new AtomicBoolean(true);
+
+        // The change events are read too, as the catalog does.
+        repository.addListener(new DefinitionRepository.Listener()
+        {
+            @Override
+            public void definitionChanged(String changedFolder, String name)
+            {
+                read(name, errors, reads);
+            }
+
+            @Override
+            public void folderChanged(String changedFolder)
+            {
+            }
+        });
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<Thread>();
+        List<Thread> writerThreads = new ArrayList<Thread>();
+        for (int w = 0; w < writers; w++)
+        {
+            int writer = w;
+            Thread thread = new Thread(() ->
+            {
+                Random random = new Random(writer);
+                try
+                {
+                    start.await();
+                    for (int i = 0; i < iterations; i++)
+                    {
+                        String name = names[random.nextInt(names.length)];
+                        repository.write(folderName, name, getContent(name, writer, i));
+                    }
+                }
+                catch (Exception e)
+                {
+                    errors.add("Writer " + writer + ": " + e);
+                }
+            }, "writer-" + w);
+            writerThreads.add(thread);
+            threads.add(thread);
+        }
+        for (int r = 0; r < readers; r++)
+        {
+            int reader = r;
+            threads.add(new Thread(() ->
+            {
+                Random random = new Random(1000 + reader);
+                try
+                {
+                    start.await();
+                }
+                catch (InterruptedException e)
+                {
+                    return;
+                }
+                while (writing.get())
+                {
+                    read(names[random.nextInt(names.length)], errors, reads);
+                }
+            }, "reader-" + r));
+        }
+
+        for (Thread thread : threads)
+        {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : writerThreads)
+        {
+            thread.join(TimeUnit.MINUTES.toMillis(2));
+        }
+        writing.set(false);
+        for (Thread thread : threads)
+        {
+            thread.join(TimeUnit.MINUTES.toMillis(1));
+        }
+
+        Assert.assertTrue(errors.toString(), errors.isEmpty());
+        Assert.assertTrue("Readers should have read while the files were written: " + reads.get(), reads.get() > names.length);
+
+        for (String name : names)
+        {
+            Assert.assertNull(checkContent(name, repository.read(folderName, name)));
+        }
+        try (Stream<Path> files = Files.list(jsonDataPath.resolve(folderName)))
+        {
+            Assert.assertEquals("Only the files of the names should be left, no temporary files.", names.length, files.count());
+        }
+    }
+
+    private void read(String name, Queue<String> errors, AtomicInteger reads)
+    {
+        try
+        {
+            byte[] content = repository.read(folderName, name);
+            if (content == null)
+            {
+                errors.add(name + " is missing while it is replaced.");
+                return;
+            }
+            String error = checkContent(name, content);
+            if (error != null)
+            {
+                errors.add(error);
+            }
+            reads.incrementAndGet();
+        }
+        catch (Exception e)
+        {
+            errors.add(name + " cannot be read: " + e);
+        }
+    }
+
+    @Test
+    public void replacedFileKeepsItsPermissions() throws Exception
+    {
+        Assume.assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+
+        Path file = jsonDataPath.resolve(folderName).resolve("A.json");
+        repository.write(folderName, "A", getContent("A", 0, 0));
+
+        for (String permissions : new String[] { "rw-r--r--", "rw-rw-r--", "rw-r-----" })
+        {
+            Files.setPosixFilePermissions(file, PosixFilePermissions.fromString(permissions));
+            repository.write(folderName, "A", getContent("A", 0, 1));
+            Assert.assertEquals(permissions, PosixFilePermissions.toString(Files.getPosixFilePermissions(file)));
+        }
+    }
+
+    @Test
+    public void newFileHasTheDefaultPermissions() throws Exception
+    {
+        Assume.assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+
+        // Created directly, with the umask of the process.
+        Path plainFile = Files.createFile(jsonDataPath.resolve("environments").resolve("plain.json"));
+
+        repository.write(folderName, "B", getContent("B", 0, 0));
+        Path file = jsonDataPath.resolve(folderName).resolve("B.json");
+        Assert.assertEquals(Files.getPosixFilePermissions(plainFile), Files.getPosixFilePermissions(file));
+    }
+}
@@ -0,0 +1,69 @@
+package org.iaas.transformationanalyzer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ETags of the payloads and what removes a payload from the cache.
+ */
+public class PayloadCacheTest
+{
+    @Test
+    public void onlyTheETagOfTheSentRepresentationMatches() throws Exception
+    {
+        // Big and repetitive, so it is compressed.
+        byte[] body = new byte[4096];
+        Arrays.fill(body, (byte) 'a');
+        PayloadCache.Payload payload = new PayloadCache.Payload(body);
+        Assert.assertNotNull(payload.getGzipBody());
+
+        Assert.assertTrue(payload.matches(payload.getETag(), false));
+        Assert.assertFalse(payload.matches(payload.getGzipETag(), false));
+        Assert.assertTrue(payload.matches(payload.getGzipETag(), true));
+        Assert.assertFalse(payload.matches(payload.getETag(), true));
+
+        Assert.assertTrue(payload.matches("\"other\", W/" + payload.getETag(), false));
+        Assert.assertTrue(payload.matches("*", true));
+        Assert.assertFalse(payload.matches(null, false));
+    }
+
+    @Test
+    public void settingsAreLoadedAgainWhenTheRepositoryChanges() throws Exception
+    {
+        PayloadCache cache = new PayloadCache("communications", "environments");
+        AtomicInteger loads = new AtomicInteger();
+        PayloadCache.Loader loader = () -> ("{\"load\": " + loads.incrementAndGet() + "}").getBytes(StandardCharsets.UTF_8);
+
+        cache.getFile("communications", "settingsDropdownElements", loader);
+        cache.getFile("communications", "settingsDropdownElements", loader);
+        Assert.assertEquals(1, loads.get());
+
+        // The catalog never notifies it, it is not a definition.
+        cache.definitionChanged("communications", "settingsDropdownElements");
+        cache.getFile("communications", "settingsDropdownElements", loader);
+        Assert.assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void folderChangeRemovesEverythingOfTheFolder() throws Exception
+    {
+        PayloadCache cache = new PayloadCache("communications", "environments");
+        AtomicInteger loads = new AtomicInteger();
+        PayloadCache.Loader loader = () -> ("{\"load\": " + loads.incrementAndGet() + "}").getBytes(StandardCharsets.UTF_8);
+
+        cache.getFolder("communications", loader);
+        cache.getFile("communications", "HTTP", loader);
+        cache.getFile("environments", "Cloud", loader);
+        Assert.assertEquals(3, loads.get());
+
+        cache.folderChanged("communications");
+        cache.getFolder("communications", loader);
+        cache.getFile("communications", "HTTP", loader);
+        cache.getFile("environments", "Cloud", loader);
+        Assert.assertEquals(5, loads.get());
+    }
+}
@@ -0,0 +1,45 @@
+package org.iaas.transformationanalyzer;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The communications and the difficulty points which are shipped in src/main/webapp/json_data, for the tests.
+ */
+final class ShippedCatalog
+{
+    static final Path jsonData = Paths.get("src/main/webapp/json_data");
+
+    // Shipped communications, without the vocabulary (Default) and the settings.
+    static final String[] communicationNames = { "AMQP", "CoAP", "DDS", "HTTP", "MQTT", "STOMP", "XMPP" };
+
+
+    private ShippedCatalog()
+    {
+    }
+
+    static Communication readCommunication(String name) throws Exception
+    {
+        return new JsonReaderWriter<Communication>(Communication.class).ConvertJsonFileToJavaObj(jsonData.resolve("communications").resolve(name + ".json").toString());
+    }
+
+    /**
+     * @return the compiled shipped communications by name, in the order of communicationNames.
+     */
+    static Map<String, CommunicationProfile> compileCommunications() throws Exception
+    {
+        Map<String, CommunicationProfile> profiles = new LinkedHashMap<String, CommunicationProfile>();
+        for (String name : communicationNames)
+        {
+            profiles.put(name, CommunicationProfile.compile(readCommunication(name)));
+        }
+        return profiles;
+    }
+
+    static DifficultyMatrix loadDifficultyMatrix() throws Exception
+    {
+        return DifficultyMatrix.load(jsonData.resolve(DifficultyMatrix.fileName));
+    }
+}